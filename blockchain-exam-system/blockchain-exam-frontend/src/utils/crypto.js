@@ -482,7 +482,7 @@ export const PaperCrypto = {
 
   /**
    * 加密试卷数据
-   * 混合加密方案：小字段用RSA，大字段用AES
+   * 混合加密方案（v2）：元数据与内容均用同一AES会话密钥加密，仅AES密钥用RSA加密
    *
    * @param {object} paperData - 试卷数据
    * @param {string} paperData.courseName - 课程名称
@@ -505,47 +505,40 @@ export const PaperCrypto = {
       const timestamp = Date.now()
       const nonce = Random.uuid()
 
-      // 4. 加密小字段（RSA）
-      const encryptedCourseName = RSA.encrypt(paperData.courseName || '', publicKey)
-      const encryptedExamType = RSA.encrypt(paperData.examType || '', publicKey)
-      const encryptedSemester = RSA.encrypt(paperData.semester || '', publicKey)
-      const encryptedDepartment = RSA.encrypt(paperData.department || '', publicKey)
+      // 4. 元数据整体序列化后AES加密（服务端只需一次RSA运算解出AES密钥）
+      const metadata = AES.encrypt(JSON.stringify({
+        courseName: paperData.courseName || '',
+        examType: paperData.examType || '',
+        semester: paperData.semester || '',
+        department: paperData.department || '',
+        filePath: paperData.filePath || ''
+      }), aesKey)
 
       // 5. 加密大字段（AES）
       const encryptedContent = AES.encrypt(paperData.content || '', aesKey)
 
-      // 6. 加密文件路径（如果有）
-      const encryptedFilePath = paperData.filePath
-        ? RSA.encrypt(paperData.filePath, publicKey)
-        : ''
-
-      // 7. 使用RSA加密AES密钥
+      // 6. 使用RSA加密AES密钥
       const encryptedAesKey = RSA.encrypt(aesKey, publicKey)
 
-      // 8. 构建待签名数据（用于HMAC）
+      // 7. 构建待签名数据（用于HMAC，字段顺序需与后端一致）
+      const version = 2
       const signData = JSON.stringify({
-        courseName: encryptedCourseName,
-        examType: encryptedExamType,
-        semester: encryptedSemester,
-        department: encryptedDepartment,
+        version,
+        metadata,
         content: encryptedContent,
-        filePath: encryptedFilePath,
         encryptedAesKey,
         timestamp,
         nonce
       })
 
-      // 9. 生成HMAC签名（使用AES密钥）
+      // 8. 生成HMAC签名（使用AES密钥）
       const hmac = SM3.hmac(signData, aesKey)
 
-      // 10. 返回加密后的数据
+      // 9. 返回加密后的数据
       return {
-        courseName: encryptedCourseName,
-        examType: encryptedExamType,
-        semester: encryptedSemester,
-        department: encryptedDepartment,
+        version,
+        metadata,
         content: encryptedContent,
-        filePath: encryptedFilePath,
         encryptedAesKey,
         timestamp,
         nonce,
@@ -134,6 +134,24 @@ public class BlockData implements Serializable {
     public static BlockData createPaperContent(Long paperId, String encryptedContent,
                                                String contentHash, Long creatorId,
                                                String creatorName, String title) {
+        return createPaperContent(paperId, encryptedContent, contentHash, null, creatorId, creatorName, title);
+    }
+
+    /**
+     * 创建试卷内容数据（加密，含附件哈希）
+     *
+     * @param paperId          试卷ID
+     * @param encryptedContent 加密后的试卷内容
+     * @param contentHash      试卷内容哈希
+     * @param fileHash         附件明文SHA-256（无附件时为null）
+     * @param creatorId        创建者ID
+     * @param creatorName      创建者姓名
+     * @param title            试卷标题
+     * @return BlockData对象
+     */
+    public static BlockData createPaperContent(Long paperId, String encryptedContent,
+                                               String contentHash, String fileHash, Long creatorId,
+                                               String creatorName, String title) {
         BlockData blockData = new BlockData();
         blockData.setType("PAPER_CONTENT");
         blockData.setReferenceId(paperId);
@@ -143,6 +161,49 @@ public class BlockData implements Serializable {
         data.put("paperId", paperId);
         data.put("encryptedContent", encryptedContent);
         data.put("contentHash", contentHash);
+        if (fileHash != null) {
+            data.put("fileHash", fileHash);
+        }
+        data.put("creatorId", creatorId);
+        data.put("creatorName", creatorName);
+        data.put("title", title);
+        data.put("timestamp", System.currentTimeMillis());
+
+        blockData.setData(data);
+        return blockData;
+    }
+
+    /**
+     * 创建试卷内容数据（内容寻址：只记录加密内容的引用，密文经P2P数据块传输）
+     *
+     * @param paperId          试卷ID
+     * @param contentRef       加密内容引用（chain-blob://{SHA-256}）
+     * @param encryptedHash    加密内容SHA-256
+     * @param encryptedSize    加密内容字节数
+     * @param contentHash      试卷内容哈希
+     * @param fileHash         附件明文SHA-256（无附件时为null）
+     * @param creatorId        创建者ID
+     * @param creatorName      创建者姓名
+     * @param title            试卷标题
+     * @return BlockData对象
+     */
+    public static BlockData createPaperContentRef(Long paperId, String contentRef, String encryptedHash,
+                                                  long encryptedSize, String contentHash, String fileHash,
+                                                  Long creatorId, String creatorName, String title) {
+        BlockData blockData = new BlockData();
+        blockData.setType("PAPER_CONTENT");
+        blockData.setReferenceId(paperId);
+        blockData.setTimestamp(System.currentTimeMillis());
+
+        Map<String, Object> data = new HashMap<>();
+        data.put("paperId", paperId);
+        data.put("contentRef", contentRef);
+        data.put("encryptedContentHash", encryptedHash);
+        data.put("encryptedContentSize", encryptedSize);
+        data.put("contentHash", contentHash);
+        if (fileHash != null) {
+            data.put("fileHash", fileHash);
+        }
         data.put("creatorId", creatorId);
         data.put("creatorName", creatorName);
         data.put("title", title);
@@ -0,0 +1,64 @@
+package com.blockchain.exam.blockchain.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.util.Map;
+
+/**
+ * 区块链事件
+ *
+ * 通过SSE推送给前端看板和邻居节点，替代对统计/交易池/最新区块接口的轮询
+ *
+ * @author Claude Code
+ * @since 2025-11-25
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ChainEvent implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 新区块追加
+     */
+    public static final String BLOCK_ADDED = "BLOCK_ADDED";
+
+    /**
+     * 区块链被替换（同步时发生重组）
+     */
+    public static final String CHAIN_REPLACED = "CHAIN_REPLACED";
+
+    /**
+     * 交易池变化（新交易入池 / 交易被打包）
+     */
+    public static final String MEMPOOL_CHANGED = "MEMPOOL_CHANGED";
+
+    /**
+     * 客户端断点已超出缓冲范围，需要全量刷新
+     */
+    public static final String RESYNC = "RESYNC";
+
+    /**
+     * 事件ID，格式为 {节点启动纪元}-{序号}，用于断点续传（Last-Event-ID）
+     */
+    private String id;
+
+    /**
+     * 事件类型
+     */
+    private String type;
+
+    /**
+     * 事件数据
+     */
+    private Map<String, Object> data;
+
+    /**
+     * 事件产生时间戳
+     */
+    private Long timestamp;
+}
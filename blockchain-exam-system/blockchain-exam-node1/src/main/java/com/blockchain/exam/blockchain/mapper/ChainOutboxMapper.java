@@ -0,0 +1,80 @@
+package com.blockchain.exam.blockchain.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.blockchain.exam.blockchain.entity.ChainOutbox;
+import org.apache.ibatis.annotations.Delete;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 上链发件箱Mapper接口
+ *
+ * @author Claude Code
+ * @since 2025-11-25
+ */
+@Mapper
+public interface ChainOutboxMapper extends BaseMapper<ChainOutbox> {
+
+    /**
+     * 查询本节点到期的待投递记录
+     *
+     * @param nodeId 节点ID
+     * @param now    当前时间
+     * @param limit  最多返回条数
+     * @return 待投递记录（按ID升序；退避中的失败记录不在其中）
+     */
+    @Select("SELECT * FROM chain_outbox WHERE node_id = #{nodeId} AND status = 'PENDING' "
+            + "AND next_attempt_time <= #{now} ORDER BY id ASC LIMIT #{limit}")
+    List<ChainOutbox> selectDue(@Param("nodeId") String nodeId, @Param("now") LocalDateTime now,
+                                @Param("limit") int limit);
+
+    /**
+     * 标记为已投递（仅当仍为待投递状态时生效，保证只投递一次）
+     *
+     * @param id   记录ID
+     * @param txId 交易ID
+     * @return 影响行数
+     */
+    @Update("UPDATE chain_outbox SET status = 'SENT', tx_id = #{txId}, update_time = NOW() "
+            + "WHERE id = #{id} AND status = 'PENDING'")
+    int markSent(@Param("id") Long id, @Param("txId") Long txId);
+
+    /**
+     * 记录一次投递失败
+     *
+     * @param id              记录ID
+     * @param status          新状态（PENDING 继续重试 / FAILED 放弃）
+     * @param error           失败原因
+     * @param nextAttemptTime 下次可投递时间
+     * @return 影响行数
+     */
+    @Update("UPDATE chain_outbox SET attempts = attempts + 1, status = #{status}, last_error = #{error}, "
+            + "next_attempt_time = #{nextAttemptTime}, update_time = NOW() WHERE id = #{id} AND status = 'PENDING'")
+    int markAttemptFailed(@Param("id") Long id, @Param("status") String status, @Param("error") String error,
+                          @Param("nextAttemptTime") LocalDateTime nextAttemptTime);
+
+    /**
+     * 清理早于指定时间的已投递记录
+     *
+     * @param nodeId 节点ID
+     * @param before 截止时间
+     * @return 删除行数
+     */
+    @Delete("DELETE FROM chain_outbox WHERE node_id = #{nodeId} AND status = 'SENT' AND update_time < #{before}")
+    int deleteSentBefore(@Param("nodeId") String nodeId, @Param("before") LocalDateTime before);
+
+    /**
+     * 按状态统计本节点记录数
+     *
+     * @param nodeId 节点ID
+     * @param status 状态
+     * @return 记录数
+     */
+    @Select("SELECT COUNT(*) FROM chain_outbox WHERE node_id = #{nodeId} AND status = #{status}")
+    long countByStatus(@Param("nodeId") String nodeId, @Param("status") String status);
+}
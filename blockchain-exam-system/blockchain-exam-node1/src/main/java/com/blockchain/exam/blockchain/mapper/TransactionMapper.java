@@ -3,6 +3,7 @@ package com.blockchain.exam.blockchain.mapper;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.blockchain.exam.blockchain.entity.Transaction;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.ResultMap;
 import org.apache.ibatis.annotations.Select;
 import org.apache.ibatis.annotations.Update;
 
@@ -27,6 +28,7 @@ public interface TransactionMapper extends BaseMapper<Transaction> {
      * @return 待打包的交易列表
      */
     @Select("SELECT * FROM ${tableName} WHERE status = 'PENDING' ORDER BY create_time ASC")
+    @ResultMap("mybatis-plus_Transaction")
     List<Transaction> selectPendingTransactions(String tableName);
 
     /**
@@ -37,6 +39,7 @@ public interface TransactionMapper extends BaseMapper<Transaction> {
      * @return 待打包的交易列表
      */
     @Select("SELECT * FROM ${tableName} WHERE status = 'PENDING' ORDER BY create_time ASC LIMIT #{limit}")
+    @ResultMap("mybatis-plus_Transaction")
     List<Transaction> selectPendingTransactionsLimit(String tableName, int limit);
 
     /**
@@ -46,6 +49,7 @@ public interface TransactionMapper extends BaseMapper<Transaction> {
      * @return 指定类型的待打包交易列表
      */
     @Select("SELECT * FROM ${tableName} WHERE status = 'PENDING' AND transaction_type = #{transactionType} ORDER BY create_time ASC")
+    @ResultMap("mybatis-plus_Transaction")
     List<Transaction> selectPendingByType(String tableName, String transactionType);
 
     /**
@@ -55,6 +59,7 @@ public interface TransactionMapper extends BaseMapper<Transaction> {
      * @return 指定区块中的交易列表
      */
     @Select("SELECT * FROM ${tableName} WHERE status = 'MINED' AND block_index = #{blockIndex}")
+    @ResultMap("mybatis-plus_Transaction")
     List<Transaction> selectByBlockIndex(String tableName, Long blockIndex);
 
     /**
@@ -103,5 +108,6 @@ public interface TransactionMapper extends BaseMapper<Transaction> {
      * @return 指定节点创建的待打包交易列表
      */
     @Select("SELECT * FROM ${tableName} WHERE status = 'PENDING' AND creator_node = #{creatorNode} ORDER BY create_time ASC")
+    @ResultMap("mybatis-plus_Transaction")
     List<Transaction> selectPendingByCreator(String tableName, String creatorNode);
 }
@@ -3,6 +3,7 @@ package com.blockchain.exam.blockchain.service;
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.blockchain.exam.blockchain.entity.Block;
 import com.blockchain.exam.blockchain.entity.BlockData;
+import com.blockchain.exam.blockchain.entity.ChainEvent;
 import com.blockchain.exam.blockchain.mapper.BlockMapper;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -12,8 +13,12 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import org.apache.ibatis.cursor.Cursor;
+
 import javax.annotation.PostConstruct;
+import java.io.IOException;
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * 区块链服务
@@ -40,6 +45,9 @@ public class BlockchainService {
     @Autowired
     private ObjectMapper objectMapper;
 
+    @Autowired
+    private ChainEventService chainEventService;
+
     /**
      * 区块链表名
      */
@@ -140,24 +148,27 @@ public class BlockchainService {
             }
 
             // 创建新区块
+            List<Block> recent = getRecentBlocks(latestBlock);
             Block newBlock = new Block();
             newBlock.setBlockIndex(latestBlock.getBlockIndex() + 1);
             newBlock.setPreviousHash(latestBlock.getCurrentHash());
-            newBlock.setTimestamp(System.currentTimeMillis());
+            newBlock.setTimestamp(consensusService.nextTimestamp(recent));
             newBlock.setData(objectMapper.writeValueAsString(blockData));
             newBlock.setNonce(0);
 
             // 执行PoW挖矿
-            newBlock = consensusService.proofOfWork(newBlock);
+            newBlock = consensusService.proofOfWork(newBlock,
+                    consensusService.expectedDifficulty(newBlock.getBlockIndex(), recent));
 
             // 验证新区块
-            if (!consensusService.validateBlock(newBlock, latestBlock)) {
+            if (!consensusService.validateBlock(newBlock, recent)) {
                 log.error("新区块验证失败");
                 throw new RuntimeException("新区块验证失败");
             }
 
             // 保存到数据库
             blockMapper.insert(newBlock);
+            publishBlockAdded(newBlock);
 
             log.info("新区块添加成功 - 高度: {}, 哈希: {}",
                     newBlock.getBlockIndex(), newBlock.getCurrentHash());
@@ -187,24 +198,27 @@ public class BlockchainService {
         }
 
         // 创建新区块
+        List<Block> recent = getRecentBlocks(latestBlock);
         Block newBlock = new Block();
         newBlock.setBlockIndex(latestBlock.getBlockIndex() + 1);
         newBlock.setPreviousHash(latestBlock.getCurrentHash());
-        newBlock.setTimestamp(System.currentTimeMillis());
+        newBlock.setTimestamp(consensusService.nextTimestamp(recent));
         newBlock.setData(blockData);
         newBlock.setNonce(0);
 
         // 执行PoW挖矿
-        newBlock = consensusService.proofOfWork(newBlock);
+        newBlock = consensusService.proofOfWork(newBlock,
+                consensusService.expectedDifficulty(newBlock.getBlockIndex(), recent));
 
         // 验证新区块
-        if (!consensusService.validateBlock(newBlock, latestBlock)) {
+        if (!consensusService.validateBlock(newBlock, recent)) {
             log.error("新区块验证失败");
             throw new RuntimeException("新区块验证失败");
         }
 
         // 保存到数据库
         blockMapper.insert(newBlock);
+        publishBlockAdded(newBlock);
 
         log.info("新区块添加成功 - 高度: {}, 哈希: {}",
                 newBlock.getBlockIndex(), newBlock.getCurrentHash());
@@ -212,6 +226,24 @@ public class BlockchainService {
         return newBlock;
     }
 
+    /**
+     * 查询最新区块及其之前的若干区块，用于计算新区块的难度、时间戳下限并验证哈希链
+     *
+     * @param latestBlock 最新区块
+     * @return 区块（按高度升序，最后一个为最新区块）
+     */
+    private List<Block> getRecentBlocks(Block latestBlock) {
+        long height = latestBlock.getBlockIndex() + 1;
+        // 只需链接、时间戳和难度相关字段，不读取区块数据
+        QueryWrapper<Block> queryWrapper = new QueryWrapper<>();
+        queryWrapper.select("block_index", "current_hash", "timestamp", "difficulty", "hash_version");
+        queryWrapper.between("block_index", height - consensusService.getRecentWindow(), height - 2);
+        queryWrapper.orderByAsc("block_index");
+        List<Block> recent = new java.util.ArrayList<>(blockMapper.selectList(queryWrapper));
+        recent.add(latestBlock);
+        return recent;
+    }
+
     /**
      * 获取最新区块
      *
@@ -286,29 +318,12 @@ public class BlockchainService {
             return false;
         }
 
-        // 验证创世区块
-        Block genesisBlock = blocks.get(0);
-        if (!genesisBlock.isGenesisBlock()) {
-            log.error("第一个区块不是创世区块");
+        // 并行校验PoW，顺序校验哈希链
+        if (!consensusService.validateChain(blocks)) {
+            log.error("区块链验证失败 - 总区块数: {}", blocks.size());
             return false;
         }
 
-        if (!consensusService.validateProofOfWork(genesisBlock)) {
-            log.error("创世区块PoW验证失败");
-            return false;
-        }
-
-        // 验证后续区块
-        for (int i = 1; i < blocks.size(); i++) {
-            Block currentBlock = blocks.get(i);
-            Block previousBlock = blocks.get(i - 1);
-
-            if (!consensusService.validateBlock(currentBlock, previousBlock)) {
-                log.error("区块验证失败 - 区块高度: {}", currentBlock.getBlockIndex());
-                return false;
-            }
-        }
-
         log.info("区块链验证通过 - 总区块数: {}", blocks.size());
         return true;
     }
@@ -328,6 +343,50 @@ public class BlockchainService {
         return blockMapper.selectList(queryWrapper);
     }
 
+    /**
+     * 流式遍历指定范围的区块
+     *
+     * 基于MyBatis游标逐行读取，内存占用与链长度无关，用于全量账本导出。
+     * 整个遍历过程处于只读事务内，保证游标底层连接在消费期间保持打开。
+     *
+     * @param startIndex 起始高度（包含），为null时从创世区块开始
+     * @param endIndex   结束高度（包含），为null时直到最新区块
+     * @param consumer   区块消费者
+     * @return 实际遍历的区块数量
+     */
+    @Transactional(readOnly = true)
+    public long streamBlocks(Long startIndex, Long endIndex, Consumer<Block> consumer) {
+        long start = startIndex != null ? startIndex : 0L;
+        long end = endIndex != null ? endIndex : Long.MAX_VALUE;
+
+        long count = 0;
+        try (Cursor<Block> cursor = blockMapper.streamBlockRange(tableName, start, end)) {
+            for (Block block : cursor) {
+                consumer.accept(block);
+                count++;
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("关闭区块游标失败", e);
+        }
+        return count;
+    }
+
+    /**
+     * 发布新区块事件（事务提交后推送）
+     *
+     * @param block 新区块
+     */
+    private void publishBlockAdded(Block block) {
+        java.util.Map<String, Object> data = new java.util.HashMap<>();
+        data.put("blockIndex", block.getBlockIndex());
+        data.put("currentHash", block.getCurrentHash());
+        data.put("previousHash", block.getPreviousHash());
+        data.put("timestamp", block.getTimestamp());
+        data.put("difficulty", block.getDifficulty());
+        data.put("nodeId", nodeId);
+        chainEventService.publish(ChainEvent.BLOCK_ADDED, data);
+    }
+
     /**
      * 获取区块链统计信息
      *
@@ -342,7 +401,7 @@ public class BlockchainService {
         stats.put("nodeName", nodeName);
         stats.put("chainHeight", chainHeight);
         stats.put("totalBlocks", chainHeight + 1);
-        stats.put("difficulty", consensusService.getDifficulty());
+        stats.put("difficulty", latestBlock != null ? nextDifficulty(latestBlock) : consensusService.getDifficulty());
 
         if (latestBlock != null) {
             stats.put("latestBlockHash", latestBlock.getCurrentHash());
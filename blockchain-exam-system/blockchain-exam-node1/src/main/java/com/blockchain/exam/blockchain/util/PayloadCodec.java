@@ -0,0 +1,139 @@
+package com.blockchain.exam.blockchain.util;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * 区块/交易数据编解码工具类
+ *
+ * 区块 data、交易 transactionData 在内存中始终是原始JSON，哈希、PoW、验证都基于原始JSON；
+ * 只有写入数据库时按版本编码，读取时解码，因此是否压缩不影响区块有效性。
+ *
+ * 存储格式（版本号写在数据头部）：
+ * - 版本0：原始JSON，无头部（历史数据、小于压缩阈值的数据）
+ * - 版本1：{@code #1:} + Base64(DEFLATE(UTF-8 JSON))
+ *
+ * JSON不会以 {@code #} 开头，因此两种格式可以无歧义地区分，历史数据无需迁移。
+ *
+ * @author Claude Code
+ * @since 2025-11-25
+ */
+public class PayloadCodec {
+
+    /**
+     * 编码头部前缀，后接版本号和 ':'
+     */
+    private static final char HEADER_MARK = '#';
+
+    /**
+     * 当前写入版本：DEFLATE
+     */
+    public static final int VERSION_DEFLATE = 1;
+
+    private static final String DEFLATE_HEADER = HEADER_MARK + "" + VERSION_DEFLATE + ":";
+
+    /**
+     * 是否在写入时压缩（读取始终支持全部版本）
+     */
+    private static volatile boolean enabled = true;
+
+    /**
+     * 小于该长度（字符数）的数据不压缩
+     */
+    private static volatile int minSize = 1024;
+
+    private PayloadCodec() {
+    }
+
+    /**
+     * 配置写入策略
+     *
+     * @param compressEnabled 是否压缩
+     * @param compressMinSize 压缩阈值（字符数）
+     */
+    public static void configure(boolean compressEnabled, int compressMinSize) {
+        enabled = compressEnabled;
+        minSize = compressMinSize;
+    }
+
+    /**
+     * 编码为存储格式
+     * 相同输入的输出是确定的，可直接用于等值查询
+     *
+     * @param json 原始JSON
+     * @return 存储格式
+     */
+    public static String encode(String json) {
+        if (!enabled || json == null || json.length() < minSize) {
+            return json;
+        }
+        byte[] raw = json.getBytes(StandardCharsets.UTF_8);
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        try {
+            deflater.setInput(raw);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, raw.length / 4));
+            byte[] buffer = new byte[8192];
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+            String encoded = DEFLATE_HEADER + Base64.getEncoder().encodeToString(out.toByteArray());
+            // 压缩收益不足时保持原样
+            return encoded.length() < json.length() ? encoded : json;
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * 解码存储格式
+     *
+     * @param stored 存储格式
+     * @return 原始JSON
+     */
+    public static String decode(String stored) {
+        if (stored == null || stored.isEmpty() || stored.charAt(0) != HEADER_MARK) {
+            return stored;
+        }
+        if (!stored.startsWith(DEFLATE_HEADER)) {
+            throw new IllegalStateException("不支持的数据编码版本: "
+                    + stored.substring(0, Math.min(4, stored.length())));
+        }
+        byte[] compressed = Base64.getDecoder().decode(stored.substring(DEFLATE_HEADER.length()));
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(compressed.length * 4);
+            byte[] buffer = new byte[8192];
+            while (!inflater.finished()) {
+                int n = inflater.inflate(buffer);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IllegalStateException("压缩数据不完整");
+                }
+                out.write(buffer, 0, n);
+            }
+            return out.toString(StandardCharsets.UTF_8);
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("压缩数据损坏", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    /**
+     * 获取存储格式的编码版本
+     *
+     * @param stored 存储格式
+     * @return 版本号（0 表示未编码）
+     */
+    public static int versionOf(String stored) {
+        if (stored == null || stored.length() < 3 || stored.charAt(0) != HEADER_MARK) {
+            return 0;
+        }
+        return Character.digit(stored.charAt(1), 10);
+    }
+}
@@ -1,16 +1,25 @@
 package com.blockchain.exam.integration;
 
 import com.blockchain.exam.blockchain.entity.BlockData;
+import com.blockchain.exam.blockchain.entity.ChainOutbox;
 import com.blockchain.exam.blockchain.entity.Transaction;
+import com.blockchain.exam.blockchain.mapper.ChainOutboxMapper;
 import com.blockchain.exam.blockchain.mapper.TransactionMapper;
 import com.blockchain.exam.blockchain.util.HashUtil;
+import com.blockchain.exam.p2p.service.P2PBlobService;
 import com.blockchain.exam.p2p.service.P2PTransactionService;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
 
 /**
  * 区块链集成服务
@@ -21,6 +30,14 @@ import org.springframework.transaction.annotation.Transactional;
  * - 用户权限认证上链
  * - 自动广播交易
  *
+ * 业务操作使用 enqueue* 方法：在业务事务内写入上链发件箱，
+ * 提交后由 ChainOutboxService 异步写入交易池、广播并回填交易ID；
+ * submit* 方法为同步上链，直接写入交易池并广播。
+ *
+ * 加密试卷内容默认以内容寻址方式上链（blockchain.blob.paper-payload=reference）：
+ * 交易只携带密文的 SHA-256、字节数和引用，密文由 P2PBlobService 分块复制，
+ * 区块大小、PoW计算量和链同步流量与试卷大小无关；inline 为旧方式，密文直接写入交易。
+ *
  * @author Claude Code
  * @since 2025-11-25
  */
@@ -34,12 +51,27 @@ public class BlockchainIntegrationService {
     @Autowired
     private P2PTransactionService p2pTransactionService;
 
+    @Autowired
+    private ChainOutboxMapper outboxMapper;
+
+    @Autowired
+    private ChainOutboxService outboxService;
+
+    @Autowired
+    private P2PBlobService blobService;
+
     @Autowired
     private ObjectMapper objectMapper;
 
     @Value("${p2p.node.id}")
     private String currentNodeId;
 
+    /**
+     * 加密试卷内容上链方式：reference（内容寻址）/ inline（写入交易）
+     */
+    @Value("${blockchain.blob.paper-payload:reference}")
+    private String paperPayloadMode;
+
     /**
      * 将审批记录上链
      *
@@ -141,12 +173,31 @@ public class BlockchainIntegrationService {
     @Transactional
     public Long submitEncryptedPaperToChain(Long paperId, String encryptedContent, String contentHash,
                                             Long creatorId, String creatorName, String title) {
+        return submitEncryptedPaperToChain(paperId, encryptedContent, contentHash, null,
+                creatorId, creatorName, title);
+    }
+
+    /**
+     * 将加密的试卷内容上链（含附件哈希）
+     *
+     * @param paperId          试卷ID
+     * @param encryptedContent 加密后的试卷内容
+     * @param contentHash      试卷内容哈希
+     * @param fileHash         附件明文SHA-256（上传时已算出，无附件时为null）
+     * @param creatorId        创建者ID
+     * @param creatorName      创建者姓名
+     * @param title            试卷标题
+     * @return 交易ID
+     */
+    @Transactional
+    public Long submitEncryptedPaperToChain(Long paperId, String encryptedContent, String contentHash,
+                                            String fileHash, Long creatorId, String creatorName, String title) {
         try {
             log.info("开始将加密试卷上链 - 试卷ID: {}, 创建者: {}", paperId, creatorName);
 
             // 创建区块数据（包含创建者信息）
-            BlockData blockData = BlockData.createPaperContent(paperId, encryptedContent, contentHash,
-                                                               creatorId, creatorName, title);
+            BlockData blockData = buildPaperContent(paperId, encryptedContent, contentHash,
+                                                    fileHash, creatorId, creatorName, title);
 
             // 创建交易
             Transaction transaction = new Transaction();
@@ -262,6 +313,99 @@ public class BlockchainIntegrationService {
         }
     }
 
+    /**
+     * 加密试卷上链（写入发件箱，随业务事务提交）
+     *
+     * @param paperId          试卷ID
+     * @param encryptedContent 加密后的试卷内容
+     * @param contentHash      试卷内容哈希
+     * @param fileHash         附件明文SHA-256（无附件时为null）
+     * @param creatorId        创建者ID
+     * @param creatorName      创建者姓名
+     * @param title            试卷标题
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void enqueueEncryptedPaper(Long paperId, String encryptedContent, String contentHash,
+                                      String fileHash, Long creatorId, String creatorName, String title) {
+        enqueue(ChainSubmittedEvent.BIZ_PAPER, paperId, buildPaperContent(
+                paperId, encryptedContent, contentHash, fileHash, creatorId, creatorName, title));
+    }
+
+    /**
+     * 审批记录上链（写入发件箱，随业务事务提交）
+     *
+     * @param recordId   审批记录ID
+     * @param paperId    试卷ID
+     * @param approverId 审批人ID
+     * @param action     操作类型（approve/reject）
+     * @param signature  数字签名
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void enqueueApproval(Long recordId, Long paperId, Long approverId, String action, String signature) {
+        enqueue(ChainSubmittedEvent.BIZ_APPROVAL, recordId,
+                BlockData.createApprovalRecord(paperId, approverId, action, signature));
+    }
+
+    /**
+     * 解密记录上链（写入发件箱，随业务事务提交）
+     *
+     * @param recordId    解密记录ID
+     * @param paperId     试卷ID
+     * @param userId      解密用户ID
+     * @param userName    解密用户名
+     * @param userRole    用户角色
+     * @param contentHash 试卷内容哈希
+     * @param signature   用户签名
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void enqueueDecryptAction(Long recordId, Long paperId, Long userId, String userName,
+                                     String userRole, String contentHash, String signature) {
+        enqueue(ChainSubmittedEvent.BIZ_DECRYPT, recordId, BlockData.createDecryptRecord(
+                paperId, userId, userName, userRole, contentHash, signature));
+    }
+
+    /**
+     * 构建加密试卷区块数据，内容寻址方式下先将密文保存为数据块
+     */
+    private BlockData buildPaperContent(Long paperId, String encryptedContent, String contentHash,
+                                        String fileHash, Long creatorId, String creatorName, String title) {
+        if ("inline".equalsIgnoreCase(paperPayloadMode) || encryptedContent == null) {
+            return BlockData.createPaperContent(paperId, encryptedContent, contentHash,
+                    fileHash, creatorId, creatorName, title);
+        }
+        String blobHash = blobService.store(encryptedContent);
+        long size = encryptedContent.getBytes(StandardCharsets.UTF_8).length;
+        return BlockData.createPaperContentRef(paperId, P2PBlobService.toRef(blobHash), blobHash, size,
+                contentHash, fileHash, creatorId, creatorName, title);
+    }
+
+    private void enqueue(String bizType, Long bizId, BlockData blockData) {
+        ChainOutbox outbox = new ChainOutbox();
+        outbox.setNodeId(currentNodeId);
+        outbox.setBizType(bizType);
+        outbox.setBizId(bizId);
+        outbox.setTransactionType(blockData.getType());
+        try {
+            outbox.setPayload(objectMapper.writeValueAsString(blockData));
+        } catch (Exception e) {
+            throw new RuntimeException("上链数据序列化失败: " + e.getMessage(), e);
+        }
+        outbox.setStatus(ChainOutboxService.STATUS_PENDING);
+        outbox.setAttempts(0);
+        outbox.setNextAttemptTime(LocalDateTime.now());
+        outboxMapper.insert(outbox);
+
+        log.info("上链记录已写入发件箱 - 业务: {}#{}, 类型: {}", bizType, bizId, blockData.getType());
+
+        // 事务提交后立即唤醒投递，回滚时发件箱记录随之撤销
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                outboxService.wakeUp();
+            }
+        });
+    }
+
     /**
      * 验证试卷内容是否被篡改
      *
@@ -298,14 +442,22 @@ public class BlockchainIntegrationService {
     public java.util.Map<String, Object> getPaperBlockchainStats(Long paperId) {
         try {
             // 统计该试卷相关的交易数量
+            // 交易数据入库时可能已压缩，按派生的 paper_id 列（有索引）分组计数
             com.baomidou.mybatisplus.core.conditions.query.QueryWrapper<Transaction> wrapper =
                     new com.baomidou.mybatisplus.core.conditions.query.QueryWrapper<>();
-            wrapper.like("transaction_data", "\"paperId\":" + paperId);
-
-            Long totalCount = transactionMapper.selectCount(wrapper);
-
-            wrapper.eq("status", "MINED");
-            Long minedCount = transactionMapper.selectCount(wrapper);
+            wrapper.select("status", "COUNT(*) AS cnt")
+                    .eq("paper_id", paperId)
+                    .groupBy("status");
+
+            long totalCount = 0;
+            long minedCount = 0;
+            for (java.util.Map<String, Object> row : transactionMapper.selectMaps(wrapper)) {
+                long count = ((Number) row.get("cnt")).longValue();
+                totalCount += count;
+                if ("MINED".equals(row.get("status"))) {
+                    minedCount += count;
+                }
+            }
 
             java.util.Map<String, Object> stats = new java.util.HashMap<>();
             stats.put("paperId", paperId);
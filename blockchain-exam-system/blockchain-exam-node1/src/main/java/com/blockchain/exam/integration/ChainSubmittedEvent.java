@@ -0,0 +1,62 @@
+package com.blockchain.exam.integration;
+
+import java.time.LocalDateTime;
+
+/**
+ * 上链完成事件
+ *
+ * 发件箱记录写入交易池时，在同一事务内同步发布，
+ * 业务模块据此回填 blockchainTxId / chainTime
+ *
+ * @author Claude Code
+ * @since 2025-11-25
+ */
+public class ChainSubmittedEvent {
+
+    public static final String BIZ_PAPER = "PAPER";
+    public static final String BIZ_APPROVAL = "APPROVAL";
+    public static final String BIZ_DECRYPT = "DECRYPT";
+
+    /**
+     * 业务类型（PAPER / APPROVAL / DECRYPT）
+     */
+    private final String bizType;
+
+    /**
+     * 业务记录ID
+     */
+    private final Long bizId;
+
+    /**
+     * 交易ID
+     */
+    private final Long txId;
+
+    /**
+     * 上链时间
+     */
+    private final LocalDateTime chainTime;
+
+    public ChainSubmittedEvent(String bizType, Long bizId, Long txId, LocalDateTime chainTime) {
+        this.bizType = bizType;
+        this.bizId = bizId;
+        this.txId = txId;
+        this.chainTime = chainTime;
+    }
+
+    public String getBizType() {
+        return bizType;
+    }
+
+    public Long getBizId() {
+        return bizId;
+    }
+
+    public Long getTxId() {
+        return txId;
+    }
+
+    public LocalDateTime getChainTime() {
+        return chainTime;
+    }
+}
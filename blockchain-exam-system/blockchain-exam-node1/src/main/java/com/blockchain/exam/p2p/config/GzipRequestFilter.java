@@ -0,0 +1,216 @@
+package com.blockchain.exam.p2p.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ReadListener;
+import javax.servlet.ServletException;
+import javax.servlet.ServletInputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import javax.servlet.http.HttpServletResponse;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * 解压gzip请求体
+ *
+ * 节点间广播交易等请求体较大时以 Content-Encoding: gzip 发送（见 RestTemplateConfig），
+ * 在进入控制器之前透明解压；解压后大小超过上限的请求直接拒绝。
+ *
+ * @author Claude Code
+ * @since 2025-11-25
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class GzipRequestFilter extends OncePerRequestFilter {
+
+    @Value("${p2p.compression.max-inflated-bytes:67108864}")
+    private long maxInflatedBytes;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String encoding = request.getHeader(HttpHeaders.CONTENT_ENCODING);
+        return encoding == null || !encoding.toLowerCase().contains("gzip");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        chain.doFilter(new GzipRequestWrapper(request, maxInflatedBytes), response);
+    }
+
+    /**
+     * 解压后的请求
+     */
+    private static final class GzipRequestWrapper extends HttpServletRequestWrapper {
+
+        private final ServletInputStream inputStream;
+
+        private GzipRequestWrapper(HttpServletRequest request, long limit) throws IOException {
+            super(request);
+            this.inputStream = new GzipServletInputStream(request.getInputStream(), limit);
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            return inputStream;
+        }
+
+        @Override
+        public BufferedReader getReader() {
+            String encoding = getCharacterEncoding();
+            Charset charset = encoding != null ? Charset.forName(encoding) : StandardCharsets.UTF_8;
+            return new BufferedReader(new InputStreamReader(inputStream, charset));
+        }
+
+        @Override
+        public int getContentLength() {
+            return -1;
+        }
+
+        @Override
+        public long getContentLengthLong() {
+            return -1;
+        }
+
+        @Override
+        public String getHeader(String name) {
+            if (HttpHeaders.CONTENT_ENCODING.equalsIgnoreCase(name)) {
+                return null;
+            }
+            return super.getHeader(name);
+        }
+
+        @Override
+        public Enumeration<String> getHeaders(String name) {
+            if (HttpHeaders.CONTENT_ENCODING.equalsIgnoreCase(name)) {
+                return Collections.emptyEnumeration();
+            }
+            return super.getHeaders(name);
+        }
+    }
+
+    /**
+     * 解压输入流
+     * 结束状态以读到解压流末尾为准（Inflater 流的 available() 不可靠）；
+     * 异步读取时监听器注册到原始输入流，原始流读完后先让调用方读尽已缓冲的解压数据，再通知读取完成
+     */
+    private static final class GzipServletInputStream extends ServletInputStream {
+
+        private final ServletInputStream raw;
+
+        private final long limit;
+
+        /**
+         * 首次读取时创建，GZIP头的读取不放在过滤器中进行
+         */
+        private InputStream gzip;
+
+        private long total;
+
+        private volatile boolean finished;
+
+        private GzipServletInputStream(ServletInputStream raw, long limit) {
+            this.raw = raw;
+            this.limit = limit;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (finished) {
+                return -1;
+            }
+            int b = gzip().read();
+            if (b < 0) {
+                finished = true;
+            } else {
+                count(1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int off, int len) throws IOException {
+            if (finished) {
+                return -1;
+            }
+            int n = gzip().read(buffer, off, len);
+            if (n < 0) {
+                finished = true;
+            } else {
+                count(n);
+            }
+            return n;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (gzip != null) {
+                gzip.close();
+            } else {
+                raw.close();
+            }
+        }
+
+        @Override
+        public boolean isFinished() {
+            return finished;
+        }
+
+        @Override
+        public boolean isReady() {
+            return finished || raw.isReady();
+        }
+
+        @Override
+        public void setReadListener(ReadListener readListener) {
+            raw.setReadListener(new ReadListener() {
+                @Override
+                public void onDataAvailable() throws IOException {
+                    readListener.onDataAvailable();
+                }
+
+                @Override
+                public void onAllDataRead() throws IOException {
+                    // 压缩数据已读完，但解压器中可能仍有未取出的数据
+                    if (!finished) {
+                        readListener.onDataAvailable();
+                    }
+                    readListener.onAllDataRead();
+                }
+
+                @Override
+                public void onError(Throwable t) {
+                    readListener.onError(t);
+                }
+            });
+        }
+
+        private InputStream gzip() throws IOException {
+            if (gzip == null) {
+                gzip = new GZIPInputStream(raw);
+            }
+            return gzip;
+        }
+
+        private void count(int n) throws IOException {
+            total += n;
+            if (total > limit) {
+                throw new IOException("解压后的请求体超过上限: " + limit + " 字节");
+            }
+        }
+    }
+}
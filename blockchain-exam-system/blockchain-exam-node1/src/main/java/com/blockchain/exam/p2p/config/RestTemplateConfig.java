@@ -1,14 +1,28 @@
 package com.blockchain.exam.p2p.config;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
 import org.springframework.http.client.SimpleClientHttpRequestFactory;
 import org.springframework.web.client.RestTemplate;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
 /**
  * RestTemplate配置类
  *
  * 配置HTTP客户端用于P2P节点间通信
+ * 节点间数据（区块链同步、交易广播）以JSON为主，压缩率高：
+ * - 请求声明 Accept-Encoding: gzip，响应由服务端压缩（server.compression），在此解压
+ * - 请求体超过阈值时以 gzip 发送，由 GzipRequestFilter 解压
  *
  * @author Claude Code
  * @since 2025-11-25
@@ -16,11 +30,95 @@ import org.springframework.web.client.RestTemplate;
 @Configuration
 public class RestTemplateConfig {
 
+    private static final String GZIP = "gzip";
+
+    /**
+     * 请求体压缩阈值（字节）
+     */
+    @Value("${p2p.compression.min-request-size:2048}")
+    private int minRequestSize;
+
     @Bean
     public RestTemplate restTemplate() {
         SimpleClientHttpRequestFactory factory = new SimpleClientHttpRequestFactory();
         factory.setConnectTimeout(5000); // 连接超时5秒
         factory.setReadTimeout(10000);    // 读取超时10秒
-        return new RestTemplate(factory);
+        RestTemplate restTemplate = new RestTemplate(factory);
+        restTemplate.getInterceptors().add(gzipInterceptor());
+        return restTemplate;
+    }
+
+    private ClientHttpRequestInterceptor gzipInterceptor() {
+        return (request, body, execution) -> {
+            HttpHeaders headers = request.getHeaders();
+            headers.set(HttpHeaders.ACCEPT_ENCODING, GZIP);
+            byte[] payload = body;
+            if (body.length >= minRequestSize && !headers.containsKey(HttpHeaders.CONTENT_ENCODING)) {
+                ByteArrayOutputStream out = new ByteArrayOutputStream(body.length / 4);
+                try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+                    gzip.write(body);
+                }
+                payload = out.toByteArray();
+                headers.set(HttpHeaders.CONTENT_ENCODING, GZIP);
+                headers.setContentLength(payload.length);
+            }
+            ClientHttpResponse response = execution.execute(request, payload);
+            String encoding = response.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING);
+            return encoding != null && encoding.toLowerCase().contains(GZIP)
+                    ? new GzipClientHttpResponse(response) : response;
+        };
+    }
+
+    /**
+     * 解压gzip响应
+     */
+    private static final class GzipClientHttpResponse implements ClientHttpResponse {
+
+        private final ClientHttpResponse delegate;
+
+        private final HttpHeaders headers;
+
+        private InputStream body;
+
+        private GzipClientHttpResponse(ClientHttpResponse delegate) {
+            this.delegate = delegate;
+            this.headers = new HttpHeaders();
+            this.headers.putAll(delegate.getHeaders());
+            this.headers.remove(HttpHeaders.CONTENT_ENCODING);
+            this.headers.remove(HttpHeaders.CONTENT_LENGTH);
+        }
+
+        @Override
+        public InputStream getBody() throws IOException {
+            if (body == null) {
+                body = new GZIPInputStream(delegate.getBody());
+            }
+            return body;
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return headers;
+        }
+
+        @Override
+        public HttpStatus getStatusCode() throws IOException {
+            return delegate.getStatusCode();
+        }
+
+        @Override
+        public int getRawStatusCode() throws IOException {
+            return delegate.getRawStatusCode();
+        }
+
+        @Override
+        public String getStatusText() throws IOException {
+            return delegate.getStatusText();
+        }
+
+        @Override
+        public void close() {
+            delegate.close();
+        }
     }
 }
@@ -1,11 +1,14 @@
 package com.blockchain.exam.p2p.controller;
 
 import com.blockchain.exam.p2p.entity.P2PNode;
+import com.blockchain.exam.p2p.service.P2PBlobService;
 import com.blockchain.exam.p2p.service.P2PNodeService;
 import com.blockchain.exam.p2p.service.P2PSyncService;
 import com.exam.approval.common.result.Result;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.HashMap;
@@ -31,6 +34,9 @@ public class P2PController {
     @Autowired
     private P2PSyncService syncService;
 
+    @Autowired
+    private P2PBlobService blobService;
+
     /**
      * 获取所有节点
      *
@@ -156,6 +162,48 @@ public class P2PController {
         }
     }
 
+    /**
+     * 获取数据块清单（总大小、分块大小、各分块哈希）
+     * 供其他节点分块拉取交易引用的数据块
+     *
+     * @param hash 数据块哈希
+     * @return 清单
+     */
+    @GetMapping("/blob/{hash}/manifest")
+    public Result<Map<String, Object>> getBlobManifest(@PathVariable String hash) {
+        try {
+            Map<String, Object> manifest = blobService.getManifest(hash);
+            if (manifest == null) {
+                return Result.notFound("数据块不存在");
+            }
+            return Result.success(manifest);
+        } catch (Exception e) {
+            log.error("获取数据块清单失败 - 哈希: {}", hash, e);
+            return Result.error("获取数据块清单失败");
+        }
+    }
+
+    /**
+     * 获取数据块的一个分块
+     *
+     * @param hash  数据块哈希
+     * @param index 分块序号（从0开始）
+     * @return 分块内容
+     */
+    @GetMapping("/blob/{hash}/chunk/{index}")
+    public ResponseEntity<byte[]> getBlobChunk(@PathVariable String hash, @PathVariable int index) {
+        try {
+            byte[] chunk = blobService.readChunk(hash, index);
+            if (chunk == null) {
+                return ResponseEntity.notFound().build();
+            }
+            return ResponseEntity.ok().contentType(MediaType.APPLICATION_OCTET_STREAM).body(chunk);
+        } catch (Exception e) {
+            log.error("读取数据块分块失败 - 哈希: {}, 分块: {}", hash, index, e);
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
     /**
      * 心跳检测端点
      * 用于其他节点检测本节点是否在线
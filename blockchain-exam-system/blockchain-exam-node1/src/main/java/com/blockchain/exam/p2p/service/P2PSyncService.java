@@ -1,8 +1,10 @@
 package com.blockchain.exam.p2p.service;
 
 import com.blockchain.exam.blockchain.entity.Block;
+import com.blockchain.exam.blockchain.entity.ChainEvent;
 import com.blockchain.exam.blockchain.mapper.BlockMapper;
 import com.blockchain.exam.blockchain.service.BlockchainService;
+import com.blockchain.exam.blockchain.service.ChainEventService;
 import com.blockchain.exam.blockchain.service.ConsensusService;
 import com.blockchain.exam.p2p.entity.P2PNode;
 import com.blockchain.exam.p2p.entity.P2PSyncLog;
@@ -48,6 +50,9 @@ public class P2PSyncService {
     @Autowired
     private BlockMapper blockMapper;
 
+    @Autowired
+    private ChainEventService chainEventService;
+
     @Autowired
     private P2PSyncLogMapper syncLogMapper;
 
@@ -57,6 +62,9 @@ public class P2PSyncService {
     @Autowired
     private ObjectMapper objectMapper;
 
+    @Autowired
+    private P2PBlobService blobService;
+
     /**
      * 当前节点ID
      */
@@ -161,6 +169,10 @@ public class P2PSyncService {
             if (neighborHeight > localHeight) {
                 if (isValidChain(neighborChain)) {
                     replaceChain(neighborChain);
+                    // 新链中引用的数据块在后台拉取
+                    for (Block block : neighborChain) {
+                        blobService.replicateRefs(block.getData(), targetNodeId);
+                    }
                     log.info("区块链已更新 - 从 {} 同步，新高度: {}", targetNodeId, neighborHeight);
                     syncLog.markAsSuccess(neighborHeight);
                 } else {
@@ -188,34 +200,8 @@ public class P2PSyncService {
      * @return 是否有效
      */
     private boolean isValidChain(List<Block> chain) {
-        if (chain == null || chain.isEmpty()) {
-            return false;
-        }
-
-        // 验证创世区块
-        Block genesisBlock = chain.get(0);
-        if (!genesisBlock.isGenesisBlock()) {
-            log.warn("第一个区块不是创世区块");
-            return false;
-        }
-
-        if (!consensusService.validateProofOfWork(genesisBlock)) {
-            log.warn("创世区块PoW验证失败");
-            return false;
-        }
-
-        // 验证后续区块
-        for (int i = 1; i < chain.size(); i++) {
-            Block currentBlock = chain.get(i);
-            Block previousBlock = chain.get(i - 1);
-
-            if (!consensusService.validateBlock(currentBlock, previousBlock)) {
-                log.warn("区块验证失败 - 区块高度: {}", currentBlock.getBlockIndex());
-                return false;
-            }
-        }
-
-        return true;
+        // 并行校验PoW，顺序校验哈希链
+        return consensusService.validateChain(chain);
     }
 
     /**
@@ -237,6 +223,15 @@ public class P2PSyncService {
             blockMapper.insert(block);
         }
 
+        if (!newChain.isEmpty()) {
+            Block newTip = newChain.get(newChain.size() - 1);
+            java.util.Map<String, Object> data = new java.util.HashMap<>();
+            data.put("chainHeight", newTip.getBlockIndex());
+            data.put("latestBlockHash", newTip.getCurrentHash());
+            data.put("nodeId", currentNodeId);
+            chainEventService.publish(ChainEvent.CHAIN_REPLACED, data);
+        }
+
         log.info("区块链替换完成 - 新高度: {}", newChain.size() - 1);
     }
 
@@ -5,6 +5,7 @@ import com.exam.approval.entity.User;
 import com.exam.approval.security.util.JwtUtil;
 import com.exam.approval.security.util.PasswordUtil;
 import com.exam.approval.security.util.RSAUtil;
+import com.exam.approval.service.LoginExecutorService;
 import com.exam.approval.service.NonceService;
 import com.exam.approval.service.UserService;
 import io.swagger.annotations.Api;
@@ -12,10 +13,16 @@ import io.swagger.annotations.ApiOperation;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * 认证Controller
@@ -33,6 +40,7 @@ public class AuthController {
     private final UserService userService;
     private final JwtUtil jwtUtil;
     private final NonceService nonceService;
+    private final LoginExecutorService loginExecutorService;
 
     /**
      * 系统RSA公钥（用于前端加密密码）
@@ -46,9 +54,14 @@ public class AuthController {
     @Value("${crypto.system-rsa.private-key}")
     private String systemPrivateKey;
 
+    /**
+     * 用户登录
+     * 参数校验和防重放在请求线程完成；RSA解密、BCrypt校验在独立的登录线程池执行，
+     * 不占用Tomcat工作线程，线程池排满时直接返回429
+     */
     @ApiOperation("用户登录")
     @PostMapping("/login")
-    public Result<Map<String, Object>> login(@RequestBody Map<String, Object> loginRequest) {
+    public CompletableFuture<ResponseEntity<Result<Map<String, Object>>>> login(@RequestBody Map<String, Object> loginRequest) {
         String username = (String) loginRequest.get("username");
         String encryptedPassword = (String) loginRequest.get("encryptedPassword");
         Object timestampObj = loginRequest.get("timestamp");
@@ -57,7 +70,7 @@ public class AuthController {
         // 参数校验
         if (username == null || encryptedPassword == null || timestampObj == null || nonce == null) {
             log.warn("登录请求参数不完整");
-            return Result.error("请求参数不完整");
+            return CompletableFuture.completedFuture(ResponseEntity.ok(Result.error("请求参数不完整")));
         }
 
         // 转换时间戳
@@ -70,15 +83,66 @@ public class AuthController {
             }
         } catch (Exception e) {
             log.warn("时间戳格式错误: {}", timestampObj);
-            return Result.error("时间戳格式错误");
+            return CompletableFuture.completedFuture(ResponseEntity.ok(Result.error("时间戳格式错误")));
         }
 
         // 验证时间戳和nonce（防重放攻击）
         if (!nonceService.validate(timestamp, nonce)) {
             log.warn("重放攻击检测 - username: {}, nonce: {}, timestamp: {}", username, nonce, timestamp);
-            return Result.error("请求已过期或被拒绝，请重新登录");
+            return CompletableFuture.completedFuture(ResponseEntity.ok(Result.error("请求已过期或被拒绝，请重新登录")));
+        }
+
+        try {
+            return loginExecutorService.submit(() -> ResponseEntity.ok(authenticate(username, encryptedPassword)));
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, "1")
+                    .body(Result.error(HttpStatus.TOO_MANY_REQUESTS.value(), "登录人数较多，请稍后重试")));
+        }
+    }
+
+    /**
+     * 登录线程池运行指标
+     */
+    @ApiOperation("登录线程池指标")
+    @GetMapping("/login-pool/stats")
+    @PreAuthorize("hasAnyRole('DEPT_ADMIN', 'COLLEGE_ADMIN')")
+    public Result<Map<String, Object>> getLoginPoolStats() {
+        return Result.success(loginExecutorService.getStats());
+    }
+
+    /**
+     * 用户缓存运行指标（命中率、淘汰数）
+     */
+    @ApiOperation("用户缓存指标")
+    @GetMapping("/user-cache/stats")
+    @PreAuthorize("hasAnyRole('DEPT_ADMIN', 'COLLEGE_ADMIN')")
+    public Result<Map<String, Object>> getUserCacheStats() {
+        return Result.success(userService.getCacheStats());
+    }
+
+    /**
+     * 失效用户缓存并广播到所有节点
+     * 用于绕过本服务直接改库后（如批量生成密钥）立即生效
+     *
+     * @param userId 用户ID（为空时失效全部）
+     */
+    @ApiOperation("失效用户缓存")
+    @PostMapping("/user-cache/evict")
+    @PreAuthorize("hasRole('COLLEGE_ADMIN')")
+    public Result<?> evictUserCache(@RequestParam(required = false) Long userId) {
+        if (userId != null) {
+            userService.evictUser(userId);
+        } else {
+            userService.evictAll();
         }
+        return Result.success("用户缓存已失效");
+    }
 
+    /**
+     * 解密密码、校验用户并签发Token（在登录线程池中执行）
+     */
+    private Result<Map<String, Object>> authenticate(String username, String encryptedPassword) {
         // 解密密码（使用PKCS1 padding，兼容JSEncrypt）
         String password;
         try {
@@ -5,6 +5,7 @@ import com.blockchain.exam.blockchain.entity.Transaction;
 import com.blockchain.exam.blockchain.mapper.TransactionMapper;
 import com.blockchain.exam.blockchain.service.BlockchainService;
 import com.exam.approval.common.result.Result;
+import com.exam.approval.dto.SignatureVerifyRequest;
 import com.exam.approval.entity.ExamPaper;
 import com.exam.approval.entity.PaperDecryptRecord;
 import com.exam.approval.entity.User;
@@ -16,6 +17,7 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.*;
@@ -185,7 +187,7 @@ public class BlockchainLedgerController {
                             logEntry.put("operatorId", creatorId);
 
                             if (creatorId != null) {
-                                User creator = userService.getById(creatorId);
+                                User creator = userService.getUserById(creatorId);
                                 if (creator != null) {
                                     logEntry.put("operatorName", creator.getRealName());
                                     logEntry.put("operatorRole", creator.getRole());
@@ -212,7 +214,7 @@ public class BlockchainLedgerController {
                             String approverRole = dataSubNode.has("approverRole") ? dataSubNode.get("approverRole").asText() : null;
 
                             if (approverId != null) {
-                                User approver = userService.getById(approverId);
+                                User approver = userService.getUserById(approverId);
                                 if (approver != null) {
                                     logEntry.put("operatorName", approver.getRealName());
                                     // 如果链上没有角色信息，从用户表获取
@@ -387,7 +389,7 @@ public class BlockchainLedgerController {
             }
 
             // 获取用户信息
-            User user = userService.getById(record.getUserId());
+            User user = userService.getUserById(record.getUserId());
             if (user != null) {
                 Map<String, Object> userInfo = new HashMap<>();
                 userInfo.put("id", user.getId());
@@ -463,7 +465,7 @@ public class BlockchainLedgerController {
                 return Result.success(result);
             }
 
-            User user = userService.getById(record.getUserId());
+            User user = userService.getUserById(record.getUserId());
             if (user == null || user.getRsaPublicKey() == null) {
                 result.put("valid", false);
                 result.put("message", "无法获取用户公钥");
@@ -483,6 +485,27 @@ public class BlockchainLedgerController {
         }
     }
 
+    /**
+     * 批量验证解密记录签名
+     *
+     * 请求参数（二选一）：
+     * - paperId：验证该试卷的全部解密记录
+     * - startId + endId：验证该ID范围内的解密记录
+     * 可选 onlyFailures=true 只返回未通过的明细
+     * 仅系/院管理员可调用，记录数和ID跨度受 security.signature-verify 限制
+     *
+     * @param request 请求参数
+     * @return 汇总统计及逐条结果
+     */
+    @PreAuthorize("hasAnyRole('DEPT_ADMIN', 'COLLEGE_ADMIN')")
+    @PostMapping("/verify-signatures")
+    public Result<Map<String, Object>> verifySignatures(@RequestBody SignatureVerifyRequest request) {
+        // 参数错误、线程池繁忙（429）等业务异常交由全局异常处理器返回
+        List<PaperDecryptRecord> records = decryptRecordService.findForBatchVerify(
+                request.getPaperId(), request.getStartId(), request.getEndId());
+        return Result.success(cryptoService.verifyDecryptSignatures(records, request.isOnlyFailures()));
+    }
+
     /**
      * 获取试卷完整生命周期
      *
@@ -514,7 +537,7 @@ public class BlockchainLedgerController {
             lifecycle.put("paper", paperInfo);
 
             // 2. 获取创建者信息
-            User creator = userService.getById(paper.getCreatorId());
+            User creator = userService.getUserById(paper.getCreatorId());
             if (creator != null) {
                 Map<String, Object> creatorInfo = new HashMap<>();
                 creatorInfo.put("id", creator.getId());
@@ -527,11 +550,10 @@ public class BlockchainLedgerController {
             // 3. 查询相关的区块链交易（审批记录、试卷哈希等）
             List<Map<String, Object>> blockchainEvents = new ArrayList<>();
 
+            // 交易数据入库时可能已压缩，按派生的 paper_id 列（有索引）查询
             List<Transaction> relatedTx = transactionMapper.selectList(
                     new LambdaQueryWrapper<Transaction>()
-                            .like(Transaction::getTransactionData, "\"paperId\":" + paperId)
-                            .or()
-                            .like(Transaction::getTransactionData, "\"paperId\": " + paperId)
+                            .eq(Transaction::getPaperId, paperId)
                             .orderByAsc(Transaction::getCreateTime)
             );
 
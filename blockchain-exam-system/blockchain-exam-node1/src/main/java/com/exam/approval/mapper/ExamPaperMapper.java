@@ -3,6 +3,11 @@ package com.exam.approval.mapper;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.exam.approval.entity.ExamPaper;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+
+import java.util.List;
+import java.util.Map;
 
 /**
  * 试卷Mapper接口
@@ -12,4 +17,15 @@ import org.apache.ibatis.annotations.Mapper;
  */
 @Mapper
 public interface ExamPaperMapper extends BaseMapper<ExamPaper> {
+
+    /**
+     * 按状态分组统计试卷数量（一次扫描得到所有状态的数量）
+     *
+     * @param creatorId 创建人ID（为空时统计全部）
+     * @return 每行包含 status 和 cnt
+     */
+    @Select("<script>SELECT status, COUNT(*) AS cnt FROM exam_paper WHERE deleted = 0"
+            + "<if test='creatorId != null'> AND creator_id = #{creatorId}</if>"
+            + " GROUP BY status</script>")
+    List<Map<String, Object>> countGroupByStatus(@Param("creatorId") Long creatorId);
 }
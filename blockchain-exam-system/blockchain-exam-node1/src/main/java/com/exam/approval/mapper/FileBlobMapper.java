@@ -0,0 +1,78 @@
+package com.exam.approval.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.exam.approval.entity.FileBlob;
+import org.apache.ibatis.annotations.Delete;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 文件内容寻址存储Mapper接口
+ *
+ * @author 网络信息安全大作业
+ * @date 2025-12-01
+ */
+@Mapper
+public interface FileBlobMapper extends BaseMapper<FileBlob> {
+
+    /**
+     * 根据文件路径查询
+     *
+     * @param filePath 文件路径
+     * @return 文件记录
+     */
+    @Select("SELECT * FROM file_blob WHERE file_path = #{filePath}")
+    FileBlob findByFilePath(@Param("filePath") String filePath);
+
+    /**
+     * 增加引用计数
+     *
+     * @param filePath 文件路径
+     * @return 影响行数
+     */
+    @Update("UPDATE file_blob SET ref_count = ref_count + 1, update_time = NOW() WHERE file_path = #{filePath}")
+    int retain(@Param("filePath") String filePath);
+
+    /**
+     * 减少引用计数（不会减为负数）
+     *
+     * @param filePath 文件路径
+     * @return 影响行数
+     */
+    @Update("UPDATE file_blob SET ref_count = ref_count - 1, update_time = NOW() WHERE file_path = #{filePath} AND ref_count > 0")
+    int release(@Param("filePath") String filePath);
+
+    /**
+     * 刷新更新时间（重复上传命中时调用，重新开始回收保留期）
+     *
+     * @param id 记录ID
+     * @return 影响行数
+     */
+    @Update("UPDATE file_blob SET update_time = NOW() WHERE id = #{id}")
+    int touch(@Param("id") Long id);
+
+    /**
+     * 查询无引用且超过保留期的文件
+     *
+     * @param before 更新时间早于该时间
+     * @param limit  最多返回条数
+     * @return 文件记录列表
+     */
+    @Select("SELECT * FROM file_blob WHERE ref_count = 0 AND update_time < #{before} ORDER BY id ASC LIMIT #{limit}")
+    List<FileBlob> findOrphans(@Param("before") LocalDateTime before, @Param("limit") int limit);
+
+    /**
+     * 删除无引用的文件记录（删除前再次确认引用计数和保留期，避免与新引用、重复上传竞争）
+     *
+     * @param id     记录ID
+     * @param before 更新时间早于该时间
+     * @return 影响行数
+     */
+    @Delete("DELETE FROM file_blob WHERE id = #{id} AND ref_count = 0 AND update_time < #{before}")
+    int deleteIfUnreferenced(@Param("id") Long id, @Param("before") LocalDateTime before);
+}
@@ -43,6 +43,17 @@ public interface PaperDecryptRecordMapper extends BaseMapper<PaperDecryptRecord>
     @Select("SELECT COUNT(*) FROM paper_decrypt_record")
     Long countAll();
 
+    /**
+     * 按记录ID范围查询解密记录（按ID升序，用于批量验签）
+     *
+     * @param startId 起始ID（包含）
+     * @param endId   结束ID（包含）
+     * @param limit   最多返回条数
+     * @return 解密记录列表
+     */
+    @Select("SELECT * FROM paper_decrypt_record WHERE id >= #{startId} AND id <= #{endId} ORDER BY id ASC LIMIT #{limit}")
+    List<PaperDecryptRecord> findByIdRange(@Param("startId") Long startId, @Param("endId") Long endId, @Param("limit") int limit);
+
     /**
      * 查询所有解密记录（分页，按时间倒序）
      *
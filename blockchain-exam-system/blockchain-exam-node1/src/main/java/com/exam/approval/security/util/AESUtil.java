@@ -11,6 +11,7 @@ import javax.crypto.spec.SecretKeySpec;
 import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.security.SecureRandom;
+import java.util.Arrays;
 
 /**
  * AES-256-GCM 加密工具类
@@ -22,6 +23,10 @@ import java.security.SecureRandom;
  * - 自动生成随机IV
  * - 带认证标签（防篡改）
  *
+ * 同一密钥需要反复加解密时（如数据库字段加密），请通过 {@link #forKey(String)}
+ * 创建一次 {@link KeyContext} 并复用，避免每次调用都解码密钥；
+ * Cipher 按线程复用，SecureRandom 全局共享。
+ *
  * @author 网络信息安全大作业
  * @date 2025-11-05
  */
@@ -34,6 +39,19 @@ public class AESUtil {
     private static final int GCM_IV_LENGTH = 12; // GCM标准IV长度
     private static final int GCM_TAG_LENGTH = 128; // 认证标签长度（位）
 
+    private static final SecureRandom SECURE_RANDOM = new SecureRandom();
+
+    /**
+     * 线程内复用的GCM Cipher（每次使用前都会以新的密钥和IV重新init）
+     */
+    private static final ThreadLocal<Cipher> GCM_CIPHER = ThreadLocal.withInitial(() -> {
+        try {
+            return Cipher.getInstance(TRANSFORMATION);
+        } catch (Exception e) {
+            throw new IllegalStateException("当前JVM不支持 " + TRANSFORMATION, e);
+        }
+    });
+
     /**
      * 生成AES密钥
      *
@@ -42,7 +60,7 @@ public class AESUtil {
     public static String generateKey() {
         try {
             KeyGenerator keyGen = KeyGenerator.getInstance(ALGORITHM);
-            keyGen.init(KEY_SIZE, new SecureRandom());
+            keyGen.init(KEY_SIZE, SECURE_RANDOM);
             SecretKey secretKey = keyGen.generateKey();
             return Base64.encode(secretKey.getEncoded());
         } catch (Exception e) {
@@ -62,34 +80,7 @@ public class AESUtil {
         if (plainText == null || plainText.isEmpty()) {
             return plainText;
         }
-
-        try {
-            // 解码密钥
-            byte[] keyBytes = Base64.decode(key);
-            SecretKeySpec secretKey = new SecretKeySpec(keyBytes, ALGORITHM);
-
-            // 生成随机IV
-            byte[] iv = new byte[GCM_IV_LENGTH];
-            new SecureRandom().nextBytes(iv);
-
-            // 初始化Cipher
-            Cipher cipher = Cipher.getInstance(TRANSFORMATION);
-            GCMParameterSpec parameterSpec = new GCMParameterSpec(GCM_TAG_LENGTH, iv);
-            cipher.init(Cipher.ENCRYPT_MODE, secretKey, parameterSpec);
-
-            // 加密
-            byte[] encryptedBytes = cipher.doFinal(plainText.getBytes(StandardCharsets.UTF_8));
-
-            // 将IV和密文组合：IV(12字节) + 密文
-            ByteBuffer byteBuffer = ByteBuffer.allocate(iv.length + encryptedBytes.length);
-            byteBuffer.put(iv);
-            byteBuffer.put(encryptedBytes);
-
-            return Base64.encode(byteBuffer.array());
-        } catch (Exception e) {
-            log.error("AES加密失败", e);
-            throw new RuntimeException("AES加密失败", e);
-        }
+        return forKey(key).encrypt(plainText);
     }
 
     /**
@@ -103,34 +94,7 @@ public class AESUtil {
         if (cipherText == null || cipherText.isEmpty()) {
             return cipherText;
         }
-
-        try {
-            // 解码密钥
-            byte[] keyBytes = Base64.decode(key);
-            SecretKeySpec secretKey = new SecretKeySpec(keyBytes, ALGORITHM);
-
-            // 解码密文
-            byte[] decodedData = Base64.decode(cipherText);
-
-            // 提取IV和密文
-            ByteBuffer byteBuffer = ByteBuffer.wrap(decodedData);
-            byte[] iv = new byte[GCM_IV_LENGTH];
-            byteBuffer.get(iv);
-            byte[] encryptedBytes = new byte[byteBuffer.remaining()];
-            byteBuffer.get(encryptedBytes);
-
-            // 初始化Cipher
-            Cipher cipher = Cipher.getInstance(TRANSFORMATION);
-            GCMParameterSpec parameterSpec = new GCMParameterSpec(GCM_TAG_LENGTH, iv);
-            cipher.init(Cipher.DECRYPT_MODE, secretKey, parameterSpec);
-
-            // 解密
-            byte[] decryptedBytes = cipher.doFinal(encryptedBytes);
-            return new String(decryptedBytes, StandardCharsets.UTF_8);
-        } catch (Exception e) {
-            log.debug("AES解密失败", e);
-            throw new RuntimeException("AES解密失败", e);
-        }
+        return forKey(key).decrypt(cipherText);
     }
 
     /**
@@ -141,28 +105,7 @@ public class AESUtil {
      * @return 加密后的数据（包含IV）
      */
     public static byte[] encryptBytes(byte[] data, String key) {
-        try {
-            byte[] keyBytes = Base64.decode(key);
-            SecretKeySpec secretKey = new SecretKeySpec(keyBytes, ALGORITHM);
-
-            byte[] iv = new byte[GCM_IV_LENGTH];
-            new SecureRandom().nextBytes(iv);
-
-            Cipher cipher = Cipher.getInstance(TRANSFORMATION);
-            GCMParameterSpec parameterSpec = new GCMParameterSpec(GCM_TAG_LENGTH, iv);
-            cipher.init(Cipher.ENCRYPT_MODE, secretKey, parameterSpec);
-
-            byte[] encryptedBytes = cipher.doFinal(data);
-
-            ByteBuffer byteBuffer = ByteBuffer.allocate(iv.length + encryptedBytes.length);
-            byteBuffer.put(iv);
-            byteBuffer.put(encryptedBytes);
-
-            return byteBuffer.array();
-        } catch (Exception e) {
-            log.error("AES字节加密失败", e);
-            throw new RuntimeException("AES字节加密失败", e);
-        }
+        return forKey(key).encrypt(data);
     }
 
     /**
@@ -215,24 +158,104 @@ public class AESUtil {
      * @return 原始数据
      */
     public static byte[] decryptBytes(byte[] encryptedData, String key) {
-        try {
-            byte[] keyBytes = Base64.decode(key);
-            SecretKeySpec secretKey = new SecretKeySpec(keyBytes, ALGORITHM);
+        return forKey(key).decrypt(encryptedData);
+    }
 
-            ByteBuffer byteBuffer = ByteBuffer.wrap(encryptedData);
-            byte[] iv = new byte[GCM_IV_LENGTH];
-            byteBuffer.get(iv);
-            byte[] cipherBytes = new byte[byteBuffer.remaining()];
-            byteBuffer.get(cipherBytes);
+    /**
+     * 创建密钥上下文
+     *
+     * @param key Base64编码的密钥
+     * @return 可复用的密钥上下文
+     */
+    public static KeyContext forKey(String key) {
+        return forKey(Base64.decode(key));
+    }
+
+    /**
+     * 创建密钥上下文
+     *
+     * @param keyBytes 原始密钥（32字节）
+     * @return 可复用的密钥上下文
+     */
+    public static KeyContext forKey(byte[] keyBytes) {
+        return new KeyContext(new SecretKeySpec(keyBytes, ALGORITHM));
+    }
 
-            Cipher cipher = Cipher.getInstance(TRANSFORMATION);
-            GCMParameterSpec parameterSpec = new GCMParameterSpec(GCM_TAG_LENGTH, iv);
-            cipher.init(Cipher.DECRYPT_MODE, secretKey, parameterSpec);
+    /**
+     * 绑定单个密钥的AES-GCM加解密上下文（线程安全）
+     *
+     * 密文格式与 {@link AESUtil#encrypt(String, String)} 相同：IV(12字节) + 密文 + Tag
+     */
+    public static final class KeyContext {
 
-            return cipher.doFinal(cipherBytes);
-        } catch (Exception e) {
-            log.error("AES字节解密失败", e);
-            throw new RuntimeException("AES字节解密失败", e);
+        private final SecretKey secretKey;
+
+        private KeyContext(SecretKey secretKey) {
+            this.secretKey = secretKey;
+        }
+
+        /**
+         * 加密字符串
+         *
+         * @param plainText 明文
+         * @return Base64编码的密文（包含IV和认证标签）
+         */
+        public String encrypt(String plainText) {
+            return Base64.encode(encrypt(plainText.getBytes(StandardCharsets.UTF_8)));
+        }
+
+        /**
+         * 解密字符串
+         *
+         * @param cipherText Base64编码的密文（包含IV）
+         * @return 明文
+         */
+        public String decrypt(String cipherText) {
+            return new String(decrypt(Base64.decode(cipherText)), StandardCharsets.UTF_8);
+        }
+
+        /**
+         * 加密字节数组
+         *
+         * @param data 原始数据
+         * @return IV + 密文 + 认证标签
+         */
+        public byte[] encrypt(byte[] data) {
+            try {
+                byte[] iv = new byte[GCM_IV_LENGTH];
+                SECURE_RANDOM.nextBytes(iv);
+
+                Cipher cipher = GCM_CIPHER.get();
+                cipher.init(Cipher.ENCRYPT_MODE, secretKey, new GCMParameterSpec(GCM_TAG_LENGTH, iv));
+
+                // 直接写入 IV 之后的位置，省去一次数组拷贝
+                byte[] output = new byte[GCM_IV_LENGTH + cipher.getOutputSize(data.length)];
+                System.arraycopy(iv, 0, output, 0, GCM_IV_LENGTH);
+                int written = cipher.doFinal(data, 0, data.length, output, GCM_IV_LENGTH);
+                return written == output.length - GCM_IV_LENGTH
+                        ? output : Arrays.copyOf(output, GCM_IV_LENGTH + written);
+            } catch (Exception e) {
+                log.error("AES加密失败", e);
+                throw new RuntimeException("AES加密失败", e);
+            }
+        }
+
+        /**
+         * 解密字节数组
+         *
+         * @param encryptedData IV + 密文 + 认证标签
+         * @return 原始数据
+         */
+        public byte[] decrypt(byte[] encryptedData) {
+            try {
+                Cipher cipher = GCM_CIPHER.get();
+                cipher.init(Cipher.DECRYPT_MODE, secretKey,
+                        new GCMParameterSpec(GCM_TAG_LENGTH, encryptedData, 0, GCM_IV_LENGTH));
+                return cipher.doFinal(encryptedData, GCM_IV_LENGTH, encryptedData.length - GCM_IV_LENGTH);
+            } catch (Exception e) {
+                log.debug("AES解密失败", e);
+                throw new RuntimeException("AES解密失败", e);
+            }
         }
     }
 
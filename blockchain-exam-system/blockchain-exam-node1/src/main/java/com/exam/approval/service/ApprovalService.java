@@ -1,8 +1,12 @@
 package com.exam.approval.service;
 
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.blockchain.exam.integration.BlockchainIntegrationService;
 import com.exam.approval.common.exception.BusinessException;
+import com.exam.approval.dto.CursorPage;
+import com.exam.approval.dto.ExamPaperSummary;
+import com.exam.approval.dto.PaperQuery;
 import com.exam.approval.entity.ApprovalRecord;
 import com.exam.approval.entity.ApprovalWorkflow;
 import com.exam.approval.entity.ExamPaper;
@@ -48,7 +52,7 @@ public class ApprovalService {
      * @param userDepartment 用户部门
      * @return 试卷列表
      */
-    public List<ExamPaper> getPendingPapers(String userRole, String userDepartment) {
+    public List<ExamPaperSummary> getPendingPapers(String userRole, String userDepartment) {
         String status;
         if ("dept_admin".equals(userRole)) {
             // 系管理员：查看待系审批的试卷（只能看本部门）
@@ -63,6 +67,45 @@ public class ApprovalService {
         }
     }
 
+    /**
+     * 分页获取待审批试卷
+     *
+     * @param query          查询条件（状态和部门由角色决定，其余过滤条件可选）
+     * @param userRole       用户角色
+     * @param userDepartment 用户部门
+     * @return 试卷摘要分页
+     */
+    public IPage<ExamPaperSummary> pagePendingPapers(PaperQuery query, String userRole, String userDepartment) {
+        return paperService.pagePapers(pendingQuery(query, userRole, userDepartment));
+    }
+
+    /**
+     * 游标获取待审批试卷
+     *
+     * @param query          查询条件（状态和部门由角色决定，其余过滤条件可选）
+     * @param userRole       用户角色
+     * @param userDepartment 用户部门
+     * @return 游标分页结果
+     */
+    public CursorPage<ExamPaperSummary> scrollPendingPapers(PaperQuery query, String userRole, String userDepartment) {
+        return paperService.scrollPapers(pendingQuery(query, userRole, userDepartment));
+    }
+
+    /**
+     * 按角色限定待审批队列：系管理员看本部门待系审批，院管理员看全部系已审批
+     */
+    private PaperQuery pendingQuery(PaperQuery query, String userRole, String userDepartment) {
+        if ("dept_admin".equals(userRole)) {
+            query.setStatus("pending");
+            query.setDepartment(userDepartment);
+        } else if ("college_admin".equals(userRole)) {
+            query.setStatus("dept_approved");
+        } else {
+            throw new BusinessException("无审批权限");
+        }
+        return query;
+    }
+
     /**
      * 审批通过
      *
@@ -124,14 +167,9 @@ public class ApprovalService {
         record.setSignature(signature);
         recordMapper.insert(record);
 
-        // 5.1 将审批记录上链（区块链存证）
+        // 5.1 审批记录上链（区块链存证）随审批事务写入发件箱，提交后异步上链
         if (blockchainService != null) {
-            try {
-                Long txId = blockchainService.submitApprovalToChain(paperId, approverId, "approve", signature);
-                log.info("审批记录已上链 - 交易ID: {}, 试卷ID: {}", txId, paperId);
-            } catch (Exception e) {
-                log.warn("审批记录上链失败（不影响审批流程）: {}", e.getMessage());
-            }
+            blockchainService.enqueueApproval(record.getId(), paperId, approverId, "approve", signature);
         }
 
         // 6. 更新工作流和试卷状态
@@ -211,14 +249,9 @@ public class ApprovalService {
         record.setSignature(signature);
         recordMapper.insert(record);
 
-        // 5.1 将审批记录上链（区块链存证）
+        // 5.1 审批记录上链（区块链存证）随审批事务写入发件箱，提交后异步上链
         if (blockchainService != null) {
-            try {
-                Long txId = blockchainService.submitApprovalToChain(paperId, approverId, "reject", signature);
-                log.info("驳回记录已上链 - 交易ID: {}, 试卷ID: {}", txId, paperId);
-            } catch (Exception e) {
-                log.warn("驳回记录上链失败（不影响审批流程）: {}", e.getMessage());
-            }
+            blockchainService.enqueueApproval(record.getId(), paperId, approverId, "reject", signature);
         }
 
         // 6. 更新工作流和试卷状态
@@ -280,17 +313,12 @@ public class ApprovalService {
 
     /**
      * 获取用户公钥
-     * 从数据库查询用户的RSA公钥
+     * 通过用户公钥缓存查询，未命中时才查询数据库
      */
     private String getPublicKeyForUser(Long userId) {
-        User user = userService.getUserById(userId);
-        if (user == null) {
-            log.error("用户不存在: userId={}", userId);
-            return null;
-        }
-        String publicKey = user.getRsaPublicKey();
+        String publicKey = userService.getPublicKey(userId);
         if (publicKey == null || publicKey.isEmpty()) {
-            log.error("用户公钥不存在: userId={}", userId);
+            log.error("用户不存在或公钥不存在: userId={}", userId);
             return null;
         }
         return publicKey;
@@ -0,0 +1,132 @@
+package com.exam.approval.service;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.baomidou.mybatisplus.core.toolkit.support.SFunction;
+import com.exam.approval.entity.ApprovalRecord;
+import com.exam.approval.entity.AuditLog;
+import com.exam.approval.entity.ExamPaper;
+import com.exam.approval.interceptor.MybatisCryptoInterceptor;
+import com.exam.approval.mapper.ApprovalRecordMapper;
+import com.exam.approval.mapper.AuditLogMapper;
+import com.exam.approval.mapper.ExamPaperMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiFunction;
+
+/**
+ * 密文信封迁移Service
+ *
+ * 将旧版无前缀的AES密文升级为 ENC:v1:{keyId}:... 信封格式：
+ * 读取时拦截器按旧格式解密，写回时拦截器按信封格式重新加密。
+ * 按ID游标分批处理，可重复执行，已迁移的行会被跳过。
+ *
+ * 开启方式：crypto.envelope.migrate-on-startup=true
+ *
+ * @author 网络信息安全大作业
+ * @date 2025-12-01
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class CryptoEnvelopeMigrationService {
+
+    private static final int BATCH_SIZE = 200;
+
+    private final ExamPaperMapper examPaperMapper;
+    private final ApprovalRecordMapper approvalRecordMapper;
+    private final AuditLogMapper auditLogMapper;
+
+    @Value("${crypto.envelope.migrate-on-startup:false}")
+    private boolean migrateOnStartup;
+
+    /**
+     * 应用启动完成后按配置执行迁移
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void migrateOnStartup() {
+        if (migrateOnStartup) {
+            migrateAll();
+        }
+    }
+
+    /**
+     * 迁移所有@Encrypted字段
+     *
+     * @return 各表迁移行数
+     */
+    public Map<String, Integer> migrateAll() {
+        Map<String, Integer> result = new HashMap<>();
+        result.put("exam_paper.file_path", migrate(examPaperMapper, ExamPaper::getId, ExamPaper::getFilePath,
+                (id, value) -> {
+                    ExamPaper patch = new ExamPaper();
+                    patch.setId(id);
+                    patch.setFilePath(value);
+                    return patch;
+                }));
+        result.put("approval_record.comment", migrate(approvalRecordMapper, ApprovalRecord::getId, ApprovalRecord::getComment,
+                (id, value) -> {
+                    ApprovalRecord patch = new ApprovalRecord();
+                    patch.setId(id);
+                    patch.setComment(value);
+                    return patch;
+                }));
+        result.put("audit_log.details", migrate(auditLogMapper, AuditLog::getId, AuditLog::getDetails,
+                (id, value) -> {
+                    AuditLog patch = new AuditLog();
+                    patch.setId(id);
+                    patch.setDetails(value);
+                    return patch;
+                }));
+        log.info("密文信封迁移完成: {}", result);
+        return result;
+    }
+
+    /**
+     * 迁移单个字段
+     *
+     * @param mapper       实体Mapper
+     * @param idGetter     主键
+     * @param fieldGetter  加密字段
+     * @param patchFactory 根据主键和明文构造仅含该字段的更新实体
+     * @return 迁移行数
+     */
+    private <T> int migrate(BaseMapper<T> mapper, SFunction<T, Long> idGetter, SFunction<T, String> fieldGetter,
+                            BiFunction<Long, String, T> patchFactory) {
+        int migrated = 0;
+        long lastId = 0;
+        while (true) {
+            List<T> rows = mapper.selectList(new LambdaQueryWrapper<T>()
+                    .select(idGetter, fieldGetter)
+                    .gt(idGetter, lastId)
+                    .isNotNull(fieldGetter)
+                    .notLikeRight(fieldGetter, MybatisCryptoInterceptor.ENVELOPE_PREFIX)
+                    .orderByAsc(idGetter)
+                    .last("LIMIT " + BATCH_SIZE));
+            if (rows.isEmpty()) {
+                break;
+            }
+
+            for (T row : rows) {
+                Long id = idGetter.apply(row);
+                lastId = id;
+                String value = fieldGetter.apply(row);
+                // 解密失败时值仍为旧密文，跳过避免覆盖
+                if (value == null || value.isEmpty() || MybatisCryptoInterceptor.looksLikeLegacyCiphertext(value)) {
+                    continue;
+                }
+                mapper.updateById(patchFactory.apply(id, value));
+                migrated++;
+            }
+        }
+        return migrated;
+    }
+}
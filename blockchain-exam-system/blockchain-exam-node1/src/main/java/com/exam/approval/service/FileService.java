@@ -1,23 +1,34 @@
 package com.exam.approval.service;
 
 import com.exam.approval.common.exception.BusinessException;
-import com.exam.approval.security.util.AESUtil;
+import com.exam.approval.entity.FileBlob;
+import com.exam.approval.mapper.FileBlobMapper;
+import com.exam.approval.security.util.AESStreamUtil;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.codec.digest.HmacAlgorithms;
+import org.apache.commons.codec.digest.HmacUtils;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import javax.annotation.PostConstruct;
-import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
 import java.util.Base64;
+import java.util.List;
 import java.util.UUID;
 
 /**
@@ -30,9 +41,11 @@ import java.util.UUID;
  * 4. 支持多种文件类型（PDF、Word、图片等）
  *
  * 安全特性：
- * - 所有文件使用AES-256-GCM加密存储
- * - 文件名随机化，防止路径遍历
- * - 按日期分目录存储
+ * - 所有文件使用AES-256-GCM分块流式加密，以二进制形式存储（格式见 AESStreamUtil）
+ * - 上传/下载均为流式处理，内存占用与文件大小无关
+ * - 文件名由内容哈希决定，防止路径遍历
+ * - 内容寻址去重：以明文SHA-256为地址，相同文件只加密存储一份（cas/{哈希前2位}/{哈希}{扩展名}）
+ * - 引用计数：随试卷 filePath 增减，无引用且超过保留期的文件由定时任务回收
  * - 文件大小限制
  *
  * @author 网络信息安全大作业
@@ -40,8 +53,21 @@ import java.util.UUID;
  */
 @Slf4j
 @Service
+@RequiredArgsConstructor
 public class FileService {
 
+    /**
+     * 内容寻址存储目录前缀
+     */
+    private static final String CAS_PREFIX = "cas/";
+
+    /**
+     * 每次回收的最大文件数
+     */
+    private static final int GC_BATCH_SIZE = 200;
+
+    private final FileBlobMapper fileBlobMapper;
+
     @Value("${file.upload.path:./uploads}")
     private String uploadPath;
 
@@ -49,9 +75,21 @@ public class FileService {
     private long maxFileSize;
 
     /**
-     * AES加密密钥（实际应用中应从配置中心获取）
+     * 系统主密钥（用于派生文件加密密钥）
+     */
+    @Value("${crypto.master-key}")
+    private String masterKey;
+
+    /**
+     * 无引用文件的保留时长（小时），给"上传后尚未提交试卷"留出时间
+     */
+    @Value("${file.blob.orphan-grace-hours:24}")
+    private long orphanGraceHours;
+
+    /**
+     * 文件加密密钥：由主密钥经HMAC-SHA256派生，节点重启后仍可解密历史文件
      */
-    private static final String ENCRYPTION_KEY = AESUtil.generateKey();
+    private byte[] fileKey;
 
     /**
      * 允许的文件扩展名
@@ -67,6 +105,9 @@ public class FileService {
      */
     @PostConstruct
     public void init() {
+        fileKey = new HmacUtils(HmacAlgorithms.HMAC_SHA_256, Base64.getDecoder().decode(masterKey))
+                .hmac("exam-file-encryption-v1");
+
         try {
             Path path = Paths.get(uploadPath);
             if (!Files.exists(path)) {
@@ -80,7 +121,10 @@ public class FileService {
     }
 
     /**
-     * 上传文件（加密存储）
+     * 上传文件（加密存储，按内容去重）
+     *
+     * 先对明文做一遍SHA-256，已存在相同内容时直接复用，不再加密和写盘；
+     * 返回的路径中包含内容哈希，可通过 {@link #getContentHash(String)} 取回。
      *
      * @param file 上传的文件
      * @return 加密后的文件路径
@@ -89,40 +133,63 @@ public class FileService {
         // 1. 验证文件
         validateFile(file);
 
-        // 2. 生成文件名和路径
         String originalFilename = file.getOriginalFilename();
-        String extension = getFileExtension(originalFilename);
-        String dateDir = LocalDate.now().format(DateTimeFormatter.ofPattern("yyyy/MM/dd"));
-        String randomFilename = UUID.randomUUID().toString() + extension;
-        String relativePath = dateDir + "/" + randomFilename;
+        String extension = getFileExtension(originalFilename).toLowerCase();
 
         try {
-            // 3. 创建日期目录
-            Path datePath = Paths.get(uploadPath, dateDir);
-            if (!Files.exists(datePath)) {
-                Files.createDirectories(datePath);
+            // 2. 计算明文哈希，生成内容寻址路径
+            String contentHash;
+            try (InputStream in = file.getInputStream()) {
+                contentHash = DigestUtils.sha256Hex(in);
+            }
+            String relativePath = CAS_PREFIX + contentHash.substring(0, 2) + "/" + contentHash + extension;
+            Path targetPath = resolvePath(relativePath);
+
+            // 3. 命中已有文件：刷新保留期后直接复用
+            FileBlob blob = fileBlobMapper.findByFilePath(relativePath);
+            if (blob != null && Files.isRegularFile(targetPath)) {
+                fileBlobMapper.touch(blob.getId());
+                log.info("文件上传命中已有内容，跳过加密: originalName={}, path={}, refCount={}",
+                        originalFilename, relativePath, blob.getRefCount());
+                return relativePath;
             }
 
-            // 4. 读取文件内容
-            byte[] fileBytes = file.getBytes();
-
-            // 5. 加密文件内容
-            String encryptedContent = AESUtil.encrypt(
-                    Base64.getEncoder().encodeToString(fileBytes),
-                    ENCRYPTION_KEY
-            );
-
-            // 6. 保存加密文件
-            Path targetPath = Paths.get(uploadPath, relativePath);
-            try (FileOutputStream fos = new FileOutputStream(targetPath.toFile())) {
-                fos.write(encryptedContent.getBytes());
+            // 4. 流式加密写入临时文件，完成后原子移动到目标路径
+            Files.createDirectories(targetPath.getParent());
+            Path tempPath = targetPath.resolveSibling(targetPath.getFileName() + "." + UUID.randomUUID() + ".tmp");
+            long plainSize;
+            try (InputStream in = file.getInputStream();
+                 FileChannel channel = FileChannel.open(tempPath,
+                         StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+                plainSize = AESStreamUtil.encrypt(in, channel, fileKey);
+            } catch (IOException e) {
+                Files.deleteIfExists(tempPath);
+                throw e;
+            }
+            // 并发上传相同内容时两份密文解密结果相同，覆盖即可
+            Files.move(tempPath, targetPath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+
+            // 5. 登记文件记录（记录已存在说明只是文件丢失后重建）
+            if (blob == null) {
+                FileBlob newBlob = new FileBlob();
+                newBlob.setContentHash(contentHash);
+                newBlob.setFilePath(relativePath);
+                newBlob.setPlainSize(plainSize);
+                newBlob.setRefCount(0);
+                try {
+                    fileBlobMapper.insert(newBlob);
+                } catch (DuplicateKeyException e) {
+                    log.debug("文件记录已由并发上传登记: path={}", relativePath);
+                }
             }
 
-            log.info("文件上传成功（已加密）: originalName={}, encryptedPath={}",
-                    originalFilename, relativePath);
+            log.info("文件上传成功（已加密）: originalName={}, encryptedPath={}, size={}",
+                    originalFilename, relativePath, plainSize);
 
             return relativePath;
 
+        } catch (BusinessException e) {
+            throw e;
         } catch (Exception e) {
             log.error("文件上传失败", e);
             throw new BusinessException("文件上传失败: " + e.getMessage());
@@ -130,60 +197,185 @@ public class FileService {
     }
 
     /**
-     * 下载文件（解密）
+     * 从内容寻址路径中取出明文SHA-256，无需再次读取文件
      *
      * @param filePath 文件路径
-     * @return 解密后的文件内容
+     * @return 内容哈希；旧版随机路径返回null
      */
-    public byte[] downloadFile(String filePath) {
-        try {
-            // 1. 验证文件路径（防止路径遍历攻击）
-            Path path = Paths.get(uploadPath, filePath).normalize();
-            if (!path.startsWith(Paths.get(uploadPath).toAbsolutePath())) {
-                throw new BusinessException("非法的文件路径");
-            }
+    public String getContentHash(String filePath) {
+        if (!isContentAddressed(filePath)) {
+            return null;
+        }
+        String name = filePath.substring(filePath.lastIndexOf('/') + 1);
+        int dotIndex = name.indexOf('.');
+        String hash = dotIndex > 0 ? name.substring(0, dotIndex) : name;
+        return hash.length() == 64 ? hash : null;
+    }
 
-            // 2. 检查文件是否存在
-            File file = path.toFile();
-            if (!file.exists() || !file.isFile()) {
-                throw new BusinessException("文件不存在");
-            }
+    /**
+     * 增加文件引用（试卷关联该文件时调用）
+     *
+     * @param filePath 文件路径，为空或旧版路径时忽略
+     */
+    public void retain(String filePath) {
+        if (!isContentAddressed(filePath)) {
+            return;
+        }
+        if (fileBlobMapper.retain(filePath) == 0) {
+            log.warn("增加文件引用失败，文件记录不存在: path={}", filePath);
+        }
+    }
 
-            // 3. 读取加密文件
-            byte[] encryptedBytes;
-            try (FileInputStream fis = new FileInputStream(file)) {
-                encryptedBytes = fis.readAllBytes();
-            }
+    /**
+     * 释放文件引用（试卷删除或更换附件时调用）
+     * 引用归零后不会立即删除，超过保留期后由 {@link #collectOrphanFiles()} 回收
+     *
+     * @param filePath 文件路径，为空或旧版路径时忽略
+     */
+    public void release(String filePath) {
+        if (!isContentAddressed(filePath)) {
+            return;
+        }
+        fileBlobMapper.release(filePath);
+    }
 
-            // 4. 解密文件内容
-            String encryptedContent = new String(encryptedBytes);
-            String decryptedContent = AESUtil.decrypt(encryptedContent, ENCRYPTION_KEY);
+    /**
+     * 定时回收无引用且超过保留期的文件（每天凌晨3点30分）
+     */
+    @Scheduled(cron = "0 30 3 * * ?")
+    public void collectOrphanFiles() {
+        LocalDateTime before = LocalDateTime.now().minusHours(orphanGraceHours);
+        int removed = 0;
+        List<FileBlob> orphans;
+        do {
+            orphans = fileBlobMapper.findOrphans(before, GC_BATCH_SIZE);
+            for (FileBlob orphan : orphans) {
+                // 先删记录再删文件：记录删除失败说明期间有新引用，文件保留
+                if (fileBlobMapper.deleteIfUnreferenced(orphan.getId(), before) == 0) {
+                    continue;
+                }
+                try {
+                    Files.deleteIfExists(resolvePath(orphan.getFilePath()));
+                    removed++;
+                } catch (Exception e) {
+                    log.warn("回收文件失败: path={}, error={}", orphan.getFilePath(), e.getMessage());
+                }
+            }
+        } while (orphans.size() == GC_BATCH_SIZE);
 
-            // 5. Base64解码得到原始文件
-            byte[] fileBytes = Base64.getDecoder().decode(decryptedContent);
+        if (removed > 0) {
+            log.info("无引用文件回收完成: count={}", removed);
+        }
+    }
 
-            log.info("文件下载成功（已解密）: path={}, size={}", filePath, fileBytes.length);
+    /**
+     * 下载文件（解密）
+     * 会将整个文件读入内存，大文件请使用 writeDecrypted 流式输出
+     *
+     * @param filePath 文件路径
+     * @return 解密后的文件内容
+     */
+    public byte[] downloadFile(String filePath) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writeDecrypted(filePath, out);
+        return out.toByteArray();
+    }
 
-            return fileBytes;
+    /**
+     * 流式解密文件并写入输出流
+     *
+     * @param filePath 文件路径
+     * @param out      输出流（调用方负责关闭）
+     * @return 写出的明文字节数
+     */
+    public long writeDecrypted(String filePath, OutputStream out) {
+        return writeDecryptedRange(filePath, 0, Long.MAX_VALUE, out);
+    }
 
+    /**
+     * 流式解密文件的指定明文范围并写入输出流
+     * 直接定位到范围所在的分块，不解密范围之外的内容
+     *
+     * @param filePath 文件路径
+     * @param start    起始偏移（包含）
+     * @param end      结束偏移（包含）
+     * @param out      输出流（调用方负责关闭）
+     * @return 写出的明文字节数
+     */
+    public long writeDecryptedRange(String filePath, long start, long end, OutputStream out) {
+        Path path = resolveExistingFile(filePath);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (!AESStreamUtil.isStreamFormat(channel)) {
+                throw new BusinessException("不支持的文件格式（旧版本上传的文件请重新上传）");
+            }
+            long size = AESStreamUtil.decryptRange(channel, out, fileKey, start, end);
+            log.info("文件下载成功（已解密）: path={}, range={}-{}, size={}", filePath, start, end, size);
+            return size;
+        } catch (BusinessException e) {
+            throw e;
         } catch (Exception e) {
             log.error("文件下载失败: path={}", filePath, e);
             throw new BusinessException("文件下载失败: " + e.getMessage());
         }
     }
 
+    /**
+     * 获取文件解密后的大小
+     *
+     * @param filePath 文件路径
+     * @return 明文字节数
+     */
+    public long getPlainSize(String filePath) {
+        Path path = resolveExistingFile(filePath);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (!AESStreamUtil.isStreamFormat(channel)) {
+                throw new BusinessException("不支持的文件格式（旧版本上传的文件请重新上传）");
+            }
+            return AESStreamUtil.plaintextLength(channel);
+        } catch (IOException e) {
+            throw new BusinessException("读取文件失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 解析并校验文件路径（防止路径遍历攻击）
+     */
+    private Path resolvePath(String filePath) {
+        Path root = Paths.get(uploadPath).toAbsolutePath().normalize();
+        Path path = root.resolve(filePath).normalize();
+        if (!path.startsWith(root)) {
+            throw new BusinessException("非法的文件路径");
+        }
+        return path;
+    }
+
+    /**
+     * 解析文件路径并确认文件存在
+     */
+    private Path resolveExistingFile(String filePath) {
+        Path path = resolvePath(filePath);
+        if (!Files.isRegularFile(path)) {
+            throw new BusinessException("文件不存在");
+        }
+        return path;
+    }
+
     /**
      * 删除文件
      *
      * @param filePath 文件路径
      */
     public void deleteFile(String filePath) {
+        // 内容寻址文件可能被其他试卷共享，只能由引用计数回收
+        if (isContentAddressed(filePath)) {
+            resolvePath(filePath);
+            log.info("内容寻址文件由引用计数回收，跳过直接删除: path={}", filePath);
+            return;
+        }
+
         try {
             // 验证文件路径
-            Path path = Paths.get(uploadPath, filePath).normalize();
-            if (!path.startsWith(Paths.get(uploadPath).toAbsolutePath())) {
-                throw new BusinessException("非法的文件路径");
-            }
+            Path path = resolvePath(filePath);
 
             // 删除文件
             Files.deleteIfExists(path);
@@ -196,6 +388,10 @@ public class FileService {
         }
     }
 
+    private boolean isContentAddressed(String filePath) {
+        return filePath != null && filePath.startsWith(CAS_PREFIX);
+    }
+
     /**
      * 验证文件
      */
@@ -119,6 +119,7 @@ public class GenerateUserKeys {
             System.out.println("  1. 私钥文件请妥善保管，不要泄露!");
             System.out.println("  2. 将对应的 .pem 文件分发给各用户");
             System.out.println("  3. 用户需要私钥来解密试卷和签名审批");
+            System.out.println("  4. 若服务已在运行，请调用 POST /auth/user-cache/evict 使各节点的用户公钥缓存立即失效");
 
         } catch (Exception e) {
             System.err.println("错误: " + e.getMessage());
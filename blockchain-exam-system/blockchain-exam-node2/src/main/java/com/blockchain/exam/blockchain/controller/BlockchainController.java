@@ -2,17 +2,30 @@ package com.blockchain.exam.blockchain.controller;
 
 import com.blockchain.exam.blockchain.entity.Block;
 import com.blockchain.exam.blockchain.service.BlockchainService;
+import com.blockchain.exam.blockchain.service.ChainEventService;
 import com.blockchain.exam.blockchain.service.MinerService;
 import com.blockchain.exam.p2p.service.P2PSyncService;
 import com.exam.approval.common.result.Result;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import javax.servlet.http.HttpServletResponse;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.zip.GZIPOutputStream;
 
 /**
  * 区块链控制器
@@ -36,6 +49,12 @@ public class BlockchainController {
     @Autowired
     private P2PSyncService syncService;
 
+    @Autowired
+    private ChainEventService chainEventService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
     /**
      * 获取完整区块链
      * 用于P2P节点间同步
@@ -208,4 +227,88 @@ public class BlockchainController {
             return ResponseEntity.ok(Result.error("切换挖矿状态失败"));
         }
     }
+
+    /**
+     * 流式导出账本
+     * 基于数据库游标逐块写出，内存占用恒定，适用于审计方全量导出
+     *
+     * 输出格式：
+     * - ndjson（默认）：每行一个区块JSON
+     * - binary：每个区块为 4字节大端长度 + 区块JSON的UTF-8字节
+     *
+     * @param startIndex 起始高度（包含，可选）
+     * @param endIndex   结束高度（包含，可选）
+     * @param format     输出格式 ndjson / binary
+     * @param gzip       是否使用gzip压缩传输
+     * @param response   HTTP响应
+     */
+    @GetMapping("/export")
+    public void exportChain(@RequestParam(required = false) Long startIndex,
+                            @RequestParam(required = false) Long endIndex,
+                            @RequestParam(defaultValue = "ndjson") String format,
+                            @RequestParam(defaultValue = "false") boolean gzip,
+                            HttpServletResponse response) throws IOException {
+        boolean binary = "binary".equalsIgnoreCase(format);
+        if (!binary && !"ndjson".equalsIgnoreCase(format)) {
+            throw new IllegalArgumentException("不支持的导出格式: " + format);
+        }
+        if (startIndex != null && endIndex != null && startIndex > endIndex) {
+            throw new IllegalArgumentException("起始高度不能大于结束高度");
+        }
+
+        response.setContentType(binary ? "application/octet-stream" : "application/x-ndjson");
+        response.setCharacterEncoding("UTF-8");
+        if (gzip) {
+            response.setHeader("Content-Encoding", "gzip");
+        }
+        response.setHeader("Content-Disposition",
+                "attachment; filename=\"ledger." + (binary ? "bin" : "ndjson") + "\"");
+
+        OutputStream raw = response.getOutputStream();
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                gzip ? new GZIPOutputStream(raw, 8192) : raw, 64 * 1024))) {
+            long count = blockchainService.streamBlocks(startIndex, endIndex, block -> {
+                try {
+                    byte[] bytes = objectMapper.writeValueAsBytes(block);
+                    if (binary) {
+                        out.writeInt(bytes.length);
+                        out.write(bytes);
+                    } else {
+                        out.write(bytes);
+                        out.write('\n');
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            log.info("账本导出完成 - 区块数: {}, 格式: {}, gzip: {}", count, binary ? "binary" : "ndjson", gzip);
+        } catch (UncheckedIOException e) {
+            // 客户端中断连接等写出异常，此时响应已提交，只记录日志
+            log.warn("账本导出中断: {}", e.getCause().getMessage());
+        }
+    }
+
+    /**
+     * 订阅区块链事件流（SSE）
+     * 推送新区块、链替换、交易池变化事件，替代对统计/交易池/最新区块接口的轮询
+     *
+     * 断线重连时浏览器EventSource会自动携带 Last-Event-ID 请求头，
+     * 非浏览器客户端也可通过 lastEventId 参数指定断点
+     *
+     * @param lastEventIdHeader Last-Event-ID 请求头
+     * @param lastEventId       断点事件ID参数
+     * @return SSE发射器；订阅数已达上限时返回503，客户端按 Retry-After 稍后重试
+     */
+    @GetMapping(value = "/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> subscribeEvents(
+            @RequestHeader(value = "Last-Event-ID", required = false) String lastEventIdHeader,
+            @RequestParam(required = false) String lastEventId) {
+        SseEmitter emitter = chainEventService.subscribe(lastEventIdHeader != null ? lastEventIdHeader : lastEventId);
+        if (emitter == null) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "30")
+                    .build();
+        }
+        return ResponseEntity.ok(emitter);
+    }
 }
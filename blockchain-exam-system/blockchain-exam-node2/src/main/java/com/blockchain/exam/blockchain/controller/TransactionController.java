@@ -2,6 +2,8 @@ package com.blockchain.exam.blockchain.controller;
 
 import com.blockchain.exam.blockchain.entity.Transaction;
 import com.blockchain.exam.blockchain.mapper.TransactionMapper;
+import com.blockchain.exam.integration.ChainOutboxService;
+import com.blockchain.exam.p2p.service.P2PBlobService;
 import com.blockchain.exam.p2p.service.P2PTransactionService;
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.exam.approval.common.result.Result;
@@ -34,6 +36,12 @@ public class TransactionController {
     @Autowired
     private P2PTransactionService p2pTransactionService;
 
+    @Autowired
+    private ChainOutboxService chainOutboxService;
+
+    @Autowired
+    private P2PBlobService blobService;
+
     @Value("${p2p.node.id}")
     private String currentNodeId;
 
@@ -160,6 +168,7 @@ public class TransactionController {
             stats.put("mined", minedCount);
             stats.put("total", pendingCount + minedCount);
             stats.put("broadcastStats", p2pTransactionService.getBroadcastStats());
+            stats.put("outboxStats", chainOutboxService.getStats());
 
             return ResponseEntity.ok(Result.success(stats));
         } catch (Exception e) {
@@ -168,6 +177,22 @@ public class TransactionController {
         }
     }
 
+    /**
+     * 读取交易引用的数据块内容（如内容寻址方式上链的加密试卷）
+     * 只返回本节点已有的数据块，尚未同步的由后台复制完成后再读取
+     *
+     * @param hash 数据块哈希（交易中 chain-blob:// 之后的部分）
+     * @return 数据块内容
+     */
+    @GetMapping("/blob/{hash}")
+    public Result<String> getBlob(@PathVariable String hash) {
+        String content = blobService.load(hash);
+        if (content == null) {
+            return Result.notFound("数据块不存在或尚未同步到本节点");
+        }
+        return Result.success(content);
+    }
+
     /**
      * 根据ID查询交易
      *
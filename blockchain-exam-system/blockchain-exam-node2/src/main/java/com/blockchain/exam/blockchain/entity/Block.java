@@ -1,6 +1,7 @@
 package com.blockchain.exam.blockchain.entity;
 
 import com.baomidou.mybatisplus.annotation.*;
+import com.blockchain.exam.blockchain.handler.PayloadTypeHandler;
 import lombok.Data;
 
 import java.io.Serializable;
@@ -53,7 +54,9 @@ public class Block implements Serializable {
      * 区块数据（JSON格式）
      * 存储BlockData对象序列化后的JSON字符串
      * 包含交易类型、交易数据等信息
+     * 入库时按 PayloadCodec 压缩，内存中始终为原始JSON，区块哈希基于原始JSON计算
      */
+    @TableField(typeHandler = PayloadTypeHandler.class)
     private String data;
 
     /**
@@ -80,6 +83,12 @@ public class Block implements Serializable {
      */
     private String minerAddress;
 
+    /**
+     * 区块哈希版本（见 BlockHasher）
+     * 为空表示版本1（字符串拼接，历史区块），新区块按 blockchain.hash-version 计算
+     */
+    private Integer hashVersion;
+
     /**
      * 创建时间
      */
@@ -94,7 +103,7 @@ public class Block implements Serializable {
     }
 
     /**
-     * 构建区块信息字符串（用于计算哈希）
+     * 构建区块信息字符串（版本1哈希输入，新区块使用 BlockHasher 的规范化编码）
      */
     public String buildHashData() {
         return blockIndex + previousHash + timestamp + data + nonce;
@@ -111,6 +120,7 @@ public class Block implements Serializable {
                 ", nonce=" + nonce +
                 ", difficulty=" + difficulty +
                 ", minerAddress='" + minerAddress + '\'' +
+                ", hashVersion=" + hashVersion +
                 '}';
     }
 }
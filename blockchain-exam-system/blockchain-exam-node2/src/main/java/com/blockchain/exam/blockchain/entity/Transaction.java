@@ -1,10 +1,14 @@
 package com.blockchain.exam.blockchain.entity;
 
 import com.baomidou.mybatisplus.annotation.*;
+import com.blockchain.exam.blockchain.handler.PayloadTypeHandler;
+import com.blockchain.exam.blockchain.util.HashUtil;
 import lombok.Data;
 
 import java.io.Serializable;
 import java.time.LocalDateTime;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 /**
  * 交易实体类
@@ -21,6 +25,16 @@ public class Transaction implements Serializable {
 
     private static final long serialVersionUID = 1L;
 
+    /**
+     * 交易数据中的试卷ID
+     */
+    private static final Pattern PAPER_ID_PATTERN = Pattern.compile("\"paperId\":\\s*(\\d+)");
+
+    /**
+     * 未关联试卷的交易的 paperId 取值
+     */
+    public static final long NO_PAPER = 0L;
+
     /**
      * 交易ID
      */
@@ -39,9 +53,25 @@ public class Transaction implements Serializable {
     /**
      * 交易数据（JSON格式）
      * 存储BlockData对象序列化后的JSON字符串
+     * 入库时按 PayloadCodec 压缩，内存中始终为原始JSON
      */
+    @TableField(typeHandler = PayloadTypeHandler.class)
     private String transactionData;
 
+    /**
+     * 关联的试卷ID（未关联试卷为0）
+     * 由交易数据派生，入库时填充，不信任外部传入的值；交易数据可能已压缩，按试卷查询走此列的索引
+     */
+    @TableField(fill = FieldFill.INSERT)
+    private Long paperId;
+
+    /**
+     * 交易数据（解码后原始JSON）的SHA-256，用于去重
+     * 与各节点的压缩配置无关；由交易数据派生，入库时填充
+     */
+    @TableField(fill = FieldFill.INSERT)
+    private String payloadHash;
+
     /**
      * 创建节点ID
      * 记录是哪个节点创建的交易
@@ -103,6 +133,45 @@ public class Transaction implements Serializable {
         this.status = "INVALID";
     }
 
+    /**
+     * 由交易数据重新计算派生列（入库前调用）
+     */
+    public void deriveKeys() {
+        this.paperId = paperIdOf(transactionData);
+        this.payloadHash = payloadHashOf(transactionData);
+    }
+
+    /**
+     * 交易数据的去重哈希
+     *
+     * @param transactionData 交易数据（解码后原始JSON）
+     * @return SHA-256，交易数据为空时返回null
+     */
+    public static String payloadHashOf(String transactionData) {
+        return transactionData == null ? null : HashUtil.sha256(transactionData);
+    }
+
+    /**
+     * 提取交易数据中的试卷ID
+     *
+     * @param transactionData 交易数据（JSON）
+     * @return 试卷ID，未关联试卷时返回 {@link #NO_PAPER}
+     */
+    public static long paperIdOf(String transactionData) {
+        if (transactionData == null) {
+            return NO_PAPER;
+        }
+        Matcher matcher = PAPER_ID_PATTERN.matcher(transactionData);
+        if (!matcher.find()) {
+            return NO_PAPER;
+        }
+        try {
+            return Long.parseLong(matcher.group(1));
+        } catch (NumberFormatException e) {
+            return NO_PAPER;
+        }
+    }
+
     @Override
     public String toString() {
         return "Transaction{" +
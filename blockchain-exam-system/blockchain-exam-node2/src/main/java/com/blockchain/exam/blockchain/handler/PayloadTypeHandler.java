@@ -0,0 +1,46 @@
+package com.blockchain.exam.blockchain.handler;
+
+import com.blockchain.exam.blockchain.util.PayloadCodec;
+import org.apache.ibatis.type.BaseTypeHandler;
+import org.apache.ibatis.type.JdbcType;
+import org.apache.ibatis.type.MappedJdbcTypes;
+import org.apache.ibatis.type.MappedTypes;
+
+import java.sql.CallableStatement;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * 区块/交易数据列类型处理器
+ *
+ * 写入时按 PayloadCodec 编码（带版本头的压缩格式），读取时解码为原始JSON
+ *
+ * @author Claude Code
+ * @since 2025-11-25
+ */
+@MappedTypes(String.class)
+@MappedJdbcTypes(JdbcType.LONGVARCHAR)
+public class PayloadTypeHandler extends BaseTypeHandler<String> {
+
+    @Override
+    public void setNonNullParameter(PreparedStatement ps, int i, String parameter, JdbcType jdbcType)
+            throws SQLException {
+        ps.setString(i, PayloadCodec.encode(parameter));
+    }
+
+    @Override
+    public String getNullableResult(ResultSet rs, String columnName) throws SQLException {
+        return PayloadCodec.decode(rs.getString(columnName));
+    }
+
+    @Override
+    public String getNullableResult(ResultSet rs, int columnIndex) throws SQLException {
+        return PayloadCodec.decode(rs.getString(columnIndex));
+    }
+
+    @Override
+    public String getNullableResult(CallableStatement cs, int columnIndex) throws SQLException {
+        return PayloadCodec.decode(cs.getString(columnIndex));
+    }
+}
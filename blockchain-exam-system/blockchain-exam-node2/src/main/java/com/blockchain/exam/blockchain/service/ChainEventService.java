@@ -0,0 +1,342 @@
+package com.blockchain.exam.blockchain.service;
+
+import com.blockchain.exam.blockchain.entity.ChainEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 区块链事件推送服务
+ *
+ * 以SSE方式向订阅者推送：
+ * - BLOCK_ADDED：本节点追加新区块
+ * - CHAIN_REPLACED：P2P同步替换本地链
+ * - MEMPOOL_CHANGED：交易池新增 / 打包交易
+ *
+ * 最近的事件保存在环形缓冲区中，客户端断线重连时携带 Last-Event-ID 即可补发遗漏事件；
+ * 断点已被淘汰或节点已重启时推送 RESYNC，提示客户端做一次全量刷新。
+ *
+ * 发布方（出块、挖矿、交易回执、发件箱投递）只在锁内写缓冲区并把事件放入各订阅者的有界队列，
+ * 实际发送由推送线程完成，慢客户端不会阻塞发布方；队列溢出的订阅者直接断开，重连后按断点补发。
+ * 订阅接口无需登录，订阅数达到 blockchain.events.max-subscribers 后拒绝新订阅。
+ *
+ * @author Claude Code
+ * @since 2025-11-25
+ */
+@Slf4j
+@Service
+public class ChainEventService {
+
+    /**
+     * 事件缓冲区容量
+     */
+    private static final int BUFFER_SIZE = 1000;
+
+    /**
+     * 单个订阅者的待发送队列容量（可容纳一次完整补发）
+     */
+    private static final int SUBSCRIBER_QUEUE_SIZE = BUFFER_SIZE + 64;
+
+    /**
+     * 推送线程数
+     */
+    private static final int SENDER_THREADS = 4;
+
+    /**
+     * SSE连接超时时间（30分钟，客户端EventSource会自动重连）
+     */
+    private static final long EMITTER_TIMEOUT = 30 * 60 * 1000L;
+
+    /**
+     * 心跳标记（仅用于订阅者队列）
+     */
+    private static final ChainEvent HEARTBEAT = new ChainEvent(null, "heartbeat", null, 0L);
+
+    /**
+     * 节点启动纪元，节点重启后旧的事件ID全部失效
+     */
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+
+    /**
+     * 最近事件缓冲区（按序号升序）
+     */
+    private final Deque<ChainEvent> buffer = new ArrayDeque<>(BUFFER_SIZE);
+
+    /**
+     * 当前订阅者
+     */
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+
+    /**
+     * 推送线程
+     */
+    private final ExecutorService sender = Executors.newFixedThreadPool(SENDER_THREADS, daemonThreads());
+
+    /**
+     * 最大订阅数，每个订阅者占用一个待发送队列
+     */
+    @Value("${blockchain.events.max-subscribers:100}")
+    private int maxSubscribers;
+
+    /**
+     * 事件序号，受 buffer 锁保护
+     */
+    private long sequence = 0;
+
+    /**
+     * 发布事件
+     * 若当前处于事务中，则在事务提交后再推送，避免订阅者读到未提交的数据
+     *
+     * @param type 事件类型
+     * @param data 事件数据
+     */
+    public void publish(String type, Map<String, Object> data) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    doPublish(type, data);
+                }
+            });
+        } else {
+            doPublish(type, data);
+        }
+    }
+
+    /**
+     * 订阅事件流
+     *
+     * @param lastEventId 客户端最后收到的事件ID（可为空）
+     * @return SSE发射器；订阅数已达上限时返回 null
+     */
+    public SseEmitter subscribe(String lastEventId) {
+        SseEmitter emitter = new SseEmitter(EMITTER_TIMEOUT);
+        Subscriber subscriber = new Subscriber(emitter);
+        emitter.onCompletion(subscriber::closed);
+        emitter.onTimeout(subscriber::closed);
+        emitter.onError(e -> subscriber.closed());
+
+        // 补发事件入队与注册在同一把锁内完成，保证不丢事件、不重复推送
+        synchronized (buffer) {
+            if (subscribers.size() >= maxSubscribers) {
+                log.warn("事件订阅数已达上限，拒绝新订阅 - 上限: {}", maxSubscribers);
+                return null;
+            }
+            replay(subscriber, lastEventId);
+            subscribers.add(subscriber);
+        }
+        subscriber.schedule();
+
+        log.debug("新增事件订阅者 - 当前订阅数: {}", subscribers.size());
+        return emitter;
+    }
+
+    /**
+     * 定时发送心跳注释，及时清理已断开的连接，同时防止代理关闭空闲连接
+     */
+    @Scheduled(fixedRate = 15000)
+    public void heartbeat() {
+        for (Subscriber subscriber : subscribers) {
+            subscriber.enqueue(HEARTBEAT);
+            subscriber.schedule();
+        }
+    }
+
+    /**
+     * 获取当前订阅者数量
+     *
+     * @return 订阅者数量
+     */
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        sender.shutdownNow();
+    }
+
+    private static ThreadFactory daemonThreads() {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, "chain-event-sender-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private void doPublish(String type, Map<String, Object> data) {
+        List<Subscriber> targets;
+        synchronized (buffer) {
+            ChainEvent event = new ChainEvent(epoch + "-" + (++sequence), type, data, System.currentTimeMillis());
+            if (buffer.size() >= BUFFER_SIZE) {
+                buffer.pollFirst();
+            }
+            buffer.addLast(event);
+
+            // 入队不阻塞，与补发共用一把锁以保证每个订阅者看到的顺序一致
+            targets = List.copyOf(subscribers);
+            for (Subscriber subscriber : targets) {
+                subscriber.enqueue(event);
+            }
+        }
+        // 在锁外触发发送
+        for (Subscriber subscriber : targets) {
+            subscriber.schedule();
+        }
+        log.debug("发布区块链事件 - 类型: {}, 订阅数: {}", type, targets.size());
+    }
+
+    /**
+     * 根据 Last-Event-ID 将遗漏事件放入订阅者队列（调用方持有 buffer 锁）
+     */
+    private void replay(Subscriber subscriber, String lastEventId) {
+        if (lastEventId == null || lastEventId.isEmpty()) {
+            return;
+        }
+
+        long lastSeq = parseSequence(lastEventId);
+        ChainEvent oldest = buffer.peekFirst();
+        long oldestSeq = oldest != null ? parseSequence(oldest.getId()) : sequence + 1;
+
+        // 节点已重启或断点已被淘汰：无法补发，通知客户端全量刷新
+        if (lastSeq < 0 || lastSeq > sequence || lastSeq < oldestSeq - 1) {
+            subscriber.enqueue(new ChainEvent(epoch + "-" + sequence, ChainEvent.RESYNC,
+                    Map.of("reason", "事件断点已失效，请重新拉取最新状态"), System.currentTimeMillis()));
+            return;
+        }
+
+        for (ChainEvent event : buffer) {
+            if (parseSequence(event.getId()) > lastSeq) {
+                subscriber.enqueue(event);
+            }
+        }
+    }
+
+    /**
+     * 解析事件ID中的序号，纪元不匹配或格式错误时返回-1
+     */
+    private long parseSequence(String eventId) {
+        int sep = eventId.lastIndexOf('-');
+        if (sep <= 0 || !epoch.equals(eventId.substring(0, sep))) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(eventId.substring(sep + 1));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private void send(SseEmitter emitter, ChainEvent event) throws IOException {
+        if (event == HEARTBEAT) {
+            emitter.send(SseEmitter.event().comment("heartbeat"));
+            return;
+        }
+        emitter.send(SseEmitter.event()
+                .id(event.getId())
+                .name(event.getType())
+                .data(event, MediaType.APPLICATION_JSON));
+    }
+
+    /**
+     * 订阅者：有界待发送队列 + 同一时刻最多一个推送任务（保证顺序）
+     */
+    private final class Subscriber {
+
+        private final SseEmitter emitter;
+
+        private final BlockingQueue<ChainEvent> queue = new ArrayBlockingQueue<>(SUBSCRIBER_QUEUE_SIZE);
+
+        private final AtomicBoolean draining = new AtomicBoolean();
+
+        private volatile boolean closed;
+
+        private Subscriber(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        /**
+         * 放入待发送队列，队列已满说明客户端跟不上，断开该订阅者
+         */
+        void enqueue(ChainEvent event) {
+            if (closed || queue.offer(event)) {
+                return;
+            }
+            log.warn("事件订阅者待发送队列已满，断开连接 - 容量: {}", SUBSCRIBER_QUEUE_SIZE);
+            close();
+        }
+
+        /**
+         * 队列非空且没有推送任务在执行时，提交一个推送任务
+         */
+        void schedule() {
+            if (closed || queue.isEmpty() || !draining.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                sender.execute(this::drain);
+            } catch (RejectedExecutionException e) {
+                draining.set(false);
+            }
+        }
+
+        private void drain() {
+            try {
+                ChainEvent event;
+                while (!closed && (event = queue.poll()) != null) {
+                    send(emitter, event);
+                }
+            } catch (Exception e) {
+                log.debug("推送事件失败，移除订阅者: {}", e.getMessage());
+                closed();
+            } finally {
+                draining.set(false);
+            }
+            // 处理推送结束前刚入队的事件
+            schedule();
+        }
+
+        /**
+         * 主动断开（由推送线程完成，不在发布方线程上操作连接）
+         */
+        private void close() {
+            closed();
+            try {
+                sender.execute(emitter::complete);
+            } catch (RejectedExecutionException ignored) {
+                // 服务关闭中
+            }
+        }
+
+        /**
+         * 连接已结束（完成、超时、出错）
+         */
+        void closed() {
+            closed = true;
+            subscribers.remove(this);
+            queue.clear();
+        }
+    }
+}
@@ -1,17 +1,28 @@
 package com.blockchain.exam.blockchain.service;
 
 import com.blockchain.exam.blockchain.entity.Block;
+import com.blockchain.exam.blockchain.util.BlockHasher;
 import com.blockchain.exam.blockchain.util.HashUtil;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import javax.annotation.PostConstruct;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
 /**
  * 共识服务
  *
  * 实现PoW（工作量证明）共识算法
  * - 通过不断尝试nonce值，寻找满足难度要求的哈希
- * - 难度由配置文件指定（默认4，表示哈希前4位为0）
+ * - 初始难度由配置文件指定（默认4，表示哈希前4位为0）；启用难度调整后，自 activation-height 起每 retarget.interval
+ *   个区块根据链上时间戳调整一次，使出块间隔趋近 retarget.target-block-time-ms；验证时逐高度检查难度
+ * - 自 activation-height 起，区块时间戳须大于前 timestamp.median-window 个区块时间戳的中位数，
+ *   且不超过本地时间 + timestamp.max-future-drift-ms，防止伪造时间戳操纵难度调整；此前的历史区块不检查
+ * - 区块哈希按版本计算（见 BlockHasher），新区块使用 blockchain.hash-version，历史区块按其记录的版本验证
  *
  * @author Claude Code
  * @since 2025-11-25
@@ -21,53 +32,150 @@ import org.springframework.stereotype.Service;
 public class ConsensusService {
 
     /**
-     * 挖矿难度（哈希前N位必须为0）
+     * 初始挖矿难度（哈希前N位必须为0），用于创世区块和难度调整生效前的区块
      */
     @Value("${blockchain.difficulty:4}")
     private int difficulty;
 
+    /**
+     * 是否启用难度调整（默认关闭，保持固定难度）
+     */
+    @Value("${blockchain.retarget.enabled:false}")
+    private boolean retargetEnabled;
+
+    /**
+     * 难度调整周期（区块数）
+     */
+    @Value("${blockchain.retarget.interval:10}")
+    private int retargetInterval;
+
+    /**
+     * 目标出块间隔（毫秒）
+     */
+    @Value("${blockchain.retarget.target-block-time-ms:30000}")
+    private long targetBlockTimeMs;
+
+    /**
+     * 难度下限
+     */
+    @Value("${blockchain.retarget.min-difficulty:1}")
+    private int minDifficulty;
+
+    /**
+     * 难度上限
+     */
+    @Value("${blockchain.retarget.max-difficulty:6}")
+    private int maxDifficulty;
+
+    /**
+     * 难度调整生效高度，此前的区块不检查难度和时间戳（兼容固定难度时期的历史区块）
+     * 启用难度调整时必须显式配置；未启用时视为无穷大
+     */
+    @Value("${blockchain.retarget.activation-height:-1}")
+    private long activationHeight;
+
+    /**
+     * 区块时间戳须大于前N个区块时间戳的中位数
+     */
+    @Value("${blockchain.timestamp.median-window:11}")
+    private int medianWindow;
+
+    /**
+     * 区块时间戳允许超前本地时钟的最大值（毫秒）
+     */
+    @Value("${blockchain.timestamp.max-future-drift-ms:120000}")
+    private long maxFutureDriftMs;
+
+    /**
+     * 新区块使用的哈希版本
+     */
+    @Value("${blockchain.hash-version:2}")
+    private int hashVersion;
+
     /**
      * 当前节点ID
      */
     @Value("${p2p.node.id}")
     private String nodeId;
 
+    @PostConstruct
+    public void init() {
+        if (!BlockHasher.isSupported(hashVersion)) {
+            throw new IllegalStateException("不支持的区块哈希版本配置: " + hashVersion);
+        }
+        if (retargetInterval < 2 || targetBlockTimeMs <= 0 || minDifficulty < 1 || minDifficulty > maxDifficulty) {
+            throw new IllegalStateException("难度调整配置无效 - interval: " + retargetInterval
+                    + ", target-block-time-ms: " + targetBlockTimeMs
+                    + ", min-difficulty: " + minDifficulty + ", max-difficulty: " + maxDifficulty);
+        }
+        if (medianWindow < 1 || maxFutureDriftMs < 0) {
+            throw new IllegalStateException("区块时间戳配置无效 - median-window: " + medianWindow
+                    + ", max-future-drift-ms: " + maxFutureDriftMs);
+        }
+        if (!retargetEnabled) {
+            activationHeight = Long.MAX_VALUE;
+            log.info("共识参数 - 固定难度: {}, 区块哈希版本: {}, 时间戳中位数窗口: {}, 最大超前: {}ms",
+                    difficulty, hashVersion, medianWindow, maxFutureDriftMs);
+            return;
+        }
+        if (activationHeight < 0) {
+            // 默认值0会让已有的固定难度区块全部按调整规则校验，整条链验证失败
+            throw new IllegalStateException("启用难度调整时必须配置 blockchain.retarget.activation-height（已有链应高于当前高度）");
+        }
+        log.info("共识参数 - 初始难度: {}, 区块哈希版本: {}, 难度调整: 每{}个区块, 目标间隔: {}ms, 范围: [{}, {}], 生效高度: {}, "
+                        + "时间戳中位数窗口: {}, 最大超前: {}ms",
+                difficulty, hashVersion, retargetInterval, targetBlockTimeMs, minDifficulty, maxDifficulty, activationHeight,
+                medianWindow, maxFutureDriftMs);
+    }
+
     /**
-     * 执行工作量证明（PoW）
-     * 不断尝试nonce值，直到找到满足难度要求的哈希
+     * 以初始难度执行工作量证明（创世区块）
      *
      * @param block 待挖矿的区块
      * @return 挖矿成功后的区块（包含有效的nonce和hash）
      */
     public Block proofOfWork(Block block) {
+        return proofOfWork(block, initialDifficulty());
+    }
+
+    /**
+     * 执行工作量证明（PoW）
+     * 不断尝试nonce值，直到找到满足难度要求的哈希
+     *
+     * @param block      待挖矿的区块
+     * @param difficulty 难度（由 expectedDifficulty 计算）
+     * @return 挖矿成功后的区块（包含有效的nonce和hash）
+     */
+    public Block proofOfWork(Block block, int difficulty) {
         long startTime = System.currentTimeMillis();
         log.info("开始PoW挖矿 - 区块高度: {}, 难度: {}", block.getBlockIndex(), difficulty);
 
-        // 设置难度和矿工地址
+        // 设置难度、矿工地址和哈希版本
         block.setDifficulty(difficulty);
         block.setMinerAddress(nodeId);
+        block.setHashVersion(hashVersion);
+
+        // 除nonce外的哈希输入只计算一次，每个nonce在此摘要状态上补充
+        MessageDigest midstate = BlockHasher.midstate(block);
 
         // 从0开始尝试nonce
         int nonce = 0;
-        String hash;
-        String target = HashUtil.getDifficultyTarget(difficulty);
+        byte[] hash;
 
         while (true) {
-            // 设置nonce
-            block.setNonce(nonce);
-
             // 计算哈希
-            hash = calculateBlockHash(block);
+            hash = BlockHasher.finish(midstate, hashVersion, nonce);
 
             // 检查是否满足难度要求
-            if (hash.startsWith(target)) {
+            if (BlockHasher.meetsDifficulty(hash, difficulty)) {
                 // 找到有效哈希
-                block.setCurrentHash(hash);
+                block.setNonce(nonce);
+                block.setCurrentHash(HashUtil.bytesToHex(hash));
                 long endTime = System.currentTimeMillis();
                 long duration = endTime - startTime;
 
                 log.info("PoW挖矿成功! 区块高度: {}, Nonce: {}, 哈希: {}, 耗时: {}ms",
-                        block.getBlockIndex(), nonce, hash, duration);
+                        block.getBlockIndex(), nonce, block.getCurrentHash(), duration);
 
                 return block;
             }
@@ -77,7 +185,7 @@ public class ConsensusService {
 
             // 每10000次尝试输出一次进度
             if (nonce % 10000 == 0) {
-                log.debug("PoW挖矿中... 已尝试: {}, 当前哈希: {}", nonce, hash);
+                log.debug("PoW挖矿中... 已尝试: {}, 当前哈希: {}", nonce, HashUtil.bytesToHex(hash));
             }
 
             // 防止无限循环（理论上不会发生，但作为保护机制）
@@ -89,14 +197,13 @@ public class ConsensusService {
     }
 
     /**
-     * 计算区块哈希
+     * 计算区块哈希（按区块记录的哈希版本）
      *
      * @param block 区块
      * @return SHA-256哈希值
      */
     public String calculateBlockHash(Block block) {
-        String hashData = block.buildHashData();
-        return HashUtil.sha256(hashData);
+        return BlockHasher.hash(block);
     }
 
     /**
@@ -107,6 +214,11 @@ public class ConsensusService {
      * @return 是否有效
      */
     public boolean validateProofOfWork(Block block) {
+        if (!BlockHasher.isSupported(BlockHasher.versionOf(block))) {
+            log.warn("区块哈希版本不支持 - 区块: {}, 版本: {}", block.getBlockIndex(), block.getHashVersion());
+            return false;
+        }
+
         // 重新计算哈希
         String calculatedHash = calculateBlockHash(block);
 
@@ -129,19 +241,32 @@ public class ConsensusService {
     }
 
     /**
-     * 验证区块哈希链
-     * 检查当前区块的previousHash是否与前一区块的currentHash一致
+     * 验证区块哈希链（只有前一区块，时间戳须大于前一区块）
      *
      * @param currentBlock  当前区块
      * @param previousBlock 前一区块
      * @return 是否有效
      */
     public boolean validateBlockLink(Block currentBlock, Block previousBlock) {
+        List<Block> recent = previousBlock == null ? Collections.emptyList() : Collections.singletonList(previousBlock);
+        return validateBlockLink(currentBlock, recent);
+    }
+
+    /**
+     * 验证区块哈希链
+     * 检查当前区块的previousHash是否与前一区块的currentHash一致，以及区块时间戳是否合理
+     *
+     * @param currentBlock 当前区块
+     * @param recent       当前区块之前的区块（按高度升序，最后一个为前一区块），用于时间戳中位数检查
+     * @return 是否有效
+     */
+    public boolean validateBlockLink(Block currentBlock, List<Block> recent) {
         if (currentBlock.isGenesisBlock()) {
             // 创世区块的previousHash应该为"0"
             return "0".equals(currentBlock.getPreviousHash());
         }
 
+        Block previousBlock = recent.isEmpty() ? null : recent.get(recent.size() - 1);
         if (previousBlock == null) {
             log.warn("前一区块为空 - 当前区块: {}", currentBlock.getBlockIndex());
             return false;
@@ -161,9 +286,74 @@ public class ConsensusService {
             return false;
         }
 
+        // 哈希版本只能升级，不允许新区块退回旧版本
+        if (BlockHasher.versionOf(currentBlock) < BlockHasher.versionOf(previousBlock)) {
+            log.warn("区块哈希版本回退 - 区块: {}, 版本: {}, 前一区块版本: {}", currentBlock.getBlockIndex(),
+                    BlockHasher.versionOf(currentBlock), BlockHasher.versionOf(previousBlock));
+            return false;
+        }
+
+        // 时间戳规则只用于难度调整，生效高度之前的区块按原规则不检查
+        if (currentBlock.getBlockIndex() < activationHeight) {
+            return true;
+        }
+        return validateTimestamp(currentBlock, recent);
+    }
+
+    /**
+     * 验证区块时间戳：大于前 median-window 个区块时间戳的中位数，且不超过本地时间 + max-future-drift-ms
+     *
+     * @param block  区块
+     * @param recent 该区块之前的区块（按高度升序）
+     * @return 是否有效
+     */
+    public boolean validateTimestamp(Block block, List<Block> recent) {
+        if (block.getTimestamp() == null) {
+            log.warn("区块时间戳为空 - 区块: {}", block.getBlockIndex());
+            return false;
+        }
+        long medianTimePast = medianTimePast(recent);
+        if (block.getTimestamp() <= medianTimePast) {
+            log.warn("区块时间戳过早 - 区块: {}, 时间戳: {}, 前{}个区块中位数: {}",
+                    block.getBlockIndex(), block.getTimestamp(), Math.min(medianWindow, recent.size()), medianTimePast);
+            return false;
+        }
+        long latestAllowed = System.currentTimeMillis() + maxFutureDriftMs;
+        if (block.getTimestamp() > latestAllowed) {
+            log.warn("区块时间戳超前 - 区块: {}, 时间戳: {}, 允许上限: {}",
+                    block.getBlockIndex(), block.getTimestamp(), latestAllowed);
+            return false;
+        }
         return true;
     }
 
+    /**
+     * 新区块的时间戳：本地时间，且不早于链上时间戳中位数 + 1（本地时钟落后时仍能出块）
+     *
+     * @param recent 新区块之前的区块（按高度升序）
+     * @return 时间戳
+     */
+    public long nextTimestamp(List<Block> recent) {
+        return Math.max(System.currentTimeMillis(), medianTimePast(recent) + 1);
+    }
+
+    /**
+     * 最近 median-window 个区块时间戳的中位数，无区块时为 Long.MIN_VALUE
+     */
+    private long medianTimePast(List<Block> recent) {
+        if (recent.isEmpty()) {
+            return Long.MIN_VALUE;
+        }
+        List<Block> window = recent.subList(Math.max(0, recent.size() - medianWindow), recent.size());
+        long[] timestamps = new long[window.size()];
+        for (int i = 0; i < window.size(); i++) {
+            Long timestamp = window.get(i).getTimestamp();
+            timestamps[i] = timestamp == null ? Long.MIN_VALUE : timestamp;
+        }
+        Arrays.sort(timestamps);
+        return timestamps[timestamps.length / 2];
+    }
+
     /**
      * 完整验证区块
      * 包括PoW验证和哈希链验证
@@ -173,13 +363,26 @@ public class ConsensusService {
      * @return 是否有效
      */
     public boolean validateBlock(Block currentBlock, Block previousBlock) {
+        List<Block> recent = previousBlock == null ? Collections.emptyList() : Collections.singletonList(previousBlock);
+        return validateBlock(currentBlock, recent);
+    }
+
+    /**
+     * 完整验证区块
+     * 包括PoW验证和哈希链验证
+     *
+     * @param currentBlock 当前区块
+     * @param recent       当前区块之前的区块（按高度升序，最后一个为前一区块）
+     * @return 是否有效
+     */
+    public boolean validateBlock(Block currentBlock, List<Block> recent) {
         // 验证PoW
         if (!validateProofOfWork(currentBlock)) {
             return false;
         }
 
         // 验证哈希链
-        if (!validateBlockLink(currentBlock, previousBlock)) {
+        if (!validateBlockLink(currentBlock, recent)) {
             return false;
         }
 
@@ -188,7 +391,134 @@ public class ConsensusService {
     }
 
     /**
-     * 获取当前难度
+     * 验证整条区块链
+     * 各区块的PoW互不依赖，先并行校验；再顺序校验哈希链和各高度的难度
+     *
+     * @param chain 区块链（按高度升序，第一个为创世区块）
+     * @return 是否有效
+     */
+    public boolean validateChain(List<Block> chain) {
+        if (chain == null || chain.isEmpty()) {
+            return false;
+        }
+
+        if (!chain.get(0).isGenesisBlock()) {
+            log.warn("第一个区块不是创世区块");
+            return false;
+        }
+
+        if (!chain.parallelStream().allMatch(this::validateProofOfWork)) {
+            return false;
+        }
+
+        for (int i = 0; i < chain.size(); i++) {
+            Block block = chain.get(i);
+            if (i > 0 && !validateBlockLink(block, chain.subList(Math.max(0, i - medianWindow), i))) {
+                log.warn("区块验证失败 - 区块高度: {}", block.getBlockIndex());
+                return false;
+            }
+            if (block.getBlockIndex() >= activationHeight) {
+                int expected = expectedDifficulty(block.getBlockIndex(),
+                        chain.subList(Math.max(0, i - retargetInterval), i));
+                if (block.getDifficulty() == null || block.getDifficulty() != expected) {
+                    log.warn("区块难度不符 - 区块高度: {}, 难度: {}, 应为: {}",
+                            block.getBlockIndex(), block.getDifficulty(), expected);
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 是否为难度调整高度（生效高度之后每 interval 个区块一次）
+     *
+     * @param height 区块高度
+     * @return 是否调整
+     */
+    public boolean isRetargetHeight(long height) {
+        return height > activationHeight && (height - activationHeight) % retargetInterval == 0;
+    }
+
+    /**
+     * 难度调整周期（区块数）
+     *
+     * @return 周期
+     */
+    public int getRetargetInterval() {
+        return retargetInterval;
+    }
+
+    /**
+     * 出块、验证新区块时需要的历史区块数（难度调整周期与时间戳中位数窗口的较大者）
+     *
+     * @return 区块数
+     */
+    public int getRecentWindow() {
+        return Math.max(retargetInterval, medianWindow);
+    }
+
+    /**
+     * 计算指定高度区块应使用的难度
+     *
+     * 难度为16进制前导0的个数，每加1工作量变为16倍，因此每次调整最多±1：
+     * 取上一周期各区块间隔的中位数（区块按需出块，空闲期的长间隔不应主导结果），
+     * 与目标间隔之比低于1/4时加1、高于4倍时减1（即取调整后在对数尺度上最接近目标的难度），
+     * 结果限制在 [min-difficulty, max-difficulty]。
+     *
+     * @param height 区块高度
+     * @param recent 该高度之前的区块（按高度升序，最后一个为前一区块）；
+     *               调整高度需包含至少 interval 个区块，其他高度只需前一区块
+     * @return 难度
+     */
+    public int expectedDifficulty(long height, List<Block> recent) {
+        if (height <= activationHeight || recent.isEmpty()) {
+            return initialDifficulty();
+        }
+        Block previous = recent.get(recent.size() - 1);
+        int previousDifficulty = previous.getDifficulty() != null ? previous.getDifficulty() : difficulty;
+        if (!isRetargetHeight(height)) {
+            return clampDifficulty(previousDifficulty);
+        }
+        if (recent.size() < retargetInterval) {
+            throw new IllegalArgumentException("难度调整需要前 " + retargetInterval + " 个区块，实际: " + recent.size());
+        }
+
+        List<Block> window = recent.subList(recent.size() - retargetInterval, recent.size());
+        long[] gaps = new long[window.size() - 1];
+        for (int i = 1; i < window.size(); i++) {
+            gaps[i - 1] = Math.max(0L, window.get(i).getTimestamp() - window.get(i - 1).getTimestamp());
+        }
+        Arrays.sort(gaps);
+        long medianGap = gaps[gaps.length / 2];
+
+        int adjusted = previousDifficulty;
+        if (medianGap * 4 < targetBlockTimeMs) {
+            adjusted++;
+        } else if (medianGap > targetBlockTimeMs * 4) {
+            adjusted--;
+        }
+        adjusted = clampDifficulty(adjusted);
+        if (adjusted != previousDifficulty) {
+            log.debug("难度调整 - 高度: {}, 出块间隔中位数: {}ms, 目标: {}ms, 难度: {} -> {}",
+                    height, medianGap, targetBlockTimeMs, previousDifficulty, adjusted);
+        }
+        return adjusted;
+    }
+
+    /**
+     * 初始难度：仅在启用难度调整时限制在 [min-difficulty, max-difficulty]，固定难度时按配置原值
+     */
+    private int initialDifficulty() {
+        return retargetEnabled ? clampDifficulty(difficulty) : difficulty;
+    }
+
+    private int clampDifficulty(int value) {
+        return Math.max(minDifficulty, Math.min(maxDifficulty, value));
+    }
+
+    /**
+     * 获取初始难度
      *
      * @return 难度值
      */
@@ -206,7 +536,7 @@ public class ConsensusService {
     }
 
     /**
-     * 设置难度（用于测试）
+     * 设置初始难度（用于测试，难度调整生效后只影响创世区块）
      *
      * @param difficulty 新的难度值
      */
@@ -0,0 +1,80 @@
+package com.blockchain.exam.blockchain.service;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
+import com.blockchain.exam.blockchain.entity.Transaction;
+import com.blockchain.exam.blockchain.mapper.TransactionMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+/**
+ * 交易派生列回填服务
+ *
+ * 新交易入库时由自动填充计算派生列（见 Transaction#deriveKeys），
+ * 升级前已入库的交易派生列为空，启动后按ID游标分批解码交易数据并回填。
+ * 回填后不再有空值，之后每次启动只需一次索引查询。
+ *
+ * @author Claude Code
+ * @since 2025-11-25
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class TransactionKeyBackfillService {
+
+    private static final int BATCH_SIZE = 200;
+
+    private final TransactionMapper transactionMapper;
+
+    /**
+     * 应用启动完成后回填
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillOnStartup() {
+        try {
+            int updated = backfill();
+            if (updated > 0) {
+                log.info("交易派生列回填完成 - 回填交易数: {}", updated);
+            }
+        } catch (Exception e) {
+            log.error("交易派生列回填失败，请确认已执行 docs/migration_transaction_keys.sql", e);
+        }
+    }
+
+    /**
+     * 回填派生列为空的交易
+     *
+     * @return 回填行数
+     */
+    public int backfill() {
+        int updated = 0;
+        long lastId = 0;
+        while (true) {
+            List<Transaction> rows = transactionMapper.selectList(new LambdaQueryWrapper<Transaction>()
+                    .select(Transaction::getId, Transaction::getTransactionData)
+                    .and(w -> w.isNull(Transaction::getPaperId).or().isNull(Transaction::getPayloadHash))
+                    .gt(Transaction::getId, lastId)
+                    .orderByAsc(Transaction::getId)
+                    .last("LIMIT " + BATCH_SIZE));
+            if (rows.isEmpty()) {
+                return updated;
+            }
+            for (Transaction row : rows) {
+                lastId = row.getId();
+                row.deriveKeys();
+                // 保留原更新时间，只写派生列
+                transactionMapper.update(null, new LambdaUpdateWrapper<Transaction>()
+                        .set(Transaction::getPaperId, row.getPaperId())
+                        .set(Transaction::getPayloadHash, row.getPayloadHash())
+                        .setSql("update_time = update_time")
+                        .eq(Transaction::getId, row.getId()));
+                updated++;
+            }
+        }
+    }
+}
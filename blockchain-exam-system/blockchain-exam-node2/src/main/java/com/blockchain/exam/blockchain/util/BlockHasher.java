@@ -0,0 +1,270 @@
+package com.blockchain.exam.blockchain.util;
+
+import com.blockchain.exam.blockchain.entity.Block;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 区块哈希计算工具类（带版本的哈希方案）
+ *
+ * 版本1（历史区块，hashVersion 为空）：
+ * SHA-256(blockIndex + previousHash + timestamp + data + nonce)，即 {@link Block#buildHashData()}
+ *
+ * 版本2：规范化的定长/长度前缀二进制编码，不依赖字符串拼接和JSON字段顺序
+ * <pre>
+ * header = u8 版本号
+ *        | i64 blockIndex
+ *        | u32 长度 + UTF-8 previousHash
+ *        | i64 timestamp
+ *        | i32 difficulty
+ *        | 32字节 payloadDigest = SHA-256(canonical(data))
+ *        | i32 nonce
+ * </pre>
+ * canonical(data) 将区块JSON解析后逐值编码（整数均为大端序）：
+ * - 'N' null / 'T' true / 'F' false
+ * - 'I' 整数、'D' 小数：u32 长度 + 十进制文本（小数去除末尾0）
+ * - 'S' 字符串：u32 长度 + UTF-8
+ * - 'A' 数组：u32 元素数 + 各元素
+ * - 'O' 对象：u32 字段数 + 按键的UTF-8字节序排列的（键, 值）
+ * - 'R' 非JSON数据：u32 长度 + UTF-8原文
+ * 同一份区块数据无论字段顺序、空白如何，在任何节点、任何JVM上的编码结果都相同。
+ *
+ * 两个版本的 nonce 都位于哈希输入末尾，PoW 时先对其余部分计算一次摘要状态（midstate），
+ * 每个 nonce 只需克隆该状态并补充 nonce 字节。
+ *
+ * @author Claude Code
+ * @since 2025-11-25
+ */
+public class BlockHasher {
+
+    /**
+     * 版本1：字符串拼接（历史区块）
+     */
+    public static final int VERSION_LEGACY = 1;
+
+    /**
+     * 版本2：规范化二进制编码
+     */
+    public static final int VERSION_CANONICAL = 2;
+
+    private static final String ALGORITHM = "SHA-256";
+
+    /**
+     * 重复键、尾随内容都视为非JSON数据，按原文编码，避免不同原文得到相同摘要
+     */
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper()
+            .enable(JsonParser.Feature.STRICT_DUPLICATE_DETECTION)
+            .enable(DeserializationFeature.FAIL_ON_TRAILING_TOKENS);
+
+    private BlockHasher() {
+    }
+
+    /**
+     * 区块使用的哈希版本（未记录版本的历史区块为版本1）
+     *
+     * @param block 区块
+     * @return 哈希版本
+     */
+    public static int versionOf(Block block) {
+        return block.getHashVersion() == null ? VERSION_LEGACY : block.getHashVersion();
+    }
+
+    /**
+     * 是否支持该哈希版本
+     *
+     * @param version 哈希版本
+     * @return 是否支持
+     */
+    public static boolean isSupported(int version) {
+        return version == VERSION_LEGACY || version == VERSION_CANONICAL;
+    }
+
+    /**
+     * 计算区块哈希（按区块记录的版本）
+     *
+     * @param block 区块
+     * @return 64位16进制哈希值
+     */
+    public static String hash(Block block) {
+        return HashUtil.bytesToHex(finish(midstate(block), versionOf(block), block.getNonce()));
+    }
+
+    /**
+     * 计算除 nonce 外全部哈希输入的摘要状态
+     *
+     * @param block 区块
+     * @return 摘要状态（调用 {@link #finish} 前不要直接使用）
+     */
+    public static MessageDigest midstate(Block block) {
+        int version = versionOf(block);
+        MessageDigest digest = newDigest();
+        if (version == VERSION_LEGACY) {
+            String prefix = "" + block.getBlockIndex() + block.getPreviousHash() + block.getTimestamp() + block.getData();
+            digest.update(prefix.getBytes(StandardCharsets.UTF_8));
+        } else if (version == VERSION_CANONICAL) {
+            digest.update((byte) VERSION_CANONICAL);
+            updateLong(digest, block.getBlockIndex() == null ? 0L : block.getBlockIndex());
+            updateString(digest, block.getPreviousHash() == null ? "" : block.getPreviousHash());
+            updateLong(digest, block.getTimestamp() == null ? 0L : block.getTimestamp());
+            updateInt(digest, block.getDifficulty() == null ? 0 : block.getDifficulty());
+            digest.update(payloadDigest(block.getData()));
+        } else {
+            throw new IllegalStateException("不支持的区块哈希版本: " + version);
+        }
+        return digest;
+    }
+
+    /**
+     * 在摘要状态上补充 nonce 得到区块哈希，摘要状态本身不变，可重复使用
+     *
+     * @param midstate 摘要状态
+     * @param version  哈希版本
+     * @param nonce    随机数
+     * @return 哈希值字节数组
+     */
+    public static byte[] finish(MessageDigest midstate, int version, Integer nonce) {
+        MessageDigest digest = copy(midstate);
+        if (version == VERSION_LEGACY) {
+            digest.update(String.valueOf(nonce).getBytes(StandardCharsets.UTF_8));
+        } else {
+            updateInt(digest, nonce == null ? 0 : nonce);
+        }
+        return digest.digest();
+    }
+
+    /**
+     * 检查哈希是否满足难度要求（16进制表示的前 difficulty 位为0）
+     * 直接检查字节，PoW 循环中无需先转换为16进制字符串
+     *
+     * @param hash       哈希值字节数组
+     * @param difficulty 难度
+     * @return 是否满足
+     */
+    public static boolean meetsDifficulty(byte[] hash, int difficulty) {
+        if (difficulty > hash.length * 2) {
+            return false;
+        }
+        int fullBytes = difficulty / 2;
+        for (int i = 0; i < fullBytes; i++) {
+            if (hash[i] != 0) {
+                return false;
+            }
+        }
+        return difficulty % 2 == 0 || (hash[fullBytes] & 0xF0) == 0;
+    }
+
+    /**
+     * 区块数据的规范化摘要
+     *
+     * @param data 区块数据（JSON）
+     * @return SHA-256(canonical(data))
+     */
+    public static byte[] payloadDigest(String data) {
+        MessageDigest digest = newDigest();
+        if (data == null) {
+            digest.update((byte) 'N');
+            return digest.digest();
+        }
+        JsonNode root;
+        try {
+            root = OBJECT_MAPPER.readTree(data);
+        } catch (JsonProcessingException e) {
+            root = null;
+        }
+        if (root == null || root.isMissingNode()) {
+            digest.update((byte) 'R');
+            updateString(digest, data);
+        } else {
+            updateNode(digest, root);
+        }
+        return digest.digest();
+    }
+
+    private static void updateNode(MessageDigest digest, JsonNode node) {
+        if (node.isNull()) {
+            digest.update((byte) 'N');
+        } else if (node.isBoolean()) {
+            digest.update((byte) (node.booleanValue() ? 'T' : 'F'));
+        } else if (node.isIntegralNumber()) {
+            digest.update((byte) 'I');
+            updateString(digest, node.bigIntegerValue().toString());
+        } else if (node.isNumber()) {
+            digest.update((byte) 'D');
+            updateString(digest, node.decimalValue().stripTrailingZeros().toPlainString());
+        } else if (node.isTextual()) {
+            digest.update((byte) 'S');
+            updateString(digest, node.textValue());
+        } else if (node.isArray()) {
+            digest.update((byte) 'A');
+            updateInt(digest, node.size());
+            for (JsonNode element : node) {
+                updateNode(digest, element);
+            }
+        } else if (node.isObject()) {
+            List<Map.Entry<byte[], JsonNode>> fields = new ArrayList<>(node.size());
+            Iterator<Map.Entry<String, JsonNode>> iterator = node.fields();
+            while (iterator.hasNext()) {
+                Map.Entry<String, JsonNode> field = iterator.next();
+                fields.add(Map.entry(field.getKey().getBytes(StandardCharsets.UTF_8), field.getValue()));
+            }
+            fields.sort((a, b) -> Arrays.compareUnsigned(a.getKey(), b.getKey()));
+            digest.update((byte) 'O');
+            updateInt(digest, fields.size());
+            for (Map.Entry<byte[], JsonNode> field : fields) {
+                updateInt(digest, field.getKey().length);
+                digest.update(field.getKey());
+                updateNode(digest, field.getValue());
+            }
+        } else {
+            // 二进制、POJO等节点不会由JSON文本解析产生
+            digest.update((byte) 'R');
+            updateString(digest, node.toString());
+        }
+    }
+
+    private static void updateString(MessageDigest digest, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        updateInt(digest, bytes.length);
+        digest.update(bytes);
+    }
+
+    private static void updateInt(MessageDigest digest, int value) {
+        digest.update((byte) (value >>> 24));
+        digest.update((byte) (value >>> 16));
+        digest.update((byte) (value >>> 8));
+        digest.update((byte) value);
+    }
+
+    private static void updateLong(MessageDigest digest, long value) {
+        updateInt(digest, (int) (value >>> 32));
+        updateInt(digest, (int) value);
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance(ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256算法不可用", e);
+        }
+    }
+
+    private static MessageDigest copy(MessageDigest midstate) {
+        try {
+            return (MessageDigest) midstate.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException("SHA-256摘要状态不可复制", e);
+        }
+    }
+}
@@ -1,7 +1,9 @@
 package com.blockchain.exam.p2p.service;
 
+import com.blockchain.exam.blockchain.entity.ChainEvent;
 import com.blockchain.exam.blockchain.entity.Transaction;
 import com.blockchain.exam.blockchain.mapper.TransactionMapper;
+import com.blockchain.exam.blockchain.service.ChainEventService;
 import com.blockchain.exam.p2p.entity.P2PNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.extern.slf4j.Slf4j;
@@ -44,6 +46,12 @@ public class P2PTransactionService {
     @Autowired
     private ObjectMapper objectMapper;
 
+    @Autowired
+    private ChainEventService chainEventService;
+
+    @Autowired
+    private P2PBlobService blobService;
+
     /**
      * 当前节点ID
      */
@@ -57,6 +65,9 @@ public class P2PTransactionService {
      * @return 成功广播的节点数
      */
     public int broadcastTransaction(Transaction transaction) {
+        // 本地新交易均经由此处广播，顺带通知交易池订阅者
+        publishMempoolAdded(transaction);
+
         List<P2PNode> neighbors = p2pNodeService.getNeighborNodes();
 
         if (neighbors.isEmpty()) {
@@ -142,6 +153,10 @@ public class P2PTransactionService {
             transaction.setBlockIndex(null);
 
             transactionMapper.insert(transaction);
+            publishMempoolAdded(transaction);
+
+            // 交易引用的数据块（如加密试卷内容）在后台从来源节点拉取
+            blobService.replicateRefs(transaction.getTransactionData(), transaction.getCreatorNode());
 
             log.info("接收新交易 - 来源节点: {}, 类型: {}",
                     transaction.getCreatorNode(), transaction.getTransactionType());
@@ -155,18 +170,17 @@ public class P2PTransactionService {
 
     /**
      * 检查交易是否已存在
-     * 使用交易数据和类型作为唯一性判断
+     * 使用交易类型、创建节点和交易数据哈希作为唯一性判断
      *
      * @param transaction 交易
      * @return 是否存在
      */
     private boolean isTransactionExists(Transaction transaction) {
-        // 简化版本：查询相同类型和数据的交易
-        // 实际项目中可能需要更复杂的去重逻辑（如使用交易哈希）
         com.baomidou.mybatisplus.core.conditions.query.QueryWrapper<Transaction> queryWrapper =
                 new com.baomidou.mybatisplus.core.conditions.query.QueryWrapper<>();
+        // 存储形式取决于入库时的压缩配置，按解码后数据的哈希（payload_hash 列，有索引）匹配
+        queryWrapper.eq("payload_hash", Transaction.payloadHashOf(transaction.getTransactionData()));
         queryWrapper.eq("transaction_type", transaction.getTransactionType());
-        queryWrapper.eq("transaction_data", transaction.getTransactionData());
         queryWrapper.eq("creator_node", transaction.getCreatorNode());
 
         Long count = transactionMapper.selectCount(queryWrapper);
@@ -220,4 +234,18 @@ public class P2PTransactionService {
 
         return stats;
     }
+
+    /**
+     * 发布交易入池事件
+     *
+     * @param transaction 新入池的交易
+     */
+    private void publishMempoolAdded(Transaction transaction) {
+        java.util.Map<String, Object> data = new java.util.HashMap<>();
+        data.put("action", "ADDED");
+        data.put("transactionId", transaction.getId());
+        data.put("transactionType", transaction.getTransactionType());
+        data.put("creatorNode", transaction.getCreatorNode());
+        chainEventService.publish(ChainEvent.MEMPOOL_CHANGED, data);
+    }
 }
@@ -2,6 +2,9 @@ package com.exam.approval.common.exception;
 
 import com.exam.approval.common.result.Result;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.BindException;
 import org.springframework.validation.FieldError;
 import org.springframework.web.bind.MethodArgumentNotValidException;
@@ -22,11 +25,19 @@ public class GlobalExceptionHandler {
 
     /**
      * 业务异常
+     *
+     * 限流/线程池繁忙（429）同时设置HTTP状态码和Retry-After，便于客户端退避重试
      */
     @ExceptionHandler(BusinessException.class)
-    public Result<?> handleBusinessException(BusinessException e, HttpServletRequest request) {
+    public ResponseEntity<Result<?>> handleBusinessException(BusinessException e, HttpServletRequest request) {
         log.error("业务异常：{} - {}", request.getRequestURI(), e.getMessage());
-        return Result.error(e.getCode(), e.getMessage());
+        Result<?> body = Result.error(e.getCode(), e.getMessage());
+        if (e.getCode() != null && e.getCode() == HttpStatus.TOO_MANY_REQUESTS.value()) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, "1")
+                    .body(body);
+        }
+        return ResponseEntity.ok(body);
     }
 
     /**
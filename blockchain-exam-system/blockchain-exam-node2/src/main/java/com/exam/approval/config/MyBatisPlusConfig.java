@@ -4,6 +4,7 @@ import com.baomidou.mybatisplus.autoconfigure.ConfigurationCustomizer;
 import com.baomidou.mybatisplus.core.handlers.MetaObjectHandler;
 import com.baomidou.mybatisplus.extension.plugins.MybatisPlusInterceptor;
 import com.baomidou.mybatisplus.extension.plugins.inner.PaginationInnerInterceptor;
+import com.blockchain.exam.blockchain.entity.Transaction;
 import com.exam.approval.interceptor.MybatisCryptoInterceptor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.ibatis.reflection.MetaObject;
@@ -69,6 +70,11 @@ public class MyBatisPlusConfig {
 
             // 填充更新时间
             this.strictInsertFill(metaObject, "updateTime", LocalDateTime.class, LocalDateTime.now());
+
+            // 交易池：由交易数据派生可索引的查询列
+            if (metaObject.getOriginalObject() instanceof Transaction) {
+                ((Transaction) metaObject.getOriginalObject()).deriveKeys();
+            }
         }
 
         /**
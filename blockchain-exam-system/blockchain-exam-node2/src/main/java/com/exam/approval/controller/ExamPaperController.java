@@ -1,15 +1,20 @@
 package com.exam.approval.controller;
 
+import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.blockchain.exam.blockchain.util.HashUtil;
-import com.blockchain.exam.integration.BlockchainIntegrationService;
 import com.exam.approval.common.result.Result;
+import com.exam.approval.dto.CursorPage;
+import com.exam.approval.dto.ExamPaperSummary;
 import com.exam.approval.dto.PaperDecryptRequest;
 import com.exam.approval.dto.PaperEncryptedRequest;
+import com.exam.approval.dto.PaperQuery;
+import com.exam.approval.dto.SignatureVerifyRequest;
 import com.exam.approval.entity.ExamPaper;
 import com.exam.approval.entity.PaperDecryptRecord;
 import com.exam.approval.entity.User;
 import com.exam.approval.security.util.RSAUtil;
 import com.exam.approval.service.ExamPaperService;
+import com.exam.approval.service.FileService;
 import com.exam.approval.service.PaperCryptoService;
 import com.exam.approval.service.PaperDecryptRecordService;
 import com.exam.approval.service.UserService;
@@ -18,7 +23,6 @@ import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
@@ -50,9 +54,7 @@ public class ExamPaperController {
     private final PaperCryptoService paperCryptoService;
     private final UserService userService;
     private final PaperDecryptRecordService decryptRecordService;
-
-    @Autowired(required = false)
-    private BlockchainIntegrationService blockchainService;
+    private final FileService fileService;
 
     /**
      * 创建试卷（教师）- 支持加密数据
@@ -105,25 +107,10 @@ public class ExamPaperController {
             }
 
             // 6. 保存试卷（content字段会被MybatisCryptoInterceptor自动加密）
-            Long paperId = examPaperService.createPaper(paper);
-
-            // 7. 将试卷哈希上链（区块链存证）
-            if (blockchainService != null && paper.getContentHash() != null) {
-                try {
-                    Long txId = blockchainService.submitEncryptedPaperToChain(
-                            paperId, paper.getContent(), paper.getContentHash(),
-                            teacherId, teacherName, paper.getTitle());
-                    log.info("试卷已上链 - 交易ID: {}, 试卷ID: {}, 哈希: {}",
-                            txId, paperId, paper.getContentHash());
-                    // 更新试卷的区块链交易ID
-                    paper.setId(paperId);
-                    paper.setBlockchainTxId(txId);
-                    paper.setChainTime(java.time.LocalDateTime.now());
-                    examPaperService.updatePaper(paper);
-                } catch (Exception e) {
-                    log.warn("试卷上链失败（不影响试卷创建）: {}", e.getMessage());
-                }
-            }
+            // 附件哈希直接取自内容寻址路径，无需再读一遍文件；保存后 filePath 会被加密，需提前取出
+            // 7. 试卷哈希上链（区块链存证）随保存事务写入发件箱，提交后异步上链并回填交易ID
+            String fileHash = fileService.getContentHash(paper.getFilePath());
+            Long paperId = examPaperService.createPaper(paper, fileHash);
 
             log.info("教师创建加密试卷成功: teacherId={}, paperId={}, title={}",
                     teacherId, paperId, paper.getTitle());
@@ -172,11 +159,11 @@ public class ExamPaperController {
     @ApiOperation("查询我的试卷")
     @GetMapping("/my-papers")
     @PreAuthorize("hasRole('TEACHER')")
-    public Result<List<ExamPaper>> getMyPapers(
+    public Result<List<ExamPaperSummary>> getMyPapers(
             @RequestParam(required = false) String status) {
         Long teacherId = SecurityUtil.getCurrentUserId();
 
-        List<ExamPaper> papers = examPaperService.getByTeacherId(teacherId, status);
+        List<ExamPaperSummary> papers = examPaperService.getByTeacherId(teacherId, status);
 
         log.debug("教师查询试卷列表: teacherId={}, status={}, count={}",
                 teacherId, status, papers.size());
@@ -191,7 +178,7 @@ public class ExamPaperController {
     @ApiOperation("查询所有试卷")
     @GetMapping("/all")
     @PreAuthorize("hasAnyRole('DEPT_ADMIN', 'COLLEGE_ADMIN')")
-    public Result<List<ExamPaper>> getAllPapers(
+    public Result<List<ExamPaperSummary>> getAllPapers(
             @RequestParam(required = false) String status,
             @RequestParam(required = false) String department) {
 
@@ -203,20 +190,76 @@ public class ExamPaperController {
             User currentUser = userService.getUserById(userId);
             String userDepartment = currentUser != null ? currentUser.getDepartment() : null;
 
-            List<ExamPaper> papers = examPaperService.getAll(status, userDepartment);
+            List<ExamPaperSummary> papers = examPaperService.getAll(status, userDepartment);
             log.debug("系管理员查询试卷列表: userId={}, department={}, status={}, count={}",
                     userId, userDepartment, status, papers.size());
             return Result.success(papers);
         }
 
         // 院管理员：可以看所有部门
-        List<ExamPaper> papers = examPaperService.getAll(status, department);
+        List<ExamPaperSummary> papers = examPaperService.getAll(status, department);
         log.debug("院管理员查询试卷列表: status={}, department={}, count={}",
                 status, department, papers.size());
 
         return Result.success(papers);
     }
 
+    /**
+     * 分页查询我的试卷（教师）
+     * 支持按状态、创建时间范围过滤
+     */
+    @ApiOperation("分页查询我的试卷")
+    @GetMapping("/my-papers/page")
+    @PreAuthorize("hasRole('TEACHER')")
+    public Result<IPage<ExamPaperSummary>> pageMyPapers(PaperQuery query) {
+        query.setCreatorId(SecurityUtil.getCurrentUserId());
+        return Result.success(examPaperService.pagePapers(query));
+    }
+
+    /**
+     * 游标查询我的试卷（教师）
+     */
+    @ApiOperation("游标查询我的试卷")
+    @GetMapping("/my-papers/cursor")
+    @PreAuthorize("hasRole('TEACHER')")
+    public Result<CursorPage<ExamPaperSummary>> scrollMyPapers(PaperQuery query) {
+        query.setCreatorId(SecurityUtil.getCurrentUserId());
+        return Result.success(examPaperService.scrollPapers(query));
+    }
+
+    /**
+     * 分页查询所有试卷（管理员）
+     * 支持按状态、院系、创建人、创建时间范围过滤；系管理员只能看本部门试卷
+     */
+    @ApiOperation("分页查询所有试卷")
+    @GetMapping("/all/page")
+    @PreAuthorize("hasAnyRole('DEPT_ADMIN', 'COLLEGE_ADMIN')")
+    public Result<IPage<ExamPaperSummary>> pageAllPapers(PaperQuery query) {
+        restrictToOwnDepartment(query);
+        return Result.success(examPaperService.pagePapers(query));
+    }
+
+    /**
+     * 游标查询所有试卷（管理员）
+     */
+    @ApiOperation("游标查询所有试卷")
+    @GetMapping("/all/cursor")
+    @PreAuthorize("hasAnyRole('DEPT_ADMIN', 'COLLEGE_ADMIN')")
+    public Result<CursorPage<ExamPaperSummary>> scrollAllPapers(PaperQuery query) {
+        restrictToOwnDepartment(query);
+        return Result.success(examPaperService.scrollPapers(query));
+    }
+
+    /**
+     * 系管理员：强制只能看本部门试卷
+     */
+    private void restrictToOwnDepartment(PaperQuery query) {
+        if ("dept_admin".equals(SecurityUtil.getCurrentUserRole())) {
+            User currentUser = userService.getUserById(SecurityUtil.getCurrentUserId());
+            query.setDepartment(currentUser != null ? currentUser.getDepartment() : null);
+        }
+    }
+
     /**
      * 查询试卷详情
      */
@@ -477,22 +520,9 @@ public class ExamPaperController {
             record.setDecryptTimeMs(timestamp);  // 保存原始毫秒时间戳用于签名验证
             record.setIpAddress(ipAddress);
             record.setSignature(signature);
-            decryptRecordService.saveRecord(record);
-
-            // 解密记录上链
-            if (blockchainService != null) {
-                try {
-                    Long txId = blockchainService.recordDecryptAction(
-                            paperId, currentUserId, currentUser.getRealName(),
-                            currentRole, paper.getContentHash(), signature);
-                    if (txId != null) {
-                        decryptRecordService.updateBlockchainTxId(record.getId(), txId);
-                        log.info("解密记录上链成功 - 交易ID: {}", txId);
-                    }
-                } catch (Exception e) {
-                    log.warn("解密记录上链失败（不影响解密）: {}", e.getMessage());
-                }
-            }
+
+            // 保存解密记录，上链随保存事务写入发件箱，提交后异步上链并回填交易ID
+            decryptRecordService.saveRecordWithAudit(record, paper.getContentHash());
 
             Map<String, Object> data = new java.util.HashMap<>();
             data.put("paperId", paperId);
@@ -544,6 +574,20 @@ public class ExamPaperController {
         return Result.success(data);
     }
 
+    /**
+     * 批量验证解密签名
+     * 按试卷ID或记录ID范围批量核验，用于审计（仅系/院管理员）
+     */
+    @ApiOperation("批量验证解密签名")
+    @PreAuthorize("hasAnyRole('DEPT_ADMIN', 'COLLEGE_ADMIN')")
+    @PostMapping("/verify-decrypt-signatures")
+    public Result<Map<String, Object>> verifyDecryptSignatures(@RequestBody SignatureVerifyRequest request) {
+        // 参数错误、线程池繁忙（429）等业务异常交由全局异常处理器返回
+        List<PaperDecryptRecord> records = decryptRecordService.findForBatchVerify(
+                request.getPaperId(), request.getStartId(), request.getEndId());
+        return Result.success(paperCryptoService.verifyDecryptSignatures(records, request.isOnlyFailures()));
+    }
+
     /**
      * 获取客户端IP地址
      */
@@ -12,6 +12,7 @@ import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
@@ -58,14 +59,16 @@ public class FileController {
 
     /**
      * 下载文件
+     * 边解密边输出，内存占用与文件大小无关；支持单段 Range 请求（断点续传、在线预览拖动）
      */
     @ApiOperation("下载文件")
     @GetMapping("/download")
-    public ResponseEntity<byte[]> downloadFile(@RequestParam("path") String path,
-                                               @RequestParam(value = "filename", required = false) String filename) {
+    public ResponseEntity<StreamingResponseBody> downloadFile(@RequestParam("path") String path,
+                                                              @RequestParam(value = "filename", required = false) String filename,
+                                                              @RequestHeader(value = HttpHeaders.RANGE, required = false) String range) {
         try {
-            // 下载解密后的文件
-            byte[] fileBytes = fileService.downloadFile(path);
+            // 先校验文件并计算明文大小，失败时尚未开始输出，可直接返回错误状态
+            long plainSize = fileService.getPlainSize(path);
 
             // 设置文件名（如果未指定，使用路径中的文件名）
             if (filename == null || filename.isEmpty()) {
@@ -81,11 +84,29 @@ public class FileController {
             HttpHeaders headers = new HttpHeaders();
             headers.setContentType(MediaType.parseMediaType(fileService.getContentType(path)));
             headers.setContentDispositionFormData("attachment", encodedFilename);
-            headers.setContentLength(fileBytes.length);
+            headers.set(HttpHeaders.ACCEPT_RANGES, "bytes");
+
+            long[] bounds = parseRange(range, plainSize);
+            if (bounds == null) {
+                headers.setContentLength(plainSize);
+                log.info("文件下载开始: path={}, filename={}, size={}", path, filename, plainSize);
+                StreamingResponseBody body = out -> fileService.writeDecrypted(path, out);
+                return new ResponseEntity<>(body, headers, HttpStatus.OK);
+            }
+
+            if (bounds.length == 0) {
+                headers.set(HttpHeaders.CONTENT_RANGE, "bytes */" + plainSize);
+                return new ResponseEntity<>(headers, HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE);
+            }
 
-            log.info("文件下载成功: path={}, filename={}", path, filename);
+            long start = bounds[0];
+            long end = bounds[1];
+            headers.setContentLength(end - start + 1);
+            headers.set(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + plainSize);
+            log.info("文件分段下载开始: path={}, range={}-{}, size={}", path, start, end, plainSize);
 
-            return new ResponseEntity<>(fileBytes, headers, HttpStatus.OK);
+            StreamingResponseBody body = out -> fileService.writeDecryptedRange(path, start, end, out);
+            return new ResponseEntity<>(body, headers, HttpStatus.PARTIAL_CONTENT);
 
         } catch (Exception e) {
             log.error("文件下载失败: path={}", path, e);
@@ -93,6 +114,53 @@ public class FileController {
         }
     }
 
+    /**
+     * 解析 Range 请求头（仅支持单段：bytes=a-b / bytes=a- / bytes=-n）
+     *
+     * @param range    Range 请求头
+     * @param fileSize 明文大小
+     * @return null 表示返回完整文件；空数组表示范围不可满足；否则为 [start, end]（包含）
+     */
+    private long[] parseRange(String range, long fileSize) {
+        if (range == null || !range.startsWith("bytes=")) {
+            return null;
+        }
+        String spec = range.substring("bytes=".length()).trim();
+        // 多段范围需要 multipart/byteranges，直接返回完整文件
+        if (spec.contains(",")) {
+            return null;
+        }
+        int dash = spec.indexOf('-');
+        if (dash < 0) {
+            return null;
+        }
+
+        try {
+            String first = spec.substring(0, dash).trim();
+            String last = spec.substring(dash + 1).trim();
+            long start;
+            long end;
+            if (first.isEmpty()) {
+                // 后缀范围：最后 n 个字节
+                long suffix = Long.parseLong(last);
+                if (suffix <= 0) {
+                    return new long[0];
+                }
+                start = Math.max(0, fileSize - suffix);
+                end = fileSize - 1;
+            } else {
+                start = Long.parseLong(first);
+                end = last.isEmpty() ? fileSize - 1 : Math.min(Long.parseLong(last), fileSize - 1);
+            }
+            if (start < 0 || start >= fileSize || end < start) {
+                return new long[0];
+            }
+            return new long[]{start, end};
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
     /**
      * 删除文件
      */
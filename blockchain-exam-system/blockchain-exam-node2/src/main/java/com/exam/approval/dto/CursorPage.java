@@ -0,0 +1,35 @@
+package com.exam.approval.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * 游标分页结果DTO
+ * 不统计总数、不使用OFFSET，翻页成本与页码无关
+ *
+ * @author 网络信息安全大作业
+ * @date 2025-12-01
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CursorPage<T> {
+
+    /**
+     * 当前页记录
+     */
+    private List<T> records;
+
+    /**
+     * 下一页游标（没有更多数据时为null）
+     */
+    private String nextCursor;
+
+    /**
+     * 是否还有更多数据
+     */
+    private boolean hasMore;
+}
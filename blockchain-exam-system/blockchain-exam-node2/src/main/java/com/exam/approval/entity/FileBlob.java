@@ -0,0 +1,61 @@
+package com.exam.approval.entity;
+
+import com.baomidou.mybatisplus.annotation.*;
+import lombok.Data;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * 文件内容寻址存储实体
+ *
+ * 以明文SHA-256作为文件地址，相同内容的附件只加密存储一份；
+ * refCount 记录引用该文件的试卷数，归零且超过保留期后由定时任务回收。
+ *
+ * @author 网络信息安全大作业
+ * @date 2025-12-01
+ */
+@Data
+@TableName("file_blob")
+public class FileBlob implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 主键ID
+     */
+    @TableId(type = IdType.AUTO)
+    private Long id;
+
+    /**
+     * 明文SHA-256（十六进制）
+     */
+    private String contentHash;
+
+    /**
+     * 加密文件相对路径（cas/{哈希前2位}/{哈希}{扩展名}）
+     */
+    private String filePath;
+
+    /**
+     * 明文字节数
+     */
+    private Long plainSize;
+
+    /**
+     * 引用该文件的试卷数
+     */
+    private Integer refCount;
+
+    /**
+     * 创建时间
+     */
+    @TableField(fill = FieldFill.INSERT)
+    private LocalDateTime createTime;
+
+    /**
+     * 更新时间
+     */
+    @TableField(fill = FieldFill.INSERT_UPDATE)
+    private LocalDateTime updateTime;
+}
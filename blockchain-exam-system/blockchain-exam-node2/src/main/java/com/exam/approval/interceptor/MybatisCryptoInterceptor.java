@@ -3,13 +3,17 @@ package com.exam.approval.interceptor;
 import com.exam.approval.common.annotation.Encrypted;
 import com.exam.approval.security.util.AESUtil;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.ibatis.executor.parameter.ParameterHandler;
 import org.apache.ibatis.executor.resultset.ResultSetHandler;
 import org.apache.ibatis.plugin.*;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
 import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
 import java.sql.PreparedStatement;
 import java.sql.Statement;
 import java.util.ArrayList;
@@ -27,6 +31,11 @@ import java.util.Properties;
  * - 拦截ParameterHandler.setParameters() - 参数设置前加密
  * - 拦截ResultSetHandler.handleResultSets() - 结果返回前解密
  *
+ * 密文格式（信封）：ENC:v1:{keyId}:{Base64(IV + 密文 + Tag)}
+ * - 通过固定前缀即可O(1)判断是否已加密，无需正则和Base64解码
+ * - keyId 为主密钥指纹，便于后续密钥轮换
+ * - 旧版无前缀密文仅在读取时识别并解密，写回时自动升级为信封格式（见 CryptoEnvelopeMigrationService）
+ *
  * 注意：通过 MyBatisPlusConfig.configurationCustomizer() 注册，不使用 @Component
  *
  * @author 网络信息安全大作业
@@ -39,31 +48,69 @@ import java.util.Properties;
 })
 public class MybatisCryptoInterceptor implements Interceptor {
 
+    /**
+     * 每个类的加密计划，首次访问时计算并缓存
+     * 没有@Encrypted字段的类（如Block、Transaction）得到空计划，直接跳过
+     */
+    private static final ClassValue<CryptoPlan> CRYPTO_PLANS = new ClassValue<CryptoPlan>() {
+        @Override
+        protected CryptoPlan computeValue(Class<?> type) {
+            return CryptoPlan.build(type);
+        }
+    };
+
+    /**
+     * 密文信封魔数与版本
+     */
+    public static final String ENVELOPE_PREFIX = "ENC:v1:";
+
+    /**
+     * 旧版密文（无前缀Base64）最短长度：12字节IV + 1字节密文 + 16字节Tag = 29字节 → 40个Base64字符
+     */
+    private static final int LEGACY_MIN_LENGTH = 40;
+
     private String masterKey;
 
+    /**
+     * 主密钥加解密上下文（密钥只解码一次，Cipher按线程复用）
+     */
+    private AESUtil.KeyContext masterContext;
+
+    /**
+     * 主密钥指纹（SHA-256前8位十六进制）
+     */
+    private String keyId;
+
     private volatile boolean initialized = false;
 
     /**
      * 设置主密钥（由 Spring 配置类调用）
+     * 主密钥缺失或无效时直接抛出异常使节点启动失败，避免敏感字段以明文落库
+     *
+     * @throws IllegalStateException 主密钥未配置或不是有效的AES密钥
      */
     public void setMasterKey(String masterKey) {
+        if (masterKey == null || masterKey.isEmpty()) {
+            throw new IllegalStateException("MasterKey未配置（crypto.master-key）");
+        }
+        AESUtil.KeyContext context;
+        try {
+            context = AESUtil.forKey(masterKey);
+            // 试加密一次，密钥长度等问题在启动时暴露，而不是在第一次写库时
+            context.encrypt("master-key-check");
+        } catch (Exception e) {
+            throw new IllegalStateException("MasterKey无效（crypto.master-key）: " + e.getMessage(), e);
+        }
         this.masterKey = masterKey;
+        this.keyId = DigestUtils.sha256Hex(masterKey).substring(0, 8);
+        this.masterContext = context;
     }
 
     private void ensureInitialized() {
         if (!initialized) {
             synchronized (this) {
                 if (!initialized) {
-                    if (masterKey != null) {
-                        try {
-                            byte[] keyBytes = java.util.Base64.getDecoder().decode(masterKey);
-                            log.info("加密拦截器初始化成功 - AES密钥: {}字节", keyBytes.length);
-                        } catch (Exception e) {
-                            log.error("MasterKey不是有效的Base64编码", e);
-                        }
-                    } else {
-                        log.error("MasterKey未配置!");
-                    }
+                    log.info("加密拦截器初始化成功 - 密钥ID: {}", keyId);
                     initialized = true;
                 }
             }
@@ -109,13 +156,9 @@ public class MybatisCryptoInterceptor implements Interceptor {
             return;
         }
 
-        Class<?> clazz = obj.getClass();
-        log.debug("加密处理: {}", clazz.getSimpleName());
-
         // 【关键修复】如果是 Map（如 ParamMap），递归处理 Map 中的值
         if (obj instanceof java.util.Map) {
             java.util.Map<?, ?> map = (java.util.Map<?, ?>) obj;
-            log.debug("Map类型，递归处理 {} 个值", map.size());
             for (Object value : map.values()) {
                 if (value != null) {
                     encryptFields(value);
@@ -124,47 +167,36 @@ public class MybatisCryptoInterceptor implements Interceptor {
             return;
         }
 
-        // 跳过基本类型和JDK类
-        if (clazz.isPrimitive() || clazz.getName().startsWith("java.")) {
-            log.debug("跳过JDK类: {}", clazz.getSimpleName());
+        CryptoPlan plan = CRYPTO_PLANS.get(obj.getClass());
+        if (plan.isEmpty()) {
             return;
         }
 
-        Field[] fields = clazz.getDeclaredFields();
-        for (Field field : fields) {
-            if (field.isAnnotationPresent(Encrypted.class)) {
+        String className = obj.getClass().getSimpleName();
+        for (FieldAccessor accessor : plan.fields) {
+            try {
+                String plainText = (String) accessor.handle.get(obj);
+                if (plainText == null || plainText.isEmpty()) {
+                    continue;
+                }
+
+                // 写入时只跳过信封密文；旧版无前缀密文只在读取时识别，
+                // 否则形似Base64的明文会被当作密文以明文落库
+                if (isEnvelope(plainText)) {
+                    log.debug("跳过已加密字段: {}.{}", className, accessor.name);
+                    continue;
+                }
+
                 try {
-                    field.setAccessible(true);
-                    Object value = field.get(obj);
-
-                    if (value instanceof String) {
-                        String plainText = (String) value;
-                        log.debug("@Encrypted字段: {}.{}, 长度={}",
-                            clazz.getSimpleName(), field.getName(),
-                            plainText != null ? plainText.length() : 0);
-
-                        if (plainText != null && !plainText.isEmpty()) {
-                            boolean alreadyEncrypted = isEncrypted(plainText);
-
-                            if (!alreadyEncrypted) {
-                                try {
-                                    String encrypted = AESUtil.encrypt(plainText, masterKey);
-                                    field.set(obj, encrypted);
-                                    log.info("✓ 加密成功: {}.{} ({}字节 → {}字节)",
-                                        clazz.getSimpleName(), field.getName(),
-                                        plainText.length(), encrypted.length());
-                                } catch (Exception encryptEx) {
-                                    log.error("✗ 加密失败: {}.{} - {}",
-                                        clazz.getSimpleName(), field.getName(), encryptEx.getMessage());
-                                }
-                            } else {
-                                log.debug("跳过已加密字段: {}.{}", clazz.getSimpleName(), field.getName());
-                            }
-                        }
-                    }
-                } catch (Exception e) {
-                    log.error("加密字段异常: {}.{} - {}", clazz.getSimpleName(), field.getName(), e.getMessage());
+                    String encrypted = ENVELOPE_PREFIX + keyId + ":" + masterContext.encrypt(plainText);
+                    accessor.handle.set(obj, encrypted);
+                    log.info("✓ 加密成功: {}.{} ({}字节 → {}字节)",
+                        className, accessor.name, plainText.length(), encrypted.length());
+                } catch (Exception encryptEx) {
+                    log.error("✗ 加密失败: {}.{} - {}", className, accessor.name, encryptEx.getMessage());
                 }
+            } catch (Exception e) {
+                log.error("加密字段异常: {}.{} - {}", className, accessor.name, e.getMessage());
             }
         }
     }
@@ -177,80 +209,91 @@ public class MybatisCryptoInterceptor implements Interceptor {
             return;
         }
 
-        Class<?> clazz = obj.getClass();
-        if (clazz.isPrimitive() || clazz.getName().startsWith("java.")) {
+        CryptoPlan plan = CRYPTO_PLANS.get(obj.getClass());
+        if (plan.isEmpty()) {
             return;
         }
 
-        Field[] fields = clazz.getDeclaredFields();
-        for (Field field : fields) {
-            if (field.isAnnotationPresent(Encrypted.class)) {
+        String className = obj.getClass().getSimpleName();
+        for (FieldAccessor accessor : plan.fields) {
+            try {
+                String encrypted = (String) accessor.handle.get(obj);
+                if (encrypted == null || encrypted.isEmpty()) {
+                    continue;
+                }
+
+                // 先判断是否是加密数据，避免对明文数据进行解密
+                String payload;
+                if (isEnvelope(encrypted)) {
+                    payload = openEnvelope(encrypted, className, accessor.name);
+                } else if (looksLikeLegacyCiphertext(encrypted)) {
+                    payload = encrypted;
+                } else {
+                    log.debug("跳过明文数据: {}.{}", className, accessor.name);
+                    continue;
+                }
+
                 try {
-                    field.setAccessible(true);
-                    Object value = field.get(obj);
-
-                    if (value instanceof String) {
-                        String encrypted = (String) value;
-
-                        if (encrypted != null && !encrypted.isEmpty()) {
-                            // 先判断是否是加密数据，避免对明文数据进行解密
-                            if (!isEncrypted(encrypted)) {
-                                log.debug("跳过明文数据: {}.{}", clazz.getSimpleName(), field.getName());
-                                continue;
-                            }
-
-                            try {
-                                String decrypted = AESUtil.decrypt(encrypted, masterKey);
-                                field.set(obj, decrypted);
-                                log.info("✓ 解密成功: {}.{} ({}字节 → {}字节)",
-                                    clazz.getSimpleName(), field.getName(),
-                                    encrypted.length(), decrypted.length());
-                            } catch (Exception e) {
-                                log.warn("✗ 解密失败: {}.{} - {}",
-                                    clazz.getSimpleName(), field.getName(), e.getMessage());
-                            }
-                        }
-                    }
+                    String decrypted = masterContext.decrypt(payload);
+                    accessor.handle.set(obj, decrypted);
+                    log.info("✓ 解密成功: {}.{} ({}字节 → {}字节)",
+                        className, accessor.name, encrypted.length(), decrypted.length());
                 } catch (Exception e) {
-                    log.error("解密字段异常: {}.{} - {}", clazz.getSimpleName(), field.getName(), e.getMessage());
+                    log.warn("✗ 解密失败: {}.{} - {}", className, accessor.name, e.getMessage());
                 }
+            } catch (Exception e) {
+                log.error("解密字段异常: {}.{} - {}", className, accessor.name, e.getMessage());
             }
         }
     }
 
     /**
-     * 判断是否已加密（Base64格式且符合AES-GCM结构）
+     * 判断是否为信封格式密文（O(1)前缀判断）
+     *
+     * @param text 字段值
+     * @return 是否为信封格式
      */
-    private boolean isEncrypted(String text) {
-        if (text == null || text.isEmpty()) {
-            return false;
-        }
+    public static boolean isEnvelope(String text) {
+        return text != null && text.startsWith(ENVELOPE_PREFIX);
+    }
 
-        // 极短字符串（<16字符）肯定不是加密数据
-        // AES-GCM 加密后：12字节IV + 至少1字节密文 + 16字节Tag = 至少29字节
-        // Base64编码后：至少 ceil(29*4/3) = 39字符
-        if (text.length() < 16) {
-            return false;
+    /**
+     * 拆开信封，返回Base64密文部分
+     */
+    private String openEnvelope(String envelope, String className, String fieldName) {
+        int sep = envelope.indexOf(':', ENVELOPE_PREFIX.length());
+        if (sep < 0) {
+            return envelope.substring(ENVELOPE_PREFIX.length());
         }
-
-        // Base64字符集检查
-        if (!text.matches("^[A-Za-z0-9+/=]+$")) {
-            return false;
+        String envelopeKeyId = envelope.substring(ENVELOPE_PREFIX.length(), sep);
+        if (!envelopeKeyId.equals(keyId)) {
+            log.warn("密文密钥ID与当前主密钥不一致: {}.{} (密文: {}, 当前: {})",
+                className, fieldName, envelopeKeyId, keyId);
         }
+        return envelope.substring(sep + 1);
+    }
 
-        // 加密后的Base64字符串通常较长（至少39字符）
-        if (text.length() < 39) {
+    /**
+     * 判断是否为旧版无前缀密文（Base64格式且长度符合AES-GCM结构）
+     * 仅做字符扫描，不编译正则、不解码；只用于读取路径，写入时不调用
+     *
+     * @param text 字段值
+     * @return 是否疑似旧版密文
+     */
+    public static boolean looksLikeLegacyCiphertext(String text) {
+        int length = text.length();
+        if (length < LEGACY_MIN_LENGTH || length % 4 != 0) {
             return false;
         }
-
-        // 尝试Base64解码，检查字节长度是否符合AES-GCM格式
-        try {
-            byte[] decoded = java.util.Base64.getDecoder().decode(text);
-            // AES-GCM格式：12字节IV + 密文 + 16字节Tag，至少29字节
-            return decoded.length >= 29;
-        } catch (Exception e) {
-            return false;
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            boolean base64Char = (c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z')
+                    || (c >= '0' && c <= '9') || c == '+' || c == '/';
+            if (!base64Char && !(c == '=' && i >= length - 2)) {
+                return false;
+            }
         }
+        return true;
     }
 
     @Override
@@ -262,4 +305,66 @@ public class MybatisCryptoInterceptor implements Interceptor {
     public void setProperties(Properties properties) {
         // 可以从配置文件读取属性
     }
+
+    /**
+     * 类级加密计划：该类所有需要加解密的String字段访问器
+     */
+    private static final class CryptoPlan {
+
+        private static final CryptoPlan EMPTY = new CryptoPlan(new FieldAccessor[0]);
+
+        private final FieldAccessor[] fields;
+
+        private CryptoPlan(FieldAccessor[] fields) {
+            this.fields = fields;
+        }
+
+        boolean isEmpty() {
+            return fields.length == 0;
+        }
+
+        static CryptoPlan build(Class<?> clazz) {
+            // 跳过基本类型、数组和JDK类
+            if (clazz.isPrimitive() || clazz.isArray() || clazz.getName().startsWith("java.")) {
+                return EMPTY;
+            }
+
+            List<FieldAccessor> accessors = new ArrayList<>();
+            for (Field field : clazz.getDeclaredFields()) {
+                Encrypted encrypted = field.getAnnotation(Encrypted.class);
+                if (encrypted == null || !encrypted.value()
+                        || field.getType() != String.class || Modifier.isStatic(field.getModifiers())) {
+                    continue;
+                }
+                try {
+                    VarHandle handle = MethodHandles.privateLookupIn(clazz, MethodHandles.lookup())
+                            .findVarHandle(clazz, field.getName(), String.class);
+                    accessors.add(new FieldAccessor(field.getName(), handle));
+                } catch (ReflectiveOperationException | IllegalArgumentException e) {
+                    log.error("创建字段访问器失败: {}.{} - {}", clazz.getSimpleName(), field.getName(), e.getMessage());
+                }
+            }
+
+            if (accessors.isEmpty()) {
+                return EMPTY;
+            }
+            log.debug("生成加密计划: {} -> {} 个@Encrypted字段", clazz.getSimpleName(), accessors.size());
+            return new CryptoPlan(accessors.toArray(new FieldAccessor[0]));
+        }
+    }
+
+    /**
+     * 单个加密字段的访问器
+     */
+    private static final class FieldAccessor {
+
+        private final String name;
+
+        private final VarHandle handle;
+
+        private FieldAccessor(String name, VarHandle handle) {
+            this.name = name;
+            this.handle = handle;
+        }
+    }
 }
@@ -0,0 +1,255 @@
+package com.exam.approval.security.util;
+
+import lombok.extern.slf4j.Slf4j;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+
+/**
+ * AES-256-GCM 分块流式加密工具类
+ * 用于大文件加密存储，内存占用与文件大小无关
+ *
+ * 文件格式（二进制）：
+ * <pre>
+ * 头部(16字节) = 魔数"EXF1"(4) + 分块大小(4, 大端) + 文件随机数(8)
+ * 分块序列     = 每块 [密文(≤分块大小) + GCM Tag(16)]
+ * </pre>
+ *
+ * 安全设计：
+ * - 每块IV = 文件随机数(8) + 块序号(4, 大端)，同一文件内不重复，不同文件随机数不同
+ * - 每块AAD = 头部 + 末块标记(1字节)，防止分块被截断、替换头部
+ * - 块序号参与IV，分块被重排后认证失败
+ *
+ * @author 网络信息安全大作业
+ * @date 2025-12-01
+ */
+@Slf4j
+public class AESStreamUtil {
+
+    private static final String ALGORITHM = "AES";
+    private static final String TRANSFORMATION = "AES/GCM/NoPadding";
+    private static final byte[] MAGIC = {'E', 'X', 'F', '1'};
+    private static final int FILE_NONCE_LENGTH = 8;
+    private static final int GCM_IV_LENGTH = 12;
+    private static final int GCM_TAG_BYTES = 16;
+
+    /**
+     * 头部长度
+     */
+    public static final int HEADER_LENGTH = MAGIC.length + 4 + FILE_NONCE_LENGTH;
+
+    /**
+     * 默认分块大小（64KB明文）
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 64 * 1024;
+
+    private static final SecureRandom SECURE_RANDOM = new SecureRandom();
+
+    /**
+     * 流式加密
+     *
+     * @param in  明文输入流（调用方负责关闭）
+     * @param out 密文输出通道（调用方负责关闭）
+     * @param key AES密钥（32字节）
+     * @return 明文总字节数
+     */
+    public static long encrypt(InputStream in, WritableByteChannel out, byte[] key) throws IOException {
+        byte[] fileNonce = new byte[FILE_NONCE_LENGTH];
+        SECURE_RANDOM.nextBytes(fileNonce);
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+        header.put(MAGIC).putInt(DEFAULT_CHUNK_SIZE).put(fileNonce).flip();
+        byte[] headerBytes = header.array().clone();
+        writeFully(out, header);
+
+        try {
+            Cipher cipher = Cipher.getInstance(TRANSFORMATION);
+            SecretKeySpec secretKey = new SecretKeySpec(key, ALGORITHM);
+            ByteBuffer outBuffer = ByteBuffer.allocate(DEFAULT_CHUNK_SIZE + GCM_TAG_BYTES);
+
+            // 预读一块，以便判断当前块是否为末块
+            byte[] current = in.readNBytes(DEFAULT_CHUNK_SIZE);
+            long total = 0;
+            int index = 0;
+            while (true) {
+                byte[] next = current.length < DEFAULT_CHUNK_SIZE ? new byte[0] : in.readNBytes(DEFAULT_CHUNK_SIZE);
+                boolean last = next.length == 0;
+
+                cipher.init(Cipher.ENCRYPT_MODE, secretKey, chunkSpec(fileNonce, index));
+                cipher.updateAAD(headerBytes);
+                cipher.updateAAD(new byte[]{(byte) (last ? 1 : 0)});
+
+                outBuffer.clear();
+                cipher.doFinal(ByteBuffer.wrap(current), outBuffer);
+                outBuffer.flip();
+                writeFully(out, outBuffer);
+
+                total += current.length;
+                index++;
+                if (last) {
+                    break;
+                }
+                current = next;
+            }
+            return total;
+        } catch (GeneralSecurityException e) {
+            log.error("AES流式加密失败", e);
+            throw new IOException("AES流式加密失败", e);
+        }
+    }
+
+    /**
+     * 流式解密
+     *
+     * @param in  密文输入通道（调用方负责关闭）
+     * @param out 明文输出流（调用方负责关闭）
+     * @param key AES密钥（32字节）
+     * @return 明文总字节数
+     */
+    public static long decrypt(SeekableByteChannel in, OutputStream out, byte[] key) throws IOException {
+        return decryptRange(in, out, key, 0, Long.MAX_VALUE);
+    }
+
+    /**
+     * 按明文字节范围流式解密（用于HTTP Range请求）
+     * 直接定位到范围起点所在分块，只解密覆盖该范围的分块
+     *
+     * @param in    密文输入通道（调用方负责关闭）
+     * @param out   明文输出流（调用方负责关闭）
+     * @param key   AES密钥（32字节）
+     * @param start 起始偏移（包含）
+     * @param end   结束偏移（包含），超出明文长度时截断到末尾
+     * @return 写出的明文字节数
+     */
+    public static long decryptRange(SeekableByteChannel in, OutputStream out, byte[] key,
+                                    long start, long end) throws IOException {
+        in.position(0);
+        ByteBuffer header = readHeader(in);
+        byte[] headerBytes = header.array();
+        int chunkSize = header.getInt(MAGIC.length);
+        byte[] fileNonce = new byte[FILE_NONCE_LENGTH];
+        System.arraycopy(headerBytes, MAGIC.length + 4, fileNonce, 0, FILE_NONCE_LENGTH);
+
+        long chunkCount = chunkCount(in.size(), chunkSize);
+        long stride = chunkSize + GCM_TAG_BYTES;
+        long firstChunk = Math.min(start / chunkSize, chunkCount - 1);
+        in.position(HEADER_LENGTH + firstChunk * stride);
+
+        try {
+            Cipher cipher = Cipher.getInstance(TRANSFORMATION);
+            SecretKeySpec secretKey = new SecretKeySpec(key, ALGORITHM);
+            ByteBuffer inBuffer = ByteBuffer.allocate((int) stride);
+            ByteBuffer plainBuffer = ByteBuffer.allocate(chunkSize);
+
+            long written = 0;
+            for (long index = firstChunk; index < chunkCount; index++) {
+                long chunkStart = index * chunkSize;
+                if (chunkStart > end) {
+                    break;
+                }
+                boolean last = index == chunkCount - 1;
+                inBuffer.clear();
+                readFully(in, inBuffer);
+                inBuffer.flip();
+
+                cipher.init(Cipher.DECRYPT_MODE, secretKey, chunkSpec(fileNonce, (int) index));
+                cipher.updateAAD(headerBytes);
+                cipher.updateAAD(new byte[]{(byte) (last ? 1 : 0)});
+
+                plainBuffer.clear();
+                cipher.doFinal(inBuffer, plainBuffer);
+
+                // 截取与请求范围相交的部分
+                int from = (int) Math.max(0, start - chunkStart);
+                int to = (int) Math.min(plainBuffer.position() - 1, end - chunkStart) + 1;
+                if (to > from) {
+                    out.write(plainBuffer.array(), from, to - from);
+                    written += to - from;
+                }
+            }
+            return written;
+        } catch (GeneralSecurityException e) {
+            log.error("AES流式解密失败（文件可能被篡改）", e);
+            throw new IOException("文件解密失败，内容可能已被篡改", e);
+        }
+    }
+
+    /**
+     * 判断通道内容是否为分块加密格式
+     *
+     * @param in 密文输入通道
+     * @return 是否为分块加密格式
+     */
+    public static boolean isStreamFormat(SeekableByteChannel in) throws IOException {
+        if (in.size() < HEADER_LENGTH + GCM_TAG_BYTES) {
+            return false;
+        }
+        in.position(0);
+        ByteBuffer magic = ByteBuffer.allocate(MAGIC.length);
+        readFully(in, magic);
+        in.position(0);
+        return java.util.Arrays.equals(magic.array(), MAGIC);
+    }
+
+    /**
+     * 根据密文文件大小计算明文长度
+     *
+     * @param in 密文输入通道
+     * @return 明文字节数
+     */
+    public static long plaintextLength(SeekableByteChannel in) throws IOException {
+        in.position(0);
+        int chunkSize = readHeader(in).getInt(MAGIC.length);
+        long size = in.size();
+        return size - HEADER_LENGTH - chunkCount(size, chunkSize) * GCM_TAG_BYTES;
+    }
+
+    private static ByteBuffer readHeader(SeekableByteChannel in) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+        readFully(in, header);
+        byte[] magic = new byte[MAGIC.length];
+        System.arraycopy(header.array(), 0, magic, 0, MAGIC.length);
+        if (!java.util.Arrays.equals(magic, MAGIC)) {
+            throw new IOException("不支持的文件格式");
+        }
+        int chunkSize = header.getInt(MAGIC.length);
+        if (chunkSize <= 0 || chunkSize > 16 * 1024 * 1024) {
+            throw new IOException("文件头部损坏");
+        }
+        return header;
+    }
+
+    private static long chunkCount(long fileSize, int chunkSize) {
+        long body = fileSize - HEADER_LENGTH;
+        long stride = chunkSize + GCM_TAG_BYTES;
+        return Math.max(1, (body + stride - 1) / stride);
+    }
+
+    private static GCMParameterSpec chunkSpec(byte[] fileNonce, int index) {
+        byte[] iv = ByteBuffer.allocate(GCM_IV_LENGTH).put(fileNonce).putInt(index).array();
+        return new GCMParameterSpec(GCM_TAG_BYTES * 8, iv);
+    }
+
+    private static void writeFully(WritableByteChannel out, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+    }
+
+    private static void readFully(SeekableByteChannel in, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (in.read(buffer) < 0) {
+                break;
+            }
+        }
+    }
+}
@@ -1,18 +1,24 @@
 package com.exam.approval.security.util;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.security.Keys;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.codec.digest.DigestUtils;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import javax.annotation.PostConstruct;
 import javax.crypto.SecretKey;
 import java.nio.charset.StandardCharsets;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 /**
  * JWT工具类
@@ -32,6 +38,10 @@ import java.util.Map;
  * - iat: 签发时间
  * - exp: 过期时间
  *
+ * 性能：
+ * - 签名密钥和解析器在启动时构建一次，线程安全可复用
+ * - 验证通过的Token按SHA-256缓存其Claims（短TTL），同一Token的后续请求无需重复验签
+ *
  * @author 网络信息安全大作业
  * @date 2025-11-05
  */
@@ -45,6 +55,42 @@ public class JwtUtil {
     @Value("${jwt.expiration}")
     private Long expiration;
 
+    /**
+     * 已验证Token缓存的最大条目数
+     */
+    @Value("${jwt.cache.max-size:10000}")
+    private long cacheMaxSize;
+
+    /**
+     * 已验证Token缓存的存活时间（秒）
+     */
+    @Value("${jwt.cache.ttl-seconds:60}")
+    private long cacheTtlSeconds;
+
+    private SecretKey signingKey;
+
+    private JwtParser parser;
+
+    /**
+     * 已验证Token缓存：SHA-256(token) → Claims（只读共享，调用方不得修改）
+     */
+    private Cache<String, Claims> verifiedTokens;
+
+    /**
+     * 初始化签名密钥、解析器和验证缓存
+     */
+    @PostConstruct
+    public void init() {
+        signingKey = Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));
+        parser = Jwts.parserBuilder()
+                .setSigningKey(signingKey)
+                .build();
+        verifiedTokens = CacheBuilder.newBuilder()
+                .maximumSize(cacheMaxSize)
+                .expireAfterWrite(cacheTtlSeconds, TimeUnit.SECONDS)
+                .build();
+    }
+
     /**
      * 生成Token
      *
@@ -62,14 +108,12 @@ public class JwtUtil {
         Date now = new Date();
         Date expiryDate = new Date(now.getTime() + expiration);
 
-        SecretKey key = Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));
-
         return Jwts.builder()
                 .setClaims(claims)
                 .setSubject(username)
                 .setIssuedAt(now)
                 .setExpiration(expiryDate)
-                .signWith(key, SignatureAlgorithm.HS256)
+                .signWith(signingKey, SignatureAlgorithm.HS256)
                 .compact();
     }
 
@@ -81,18 +125,52 @@ public class JwtUtil {
      */
     public Claims getClaimsFromToken(String token) {
         try {
-            SecretKey key = Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));
-            return Jwts.parserBuilder()
-                    .setSigningKey(key)
-                    .build()
-                    .parseClaimsJws(token)
-                    .getBody();
+            return parser.parseClaimsJws(token).getBody();
         } catch (Exception e) {
             log.error("解析Token失败", e);
             return null;
         }
     }
 
+    /**
+     * 一次性验证Token并返回Claims（签名、格式、过期时间）
+     * 验证通过的结果会短暂缓存，同一Token重复请求时只做一次哈希查找
+     *
+     * @param token JWT Token
+     * @return 验证通过返回Claims，否则返回null
+     */
+    public Claims verifyToken(String token) {
+        if (token == null || token.isEmpty()) {
+            return null;
+        }
+
+        String cacheKey = DigestUtils.sha256Hex(token);
+        Claims claims = verifiedTokens.getIfPresent(cacheKey);
+        if (claims != null) {
+            // 缓存TTL可能跨过Token过期时间，命中时仍需检查
+            Date exp = claims.getExpiration();
+            if (exp != null && exp.after(new Date())) {
+                return claims;
+            }
+            verifiedTokens.invalidate(cacheKey);
+            return null;
+        }
+
+        try {
+            // parseClaimsJws 会同时校验签名和过期时间
+            claims = parser.parseClaimsJws(token).getBody();
+        } catch (Exception e) {
+            log.debug("Token验证失败: {}", e.getMessage());
+            return null;
+        }
+        if (claims.getExpiration() == null) {
+            return null;
+        }
+
+        verifiedTokens.put(cacheKey, claims);
+        return claims;
+    }
+
     /**
      * 解析Token（getClaimsFromToken的别名）
      *
@@ -134,18 +212,7 @@ public class JwtUtil {
      * @return 是否有效
      */
     public boolean validateToken(String token) {
-        try {
-            Claims claims = getClaimsFromToken(token);
-            if (claims == null) {
-                return false;
-            }
-            // 检查是否过期
-            Date expiration = claims.getExpiration();
-            return expiration.after(new Date());
-        } catch (Exception e) {
-            log.error("Token验证失败", e);
-            return false;
-        }
+        return verifyToken(token) != null;
     }
 
     /**
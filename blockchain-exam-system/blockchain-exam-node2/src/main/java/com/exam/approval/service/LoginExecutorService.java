@@ -0,0 +1,108 @@
+package com.exam.approval.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * 登录密码学运算线程池Service
+ *
+ * 登录时的RSA私钥解密和BCrypt校验都是CPU密集操作，集中登录（如上课前）时
+ * 会占满Tomcat工作线程，拖慢其他接口。这里用独立的有界线程池执行这些操作：
+ * - 线程数默认等于CPU核数，队列有上限
+ * - 队列满时立即拒绝（由调用方返回HTTP 429），不让请求无限排队
+ * - 提供队列深度、拒绝次数等运行指标
+ *
+ * @author 网络信息安全大作业
+ * @date 2025-12-01
+ */
+@Slf4j
+@Service
+public class LoginExecutorService {
+
+    /**
+     * 工作线程数（默认CPU核数）
+     */
+    @Value("${security.login-pool.threads:0}")
+    private int threads;
+
+    /**
+     * 等待队列容量
+     */
+    @Value("${security.login-pool.queue-capacity:200}")
+    private int queueCapacity;
+
+    private ThreadPoolExecutor executor;
+
+    private final AtomicLong rejectedCount = new AtomicLong();
+
+    /**
+     * 初始化线程池
+     */
+    @PostConstruct
+    public void init() {
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger counter = new AtomicInteger();
+        executor = new ThreadPoolExecutor(poolSize, poolSize, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "login-crypto-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        log.info("登录线程池初始化完成 - 线程数: {}, 队列容量: {}", poolSize, queueCapacity);
+    }
+
+    /**
+     * 提交登录运算
+     *
+     * @param task 登录运算
+     * @return 异步结果
+     * @throws RejectedExecutionException 队列已满
+     */
+    public <T> CompletableFuture<T> submit(Supplier<T> task) {
+        try {
+            return CompletableFuture.supplyAsync(task, executor);
+        } catch (RejectedExecutionException e) {
+            long rejected = rejectedCount.incrementAndGet();
+            log.warn("登录线程池已满，拒绝请求 - 队列: {}/{}, 累计拒绝: {}",
+                    executor.getQueue().size(), queueCapacity, rejected);
+            throw e;
+        }
+    }
+
+    /**
+     * 获取线程池运行指标
+     *
+     * @return 指标数据
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("poolSize", executor.getPoolSize());
+        stats.put("activeCount", executor.getActiveCount());
+        stats.put("queueSize", executor.getQueue().size());
+        stats.put("queueCapacity", queueCapacity);
+        stats.put("completedCount", executor.getCompletedTaskCount());
+        stats.put("rejectedCount", rejectedCount.get());
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
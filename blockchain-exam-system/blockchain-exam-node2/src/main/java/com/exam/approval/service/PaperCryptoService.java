@@ -3,6 +3,7 @@ package com.exam.approval.service;
 import com.alibaba.fastjson.JSON;
 import com.alibaba.fastjson.JSONArray;
 import com.alibaba.fastjson.JSONObject;
+import com.exam.approval.common.exception.BusinessException;
 import com.exam.approval.dto.PaperEncryptedRequest;
 import com.exam.approval.entity.ExamPaper;
 import com.exam.approval.entity.PaperDecryptRecord;
@@ -16,11 +17,23 @@ import org.apache.commons.codec.digest.HmacUtils;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.security.PublicKey;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
 
 /**
  * 试卷加密解密服务
@@ -36,6 +49,7 @@ public class PaperCryptoService {
 
     private final NonceService nonceService;
     private final UserService userService;
+    private final RecipientIndex recipientIndex;
 
     /**
      * 系统RSA私钥（用于解密）
@@ -49,6 +63,72 @@ public class PaperCryptoService {
     @Value("${crypto.system-rsa.public-key}")
     private String systemPublicKey;
 
+    /**
+     * 批量验签线程数
+     */
+    @Value("${security.signature-verify.threads:2}")
+    private int verifyThreads;
+
+    /**
+     * 批量验签等待队列容量（按分片计）
+     */
+    @Value("${security.signature-verify.queue-capacity:8}")
+    private int verifyQueueCapacity;
+
+    /**
+     * 批量验签线程池：独立且有界，不占用公共ForkJoin池，队列满时直接拒绝
+     */
+    private ThreadPoolExecutor verifyExecutor;
+
+    /**
+     * 多方加密AES密钥线程数
+     */
+    @Value("${security.key-wrap.threads:4}")
+    private int keyWrapThreads;
+
+    /**
+     * 多方加密AES密钥等待队列容量（按接收方计）
+     */
+    @Value("${security.key-wrap.queue-capacity:64}")
+    private int keyWrapQueueCapacity;
+
+    /**
+     * 多方加密AES密钥线程池：独立且有界，队列满时由调用线程自己加密（退化为串行，不拒绝试卷创建）
+     */
+    private ThreadPoolExecutor keyWrapExecutor;
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger counter = new AtomicInteger();
+        verifyExecutor = new ThreadPoolExecutor(verifyThreads, verifyThreads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(verifyQueueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "signature-verify-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        log.info("批量验签线程池初始化完成 - 线程数: {}, 队列容量: {}", verifyThreads, verifyQueueCapacity);
+
+        AtomicInteger keyWrapCounter = new AtomicInteger();
+        keyWrapExecutor = new ThreadPoolExecutor(keyWrapThreads, keyWrapThreads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(keyWrapQueueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "key-wrap-" + keyWrapCounter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                // 与 CallerRunsPolicy 不同，关闭后仍在调用线程执行，避免 join 永久等待被丢弃的任务
+                (runnable, executor) -> runnable.run());
+        log.info("多方加密线程池初始化完成 - 线程数: {}, 队列容量: {}", keyWrapThreads, keyWrapQueueCapacity);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        verifyExecutor.shutdownNow();
+        keyWrapExecutor.shutdownNow();
+    }
+
     /**
      * 解密试卷请求数据
      *
@@ -82,27 +162,42 @@ public class PaperCryptoService {
             }
             log.debug("HMAC签名验证通过");
 
-            // 5. 解密小字段（RSA）
-            String courseName = RSAUtil.decryptByPrivateKeyPKCS1(
-                    encryptedRequest.getCourseName(), systemPrivateKey);
-            String examType = RSAUtil.decryptByPrivateKeyPKCS1(
-                    encryptedRequest.getExamType(), systemPrivateKey);
-            String semester = RSAUtil.decryptByPrivateKeyPKCS1(
-                    encryptedRequest.getSemester(), systemPrivateKey);
-            String department = RSAUtil.decryptByPrivateKeyPKCS1(
-                    encryptedRequest.getDepartment(), systemPrivateKey);
+            // 5. 解密元数据：v2整体AES解密；旧版逐字段RSA解密
+            String courseName;
+            String examType;
+            String semester;
+            String department;
+            String filePath = "";
+            if (encryptedRequest.isV2()) {
+                JSONObject metadata = JSON.parseObject(
+                        AESUtil.decryptCBC(encryptedRequest.getMetadata(), aesKey));
+                courseName = metadata.getString("courseName");
+                examType = metadata.getString("examType");
+                semester = metadata.getString("semester");
+                department = metadata.getString("department");
+                if (metadata.getString("filePath") != null) {
+                    filePath = metadata.getString("filePath");
+                }
+                validateMetadata(courseName, examType, semester, department);
+            } else {
+                courseName = RSAUtil.decryptByPrivateKeyPKCS1(
+                        encryptedRequest.getCourseName(), systemPrivateKey);
+                examType = RSAUtil.decryptByPrivateKeyPKCS1(
+                        encryptedRequest.getExamType(), systemPrivateKey);
+                semester = RSAUtil.decryptByPrivateKeyPKCS1(
+                        encryptedRequest.getSemester(), systemPrivateKey);
+                department = RSAUtil.decryptByPrivateKeyPKCS1(
+                        encryptedRequest.getDepartment(), systemPrivateKey);
+                if (encryptedRequest.getFilePath() != null && !encryptedRequest.getFilePath().isEmpty()) {
+                    filePath = RSAUtil.decryptByPrivateKeyPKCS1(
+                            encryptedRequest.getFilePath(), systemPrivateKey);
+                }
+            }
 
             // 6. 解密大字段（AES-CBC，与前端CryptoJS兼容）
             String content = AESUtil.decryptCBC(encryptedRequest.getContent(), aesKey);
 
-            // 7. 解密文件路径（如果有）
-            String filePath = "";
-            if (encryptedRequest.getFilePath() != null && !encryptedRequest.getFilePath().isEmpty()) {
-                filePath = RSAUtil.decryptByPrivateKeyPKCS1(
-                        encryptedRequest.getFilePath(), systemPrivateKey);
-            }
-
-            // 8. 构建ExamPaper对象
+            // 7. 构建ExamPaper对象
             ExamPaper paper = new ExamPaper();
             paper.setCourseName(courseName);
             paper.setExamType(examType);
@@ -129,17 +224,13 @@ public class PaperCryptoService {
         if (request == null) {
             throw new RuntimeException("请求数据不能为空");
         }
-        if (request.getCourseName() == null || request.getCourseName().isEmpty()) {
-            throw new RuntimeException("课程名称不能为空");
-        }
-        if (request.getExamType() == null || request.getExamType().isEmpty()) {
-            throw new RuntimeException("考试类型不能为空");
-        }
-        if (request.getSemester() == null || request.getSemester().isEmpty()) {
-            throw new RuntimeException("学期不能为空");
-        }
-        if (request.getDepartment() == null || request.getDepartment().isEmpty()) {
-            throw new RuntimeException("院系不能为空");
+        if (request.isV2()) {
+            if (request.getMetadata() == null || request.getMetadata().isEmpty()) {
+                throw new RuntimeException("试卷元数据不能为空");
+            }
+        } else {
+            validateMetadata(request.getCourseName(), request.getExamType(),
+                    request.getSemester(), request.getDepartment());
         }
         if (request.getContent() == null || request.getContent().isEmpty()) {
             throw new RuntimeException("试卷内容不能为空");
@@ -158,6 +249,24 @@ public class PaperCryptoService {
         }
     }
 
+    /**
+     * 验证试卷元数据字段（旧版校验密文，v2校验解密后的明文）
+     */
+    private void validateMetadata(String courseName, String examType, String semester, String department) {
+        if (courseName == null || courseName.isEmpty()) {
+            throw new RuntimeException("课程名称不能为空");
+        }
+        if (examType == null || examType.isEmpty()) {
+            throw new RuntimeException("考试类型不能为空");
+        }
+        if (semester == null || semester.isEmpty()) {
+            throw new RuntimeException("学期不能为空");
+        }
+        if (department == null || department.isEmpty()) {
+            throw new RuntimeException("院系不能为空");
+        }
+    }
+
     /**
      * 使用用户专属RSA公钥加密试卷内容
      * 实现混合加密：AES加密内容 + RSA加密AES密钥
@@ -336,29 +445,32 @@ public class PaperCryptoService {
      */
     public List<Long> getRelatedUserIds(Long creatorId, String department) {
         List<Long> userIds = new ArrayList<>();
-
-        // 1. 添加创建者（本系教师）
+        // 创建者始终在列，即使尚未生成公钥（加密时会被跳过）
         userIds.add(creatorId);
-
-        // 2. 添加本系系主任（同一department的dept_admin）
-        User deptAdmin = userService.findByDepartmentAndRole(department, "dept_admin");
-        if (deptAdmin != null && deptAdmin.getRsaPublicKey() != null) {
-            userIds.add(deptAdmin.getId());
-            log.debug("添加本系主任: {} (ID: {})", deptAdmin.getRealName(), deptAdmin.getId());
-        }
-
-        // 3. 添加本学院院长（所有college_admin角色）
-        List<User> collegeAdmins = userService.findByRole("college_admin");
-        for (User admin : collegeAdmins) {
-            if (admin.getRsaPublicKey() != null && !userIds.contains(admin.getId())) {
-                userIds.add(admin.getId());
-                log.debug("添加学院院长: {} (ID: {})", admin.getRealName(), admin.getId());
+        for (Long userId : resolveRecipientKeys(creatorId, department).keySet()) {
+            if (!userId.equals(creatorId)) {
+                userIds.add(userId);
             }
         }
+        return userIds;
+    }
+
+    /**
+     * 解析试卷密钥接收方及其公钥
+     *
+     * 从内存接收方索引（RecipientIndex）取回创建者、本系系主任和全部院长的公钥，顺序为：
+     * 创建者 → 本系系主任（取第一个） → 院长
+     *
+     * @param creatorId 创建者ID
+     * @param department 院系
+     * @return 用户ID → RSA公钥（保持插入顺序）
+     */
+    public Map<Long, String> resolveRecipientKeys(Long creatorId, String department) {
+        Map<Long, String> recipients = recipientIndex.resolvePaperRecipients(creatorId, department);
 
         log.info("获取相关用户列表完成 - 创建者: {}, 院系: {}, 用户数: {}",
-                creatorId, department, userIds.size());
-        return userIds;
+                creatorId, department, recipients.size());
+        return recipients;
     }
 
     /**
@@ -369,28 +481,50 @@ public class PaperCryptoService {
      * @return JSON格式的加密密钥列表
      */
     public String encryptAesKeyForMultipleUsers(String aesKey, List<Long> userIds) {
-        List<Map<String, Object>> encryptedKeys = new ArrayList<>();
+        // 从接收方索引取公钥，不访问数据库
+        Map<Long, String> publicKeys = recipientIndex.publicKeysOf(userIds);
 
+        Map<Long, String> recipients = new LinkedHashMap<>();
         for (Long userId : userIds) {
-            try {
-                User user = userService.getUserById(userId);
-                if (user != null && user.getRsaPublicKey() != null && !user.getRsaPublicKey().isEmpty()) {
-                    String encryptedKey = RSAUtil.encryptByPublicKey(aesKey, user.getRsaPublicKey());
+            String publicKey = publicKeys.get(userId);
+            if (publicKey != null) {
+                recipients.put(userId, publicKey);
+            } else {
+                log.warn("用户 {} 没有RSA公钥，跳过加密", userId);
+            }
+        }
+        return encryptAesKeyForRecipients(aesKey, recipients);
+    }
+
+    /**
+     * 使用已解析的接收方公钥并行加密AES密钥
+     *
+     * @param aesKey 原始AES密钥
+     * @param recipients 用户ID → RSA公钥
+     * @return JSON格式的加密密钥列表（顺序与recipients一致）
+     */
+    public String encryptAesKeyForRecipients(String aesKey, Map<Long, String> recipients) {
+        List<CompletableFuture<Map<String, Object>>> futures = new ArrayList<>(recipients.size());
+        for (Map.Entry<Long, String> entry : recipients.entrySet()) {
+            futures.add(CompletableFuture.supplyAsync(() -> {
+                try {
                     Map<String, Object> keyEntry = new HashMap<>();
-                    keyEntry.put("userId", userId);
-                    keyEntry.put("encryptedKey", encryptedKey);
-                    encryptedKeys.add(keyEntry);
-                    log.debug("为用户 {} 加密AES密钥成功", userId);
-                } else {
-                    log.warn("用户 {} 没有RSA公钥，跳过加密", userId);
+                    keyEntry.put("userId", entry.getKey());
+                    keyEntry.put("encryptedKey", RSAUtil.encryptByPublicKey(aesKey, entry.getValue()));
+                    return keyEntry;
+                } catch (Exception e) {
+                    log.error("为用户 {} 加密AES密钥失败: {}", entry.getKey(), e.getMessage());
+                    return null;
                 }
-            } catch (Exception e) {
-                log.error("为用户 {} 加密AES密钥失败: {}", userId, e.getMessage());
-            }
+            }, keyWrapExecutor));
         }
+        List<Map<String, Object>> encryptedKeys = futures.stream()
+                .map(CompletableFuture::join)
+                .filter(java.util.Objects::nonNull)
+                .collect(Collectors.toList());
 
         String json = JSON.toJSONString(encryptedKeys);
-        log.info("多方加密完成 - 成功加密用户数: {}/{}", encryptedKeys.size(), userIds.size());
+        log.info("多方加密完成 - 成功加密用户数: {}/{}", encryptedKeys.size(), recipients.size());
         return json;
     }
 
@@ -458,11 +592,11 @@ public class PaperCryptoService {
             paper.setContent(encryptedContent);
             log.debug("试卷内容AES加密完成");
 
-            // 5. 获取所有相关用户ID
-            List<Long> relatedUserIds = getRelatedUserIds(creatorId, department);
+            // 5. 从接收方索引获取所有相关用户及其公钥
+            Map<Long, String> recipients = resolveRecipientKeys(creatorId, department);
 
-            // 6. 为每个相关用户加密AES密钥
-            String encryptedAesKeys = encryptAesKeyForMultipleUsers(aesKey, relatedUserIds);
+            // 6. 并行为每个相关用户加密AES密钥
+            String encryptedAesKeys = encryptAesKeyForRecipients(aesKey, recipients);
             paper.setEncryptedAesKeys(encryptedAesKeys);
 
             // 7. 保留单一用户的加密密钥（向后兼容）
@@ -472,7 +606,7 @@ public class PaperCryptoService {
             }
 
             log.info("试卷多方加密成功 - 创建者ID: {}, 院系: {}, 授权用户数: {}",
-                    creatorId, department, relatedUserIds.size());
+                    creatorId, department, recipients.size());
             return paper;
 
         } catch (Exception e) {
@@ -553,21 +687,128 @@ public class PaperCryptoService {
         }
 
         try {
-            // 优先使用保存的毫秒时间戳（避免LocalDateTime转换时的精度损失）
-            Long timestamp = record.getDecryptTimeMs();
-            if (timestamp == null) {
-                // 兼容旧数据：从 LocalDateTime 转换（但可能因精度损失导致验证失败）
-                timestamp = record.getDecryptTime()
-                        .atZone(java.time.ZoneId.systemDefault())
-                        .toInstant()
-                        .toEpochMilli();
-                log.warn("解密记录 {} 没有 decryptTimeMs 字段，使用 LocalDateTime 转换（可能因精度损失导致验证失败）", record.getId());
-            }
-            String signData = buildDecryptSignData(record.getPaperId(), record.getUserId(), timestamp);
+            String signData = buildDecryptSignData(record.getPaperId(), record.getUserId(), resolveDecryptTimestamp(record));
             return RSAUtil.verify(signData, record.getSignature(), userPublicKey);
         } catch (Exception e) {
             log.error("验证解密签名失败: {}", e.getMessage());
             return false;
         }
     }
+
+    /**
+     * 批量验证解密签名
+     *
+     * 按用户分组，一次性查询涉及的用户，每个用户公钥只解析一次，
+     * 随后并行执行验签，用于审计时成批核验解密记录
+     *
+     * @param records      解密记录列表
+     * @param onlyFailures 结果明细是否只返回未通过的记录
+     * @return 汇总统计及逐条结果
+     */
+    public Map<String, Object> verifyDecryptSignatures(List<PaperDecryptRecord> records, boolean onlyFailures) {
+        long start = System.currentTimeMillis();
+
+        // 1. 批量加载涉及的用户并解析公钥（每个用户一次）
+        Set<Long> userIds = records.stream()
+                .map(PaperDecryptRecord::getUserId)
+                .filter(java.util.Objects::nonNull)
+                .collect(Collectors.toSet());
+        Map<Long, PublicKey> publicKeys = new HashMap<>();
+        if (!userIds.isEmpty()) {
+            for (User user : userService.listByIds(userIds)) {
+                if (user.getRsaPublicKey() == null || user.getRsaPublicKey().isEmpty()) {
+                    continue;
+                }
+                try {
+                    publicKeys.put(user.getId(), RSAUtil.parsePublicKey(user.getRsaPublicKey()));
+                } catch (Exception e) {
+                    log.warn("用户公钥解析失败 - userId: {}", user.getId());
+                }
+            }
+        }
+
+        // 2. 按线程数分片，在批量验签线程池中并行验签
+        int chunkSize = Math.max(1, (records.size() + verifyThreads - 1) / verifyThreads);
+        List<CompletableFuture<List<Map<String, Object>>>> futures = new ArrayList<>();
+        try {
+            for (int from = 0; from < records.size(); from += chunkSize) {
+                List<PaperDecryptRecord> chunk = records.subList(from, Math.min(records.size(), from + chunkSize));
+                futures.add(CompletableFuture.supplyAsync(() -> chunk.stream()
+                        .map(record -> verifyOne(record, publicKeys.get(record.getUserId())))
+                        .collect(Collectors.toList()), verifyExecutor));
+            }
+        } catch (RejectedExecutionException e) {
+            futures.forEach(future -> future.cancel(false));
+            log.warn("批量验签线程池已满，拒绝请求 - 队列: {}/{}", verifyExecutor.getQueue().size(), verifyQueueCapacity);
+            throw new BusinessException(429, "签名验证任务繁忙，请稍后重试");
+        }
+        List<Map<String, Object>> results = new ArrayList<>(records.size());
+        for (CompletableFuture<List<Map<String, Object>>> future : futures) {
+            results.addAll(future.join());
+        }
+
+        long validCount = results.stream().filter(r -> Boolean.TRUE.equals(r.get("valid"))).count();
+
+        Map<String, Object> summary = new HashMap<>();
+        summary.put("total", records.size());
+        summary.put("validCount", validCount);
+        summary.put("invalidCount", records.size() - validCount);
+        summary.put("userCount", userIds.size());
+        summary.put("elapsedMs", System.currentTimeMillis() - start);
+        summary.put("results", onlyFailures
+                ? results.stream().filter(r -> !Boolean.TRUE.equals(r.get("valid"))).collect(Collectors.toList())
+                : results);
+
+        log.info("批量验证解密签名完成 - 总数: {}, 通过: {}, 用户数: {}, 耗时: {}ms",
+                records.size(), validCount, userIds.size(), summary.get("elapsedMs"));
+        return summary;
+    }
+
+    /**
+     * 使用已解析的公钥验证单条解密记录
+     */
+    private Map<String, Object> verifyOne(PaperDecryptRecord record, PublicKey publicKey) {
+        Map<String, Object> result = new HashMap<>();
+        result.put("recordId", record.getId());
+        result.put("paperId", record.getPaperId());
+        result.put("userId", record.getUserId());
+        result.put("userName", record.getUserName());
+        result.put("decryptTime", record.getDecryptTime());
+
+        boolean valid = false;
+        String message;
+        if (record.getSignature() == null || record.getSignature().isEmpty()) {
+            message = "该记录没有签名";
+        } else if (publicKey == null) {
+            message = "无法获取用户公钥";
+        } else {
+            try {
+                String signData = buildDecryptSignData(record.getPaperId(), record.getUserId(), resolveDecryptTimestamp(record));
+                valid = RSAUtil.verify(signData, record.getSignature(), publicKey);
+                message = valid ? "签名验证通过" : "签名验证失败";
+            } catch (Exception e) {
+                message = "签名验证异常: " + e.getMessage();
+            }
+        }
+        result.put("valid", valid);
+        result.put("message", message);
+        return result;
+    }
+
+    /**
+     * 获取解密记录的签名时间戳
+     * 优先使用保存的毫秒时间戳（避免LocalDateTime转换时的精度损失）
+     */
+    private long resolveDecryptTimestamp(PaperDecryptRecord record) {
+        Long timestamp = record.getDecryptTimeMs();
+        if (timestamp == null) {
+            // 兼容旧数据：从 LocalDateTime 转换（但可能因精度损失导致验证失败）
+            timestamp = record.getDecryptTime()
+                    .atZone(java.time.ZoneId.systemDefault())
+                    .toInstant()
+                    .toEpochMilli();
+            log.warn("解密记录 {} 没有 decryptTimeMs 字段，使用 LocalDateTime 转换（可能因精度损失导致验证失败）", record.getId());
+        }
+        return timestamp;
+    }
 }
@@ -1,11 +1,19 @@
 package com.exam.approval.service;
 
+import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.blockchain.exam.integration.BlockchainIntegrationService;
+import com.blockchain.exam.integration.ChainSubmittedEvent;
+import com.exam.approval.common.exception.BusinessException;
 import com.exam.approval.entity.PaperDecryptRecord;
 import com.exam.approval.mapper.PaperDecryptRecordMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 
@@ -25,6 +33,21 @@ import java.util.List;
 @RequiredArgsConstructor
 public class PaperDecryptRecordService extends ServiceImpl<PaperDecryptRecordMapper, PaperDecryptRecord> {
 
+    /**
+     * 单次批量验签允许的最大记录数
+     */
+    @Value("${security.signature-verify.max-records:2000}")
+    private int maxBatchVerifySize;
+
+    /**
+     * 按ID范围批量验签时允许的最大ID跨度
+     */
+    @Value("${security.signature-verify.max-id-span:10000}")
+    private long maxBatchVerifyIdSpan;
+
+    @Autowired(required = false)
+    private BlockchainIntegrationService blockchainService;
+
     /**
      * 保存解密记录
      *
@@ -40,6 +63,37 @@ public class PaperDecryptRecordService extends ServiceImpl<PaperDecryptRecordMap
         return result;
     }
 
+    /**
+     * 保存解密记录，并在同一事务内登记上链（区块链存证）
+     * 上链由后台异步完成，完成后回填 blockchainTxId / chainTime
+     *
+     * @param record      解密记录
+     * @param contentHash 试卷内容哈希
+     */
+    @Transactional(rollbackFor = Exception.class)
+    public void saveRecordWithAudit(PaperDecryptRecord record, String contentHash) {
+        saveRecord(record);
+        if (blockchainService != null) {
+            blockchainService.enqueueDecryptAction(record.getId(), record.getPaperId(), record.getUserId(),
+                    record.getUserName(), record.getUserRole(), contentHash, record.getSignature());
+        }
+    }
+
+    /**
+     * 解密记录上链完成后回填交易ID（与交易池写入处于同一事务）
+     */
+    @EventListener
+    public void onChainSubmitted(ChainSubmittedEvent event) {
+        if (!ChainSubmittedEvent.BIZ_DECRYPT.equals(event.getBizType())) {
+            return;
+        }
+        this.update(new LambdaUpdateWrapper<PaperDecryptRecord>()
+                .set(PaperDecryptRecord::getBlockchainTxId, event.getTxId())
+                .set(PaperDecryptRecord::getChainTime, event.getChainTime())
+                .eq(PaperDecryptRecord::getId, event.getBizId()));
+        log.info("解密记录上链成功 - 记录ID: {}, 交易ID: {}", event.getBizId(), event.getTxId());
+    }
+
     /**
      * 根据试卷ID查询解密记录
      *
@@ -60,6 +114,49 @@ public class PaperDecryptRecordService extends ServiceImpl<PaperDecryptRecordMap
         return baseMapper.findByUserId(userId);
     }
 
+    /**
+     * 按记录ID范围查询解密记录
+     *
+     * @param startId 起始ID（包含）
+     * @param endId   结束ID（包含）
+     * @param limit   最多返回条数
+     * @return 解密记录列表
+     */
+    public List<PaperDecryptRecord> findByIdRange(Long startId, Long endId, int limit) {
+        return baseMapper.findByIdRange(startId, endId, limit);
+    }
+
+    /**
+     * 加载待批量验签的解密记录
+     * 按试卷ID或记录ID范围二选一
+     *
+     * @param paperId 试卷ID（可选）
+     * @param startId 起始记录ID（可选）
+     * @param endId   结束记录ID（可选）
+     * @return 解密记录列表
+     */
+    public List<PaperDecryptRecord> findForBatchVerify(Long paperId, Long startId, Long endId) {
+        List<PaperDecryptRecord> records;
+        if (paperId != null) {
+            records = findByPaperId(paperId);
+        } else if (startId != null && endId != null) {
+            if (startId > endId) {
+                throw new BusinessException("起始记录ID不能大于结束记录ID");
+            }
+            if (endId - startId >= maxBatchVerifyIdSpan) {
+                throw new BusinessException("记录ID范围最大跨度为 " + maxBatchVerifyIdSpan + "，请缩小范围");
+            }
+            records = findByIdRange(startId, endId, maxBatchVerifySize + 1);
+        } else {
+            throw new BusinessException("请提供试卷ID或记录ID范围");
+        }
+
+        if (records.size() > maxBatchVerifySize) {
+            throw new BusinessException("单次最多验证 " + maxBatchVerifySize + " 条记录，请缩小范围");
+        }
+        return records;
+    }
+
     /**
      * 统计解密记录总数
      *
@@ -0,0 +1,222 @@
+package com.exam.approval.service;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.exam.approval.entity.User;
+import com.exam.approval.mapper.UserMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 试卷密钥接收方内存索引
+ *
+ * 索引所有已生成RSA公钥的用户：
+ * - userId → 公钥
+ * - (department, role) → 用户列表（按ID升序）
+ * - role → 用户列表（按ID升序）
+ *
+ * 试卷创建和密钥重新分发时直接在内存中解析接收方及公钥，不访问数据库。
+ * 用户变更（UserService 本地修改或其他节点的失效广播）时标记失效，下次访问时重建；
+ * 另按 cache.recipient.refresh-seconds 定期重建，覆盖绕过服务直接改库的情况。
+ *
+ * @author 网络信息安全大作业
+ * @date 2025-12-01
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class RecipientIndex {
+
+    private final UserMapper userMapper;
+
+    @Value("${cache.recipient.refresh-seconds:300}")
+    private long refreshSeconds;
+
+    /**
+     * 当前索引快照（null 表示已失效）
+     */
+    private volatile Snapshot snapshot;
+
+    /**
+     * 失效代数：每次失效加一，重建前记录、发布前比对，
+     * 避免失效发生在重建查库期间时旧快照被重新发布
+     */
+    private final AtomicLong generation = new AtomicLong();
+
+    /**
+     * 解析试卷密钥接收方及其公钥
+     * 顺序为：创建者 → 本系系主任（ID最小的一个） → 全部院长
+     *
+     * @param creatorId  创建者ID
+     * @param department 院系
+     * @return 用户ID → RSA公钥（保持插入顺序，未生成公钥的用户不在其中）
+     */
+    public Map<Long, String> resolvePaperRecipients(Long creatorId, String department) {
+        Snapshot current = current();
+        Map<Long, String> recipients = new LinkedHashMap<>();
+
+        Recipient creator = current.byId.get(creatorId);
+        if (creator != null) {
+            recipients.put(creator.id, creator.publicKey);
+        }
+        List<Recipient> deptAdmins = current.byDepartmentAndRole.get(departmentRoleKey(department, "dept_admin"));
+        if (department != null && deptAdmins != null && !deptAdmins.isEmpty()) {
+            Recipient deptAdmin = deptAdmins.get(0);
+            recipients.putIfAbsent(deptAdmin.id, deptAdmin.publicKey);
+            log.debug("添加本系主任: {} (ID: {})", deptAdmin.name, deptAdmin.id);
+        }
+        for (Recipient collegeAdmin : current.byRole.getOrDefault("college_admin", Collections.emptyList())) {
+            recipients.putIfAbsent(collegeAdmin.id, collegeAdmin.publicKey);
+            log.debug("添加学院院长: {} (ID: {})", collegeAdmin.name, collegeAdmin.id);
+        }
+        return recipients;
+    }
+
+    /**
+     * 查询指定用户的公钥
+     *
+     * @param userIds 用户ID列表
+     * @return 用户ID → RSA公钥（按入参顺序，未生成公钥的用户不在其中）
+     */
+    public Map<Long, String> publicKeysOf(Collection<Long> userIds) {
+        Snapshot current = current();
+        Map<Long, String> keys = new LinkedHashMap<>();
+        for (Long userId : userIds) {
+            Recipient recipient = current.byId.get(userId);
+            if (recipient != null) {
+                keys.put(userId, recipient.publicKey);
+            }
+        }
+        return keys;
+    }
+
+    /**
+     * 标记索引失效，下次访问时重建
+     */
+    public void invalidate() {
+        generation.incrementAndGet();
+        snapshot = null;
+    }
+
+    /**
+     * 用户信息或公钥变更
+     */
+    @EventListener
+    public void onUserChanged(UserService.UserChangedEvent event) {
+        invalidate();
+        log.debug("接收方索引已失效 - userId: {}", event.getUserId() != null ? event.getUserId() : "*");
+    }
+
+    private Snapshot current() {
+        Snapshot current = snapshot;
+        if (current != null && !current.isExpired(refreshSeconds)) {
+            return current;
+        }
+        synchronized (this) {
+            current = snapshot;
+            if (current == null || current.isExpired(refreshSeconds)) {
+                long buildGeneration = generation.get();
+                current = build();
+                // 重建期间已失效：本次调用仍使用该结果，但不发布，下次访问重新构建
+                if (generation.get() == buildGeneration) {
+                    snapshot = current;
+                }
+            }
+            return current;
+        }
+    }
+
+    private Snapshot build() {
+        long start = System.currentTimeMillis();
+        List<User> users = userMapper.selectList(new LambdaQueryWrapper<User>()
+                .select(User::getId, User::getRealName, User::getRole, User::getDepartment, User::getRsaPublicKey)
+                .eq(User::getDeleted, 0)
+                .isNotNull(User::getRsaPublicKey)
+                .ne(User::getRsaPublicKey, ""));
+        users.sort(Comparator.comparing(User::getId));
+
+        Map<Long, Recipient> byId = new HashMap<>();
+        Map<String, List<Recipient>> byDepartmentAndRole = new HashMap<>();
+        Map<String, List<Recipient>> byRole = new HashMap<>();
+        for (User user : users) {
+            Recipient recipient = new Recipient(user.getId(), user.getRealName(), user.getRsaPublicKey());
+            byId.put(recipient.id, recipient);
+            if (user.getRole() != null) {
+                byRole.computeIfAbsent(user.getRole(), k -> new ArrayList<>()).add(recipient);
+                if (user.getDepartment() != null) {
+                    byDepartmentAndRole.computeIfAbsent(departmentRoleKey(user.getDepartment(), user.getRole()),
+                            k -> new ArrayList<>()).add(recipient);
+                }
+            }
+        }
+
+        log.info("接收方索引重建完成 - 用户数: {}, 耗时: {}ms", byId.size(), System.currentTimeMillis() - start);
+        return new Snapshot(Collections.unmodifiableMap(byId), immutableIndex(byDepartmentAndRole),
+                immutableIndex(byRole), System.currentTimeMillis());
+    }
+
+    private static Map<String, List<Recipient>> immutableIndex(Map<String, List<Recipient>> index) {
+        index.replaceAll((key, recipients) -> Collections.unmodifiableList(recipients));
+        return Collections.unmodifiableMap(index);
+    }
+
+    private static String departmentRoleKey(String department, String role) {
+        return department + "|" + role;
+    }
+
+    /**
+     * 不可变索引快照
+     */
+    private static final class Snapshot {
+
+        private final Map<Long, Recipient> byId;
+
+        private final Map<String, List<Recipient>> byDepartmentAndRole;
+
+        private final Map<String, List<Recipient>> byRole;
+
+        private final long builtAt;
+
+        private Snapshot(Map<Long, Recipient> byId, Map<String, List<Recipient>> byDepartmentAndRole,
+                         Map<String, List<Recipient>> byRole, long builtAt) {
+            this.byId = byId;
+            this.byDepartmentAndRole = byDepartmentAndRole;
+            this.byRole = byRole;
+            this.builtAt = builtAt;
+        }
+
+        boolean isExpired(long refreshSeconds) {
+            return System.currentTimeMillis() - builtAt > refreshSeconds * 1000;
+        }
+    }
+
+    /**
+     * 接收方（用户ID、姓名、公钥）
+     */
+    private static final class Recipient {
+
+        private final Long id;
+
+        private final String name;
+
+        private final String publicKey;
+
+        private Recipient(Long id, String name, String publicKey) {
+            this.id = id;
+            this.name = name;
+            this.publicKey = publicKey;
+        }
+    }
+}
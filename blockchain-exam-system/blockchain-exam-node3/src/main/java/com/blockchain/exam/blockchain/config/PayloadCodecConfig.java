@@ -0,0 +1,33 @@
+package com.blockchain.exam.blockchain.config;
+
+import com.blockchain.exam.blockchain.util.PayloadCodec;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+
+import javax.annotation.PostConstruct;
+
+/**
+ * 区块/交易数据编码配置
+ *
+ * 将 blockchain.codec.* 配置应用到 PayloadCodec（由MyBatis类型处理器在入库时使用）
+ *
+ * @author Claude Code
+ * @since 2025-11-25
+ */
+@Slf4j
+@Configuration
+public class PayloadCodecConfig {
+
+    @Value("${blockchain.codec.compress:true}")
+    private boolean compress;
+
+    @Value("${blockchain.codec.min-size:1024}")
+    private int minSize;
+
+    @PostConstruct
+    public void init() {
+        PayloadCodec.configure(compress, minSize);
+        log.info("区块数据编码配置 - 压缩: {}, 阈值: {} 字符", compress, minSize);
+    }
+}
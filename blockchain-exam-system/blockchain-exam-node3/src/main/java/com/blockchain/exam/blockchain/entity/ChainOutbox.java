@@ -0,0 +1,97 @@
+package com.blockchain.exam.blockchain.entity;
+
+import com.baomidou.mybatisplus.annotation.*;
+import lombok.Data;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * 上链发件箱实体类
+ *
+ * 业务事务内与业务数据一起写入，提交后由后台任务写入交易池、广播到邻居节点，
+ * 并回填业务记录的区块链交易ID
+ *
+ * @author Claude Code
+ * @since 2025-11-25
+ */
+@Data
+@TableName("chain_outbox")
+public class ChainOutbox implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 发件箱记录ID
+     */
+    @TableId(type = IdType.AUTO)
+    private Long id;
+
+    /**
+     * 负责投递的节点ID（交易写入该节点的交易池）
+     */
+    private String nodeId;
+
+    /**
+     * 业务类型
+     * PAPER - 试卷
+     * APPROVAL - 审批记录
+     * DECRYPT - 解密记录
+     */
+    private String bizType;
+
+    /**
+     * 业务记录ID（用于回填交易ID）
+     */
+    private Long bizId;
+
+    /**
+     * 交易类型（同 Transaction.transactionType）
+     */
+    private String transactionType;
+
+    /**
+     * 交易数据（BlockData序列化后的JSON）
+     */
+    private String payload;
+
+    /**
+     * 投递状态
+     * PENDING - 待投递
+     * SENT - 已写入交易池
+     * FAILED - 超过最大重试次数
+     */
+    private String status;
+
+    /**
+     * 已尝试次数
+     */
+    private Integer attempts;
+
+    /**
+     * 交易池中的交易ID（投递成功后写入）
+     */
+    private Long txId;
+
+    /**
+     * 最近一次失败原因
+     */
+    private String lastError;
+
+    /**
+     * 下次可投递时间（失败后按退避时间推后）
+     */
+    private LocalDateTime nextAttemptTime;
+
+    /**
+     * 创建时间
+     */
+    @TableField(fill = FieldFill.INSERT)
+    private LocalDateTime createTime;
+
+    /**
+     * 更新时间
+     */
+    @TableField(fill = FieldFill.INSERT_UPDATE)
+    private LocalDateTime updateTime;
+}
@@ -3,7 +3,11 @@ package com.blockchain.exam.blockchain.mapper;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.blockchain.exam.blockchain.entity.Block;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Options;
+import org.apache.ibatis.annotations.ResultMap;
 import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.mapping.ResultSetType;
 
 import java.util.List;
 
@@ -25,6 +29,7 @@ public interface BlockMapper extends BaseMapper<Block> {
      * @return 最新区块，如果区块链为空则返回null
      */
     @Select("SELECT * FROM ${tableName} ORDER BY block_index DESC LIMIT 1")
+    @ResultMap("mybatis-plus_Block")
     Block selectLatestBlock(String tableName);
 
     /**
@@ -34,6 +39,7 @@ public interface BlockMapper extends BaseMapper<Block> {
      * @return 指定高度的区块
      */
     @Select("SELECT * FROM ${tableName} WHERE block_index = #{blockIndex}")
+    @ResultMap("mybatis-plus_Block")
     Block selectByBlockIndex(String tableName, Long blockIndex);
 
     /**
@@ -43,6 +49,7 @@ public interface BlockMapper extends BaseMapper<Block> {
      * @return 指定哈希的区块
      */
     @Select("SELECT * FROM ${tableName} WHERE current_hash = #{currentHash}")
+    @ResultMap("mybatis-plus_Block")
     Block selectByHash(String tableName, String currentHash);
 
     /**
@@ -51,6 +58,7 @@ public interface BlockMapper extends BaseMapper<Block> {
      * @return 所有区块列表
      */
     @Select("SELECT * FROM ${tableName} ORDER BY block_index ASC")
+    @ResultMap("mybatis-plus_Block")
     List<Block> selectAllBlocks(String tableName);
 
     /**
@@ -61,8 +69,24 @@ public interface BlockMapper extends BaseMapper<Block> {
      * @return 指定范围内的区块列表
      */
     @Select("SELECT * FROM ${tableName} WHERE block_index >= #{startIndex} AND block_index <= #{endIndex} ORDER BY block_index ASC")
+    @ResultMap("mybatis-plus_Block")
     List<Block> selectBlockRange(String tableName, Long startIndex, Long endIndex);
 
+    /**
+     * 以游标方式流式读取指定范围的区块（按高度升序）
+     *
+     * fetchSize = Integer.MIN_VALUE 让MySQL驱动逐行返回结果，避免一次性加载整条链。
+     * 游标必须在事务（连接）存活期间消费完毕。
+     *
+     * @param startIndex 起始高度（包含）
+     * @param endIndex   结束高度（包含）
+     * @return 区块游标
+     */
+    @Select("SELECT * FROM ${tableName} WHERE block_index >= #{startIndex} AND block_index <= #{endIndex} ORDER BY block_index ASC")
+    @ResultMap("mybatis-plus_Block")
+    @Options(resultSetType = ResultSetType.FORWARD_ONLY, fetchSize = Integer.MIN_VALUE)
+    Cursor<Block> streamBlockRange(String tableName, Long startIndex, Long endIndex);
+
     /**
      * 获取区块链高度（最大区块高度）
      *
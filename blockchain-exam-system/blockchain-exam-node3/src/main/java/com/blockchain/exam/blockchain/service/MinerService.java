@@ -2,6 +2,7 @@ package com.blockchain.exam.blockchain.service;
 
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.blockchain.exam.blockchain.entity.BlockData;
+import com.blockchain.exam.blockchain.entity.ChainEvent;
 import com.blockchain.exam.blockchain.entity.Transaction;
 import com.blockchain.exam.blockchain.mapper.TransactionMapper;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -39,6 +40,9 @@ public class MinerService {
     @Autowired
     private ObjectMapper objectMapper;
 
+    @Autowired
+    private ChainEventService chainEventService;
+
     /**
      * 交易池表名
      */
@@ -108,6 +112,12 @@ public class MinerService {
 
             int updatedCount = updateTransactionsToMined(transactionIds, newBlock.getBlockIndex());
 
+            java.util.Map<String, Object> event = new java.util.HashMap<>();
+            event.put("action", "MINED");
+            event.put("transactionIds", transactionIds);
+            event.put("blockIndex", newBlock.getBlockIndex());
+            chainEventService.publish(ChainEvent.MEMPOOL_CHANGED, event);
+
             log.info("挖矿成功 - 区块高度: {}, 打包交易数: {}, 更新交易状态: {}",
                     newBlock.getBlockIndex(), pendingTransactions.size(), updatedCount);
 
@@ -0,0 +1,236 @@
+package com.blockchain.exam.integration;
+
+import com.blockchain.exam.blockchain.entity.ChainOutbox;
+import com.blockchain.exam.blockchain.entity.Transaction;
+import com.blockchain.exam.blockchain.mapper.ChainOutboxMapper;
+import com.blockchain.exam.blockchain.mapper.TransactionMapper;
+import com.blockchain.exam.p2p.service.P2PTransactionService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 上链发件箱投递服务
+ *
+ * 业务事务只写入 chain_outbox（见 BlockchainIntegrationService.enqueue*），请求耗时仅为本地提交；
+ * 本服务在后台完成其余步骤：
+ * - 每条记录一个本地事务：写入交易池、同步发布 ChainSubmittedEvent 回填业务记录、标记已投递
+ * - 事务提交后广播到邻居节点
+ * - 失败按指数退避重试，超过最大次数标记为 FAILED
+ *
+ * 不保证记录按写入顺序进入交易池：失败记录退避期间，其后的记录照常投递，
+ * 单条记录失败不会阻塞整个节点的上链。
+ *
+ * 业务事务提交后立即唤醒一次投递，定时轮询兜底（节点重启、唤醒丢失、重试到期）。
+ *
+ * @author Claude Code
+ * @since 2025-11-25
+ */
+@Slf4j
+@Service
+public class ChainOutboxService {
+
+    public static final String STATUS_PENDING = "PENDING";
+    public static final String STATUS_SENT = "SENT";
+    public static final String STATUS_FAILED = "FAILED";
+
+    /**
+     * 失败原因最大保存长度
+     */
+    private static final int MAX_ERROR_LENGTH = 500;
+
+    @Autowired
+    private ChainOutboxMapper outboxMapper;
+
+    @Autowired
+    private TransactionMapper transactionMapper;
+
+    @Autowired
+    private P2PTransactionService p2pTransactionService;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${p2p.node.id}")
+    private String currentNodeId;
+
+    @Value("${chain.outbox.batch-size:100}")
+    private int batchSize;
+
+    @Value("${chain.outbox.max-attempts:10}")
+    private int maxAttempts;
+
+    @Value("${chain.outbox.backoff-base-ms:1000}")
+    private long backoffBaseMs;
+
+    @Value("${chain.outbox.backoff-max-ms:300000}")
+    private long backoffMaxMs;
+
+    @Value("${chain.outbox.retention-days:7}")
+    private int retentionDays;
+
+    /**
+     * 投递线程（单线程，唤醒请求串行执行）
+     */
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "chain-outbox");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * 投递锁，唤醒与定时轮询同一时刻只有一个在执行
+     */
+    private final ReentrantLock drainLock = new ReentrantLock();
+
+    /**
+     * 唤醒投递线程（业务事务提交后调用）
+     */
+    public void wakeUp() {
+        try {
+            executor.execute(this::drain);
+        } catch (RejectedExecutionException e) {
+            // 节点关闭中，剩余记录由下次启动后的轮询投递
+            log.debug("上链发件箱投递线程已关闭");
+        }
+    }
+
+    /**
+     * 定时轮询到期记录
+     */
+    @Scheduled(fixedDelayString = "${chain.outbox.poll-interval-ms:2000}", initialDelay = 10000)
+    public void poll() {
+        drain();
+    }
+
+    /**
+     * 每天清理过期的已投递记录
+     */
+    @Scheduled(cron = "0 10 4 * * ?")
+    public void cleanup() {
+        int deleted = outboxMapper.deleteSentBefore(currentNodeId, LocalDateTime.now().minusDays(retentionDays));
+        if (deleted > 0) {
+            log.info("清理已投递的上链发件箱记录 - 数量: {}", deleted);
+        }
+    }
+
+    /**
+     * 获取发件箱统计信息
+     *
+     * @return 统计信息
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("nodeId", currentNodeId);
+        stats.put("pending", outboxMapper.countByStatus(currentNodeId, STATUS_PENDING));
+        stats.put("sent", outboxMapper.countByStatus(currentNodeId, STATUS_SENT));
+        stats.put("failed", outboxMapper.countByStatus(currentNodeId, STATUS_FAILED));
+        return stats;
+    }
+
+    /**
+     * 投递全部到期记录，直到没有剩余
+     */
+    private void drain() {
+        if (!drainLock.tryLock()) {
+            return;
+        }
+        try {
+            List<ChainOutbox> batch;
+            do {
+                batch = outboxMapper.selectDue(currentNodeId, LocalDateTime.now(), batchSize);
+                for (ChainOutbox outbox : batch) {
+                    deliver(outbox);
+                }
+            } while (batch.size() == batchSize);
+        } catch (Exception e) {
+            log.error("上链发件箱投递异常", e);
+        } finally {
+            drainLock.unlock();
+        }
+    }
+
+    private void deliver(ChainOutbox outbox) {
+        Transaction transaction;
+        try {
+            transaction = transactionTemplate.execute(status -> {
+                Transaction tx = new Transaction();
+                tx.setTransactionType(outbox.getTransactionType());
+                tx.setTransactionData(outbox.getPayload());
+                tx.setCreatorNode(currentNodeId);
+                tx.setStatus("PENDING");
+                transactionMapper.insert(tx);
+
+                // 回填监听器在同一事务内执行，交易池写入与业务回填同时生效
+                eventPublisher.publishEvent(new ChainSubmittedEvent(
+                        outbox.getBizType(), outbox.getBizId(), tx.getId(), LocalDateTime.now()));
+
+                if (outboxMapper.markSent(outbox.getId(), tx.getId()) == 0) {
+                    // 记录已被处理，放弃本次写入
+                    status.setRollbackOnly();
+                    return null;
+                }
+                return tx;
+            });
+        } catch (Exception e) {
+            markFailed(outbox, e);
+            return;
+        }
+        if (transaction == null) {
+            return;
+        }
+
+        log.info("上链发件箱记录已写入交易池 - 业务: {}#{}, 交易ID: {}",
+                outbox.getBizType(), outbox.getBizId(), transaction.getId());
+
+        // 广播失败不影响本地打包，邻居节点可通过区块同步获得
+        try {
+            int broadcastCount = p2pTransactionService.broadcastTransaction(transaction);
+            log.info("上链交易已广播 - 交易ID: {}, 成功广播到 {} 个节点", transaction.getId(), broadcastCount);
+        } catch (Exception e) {
+            log.warn("上链交易广播失败 - 交易ID: {}, 原因: {}", transaction.getId(), e.getMessage());
+        }
+    }
+
+    private void markFailed(ChainOutbox outbox, Exception e) {
+        int attempts = outbox.getAttempts() == null ? 1 : outbox.getAttempts() + 1;
+        String status = attempts >= maxAttempts ? STATUS_FAILED : STATUS_PENDING;
+        long delayMs = Math.min(backoffMaxMs, backoffBaseMs << Math.min(attempts - 1, 20));
+        String error = e.getMessage() == null ? e.getClass().getSimpleName() : e.getMessage();
+        if (error.length() > MAX_ERROR_LENGTH) {
+            error = error.substring(0, MAX_ERROR_LENGTH);
+        }
+        outboxMapper.markAttemptFailed(outbox.getId(), status, error,
+                LocalDateTime.now().plusNanos(delayMs * 1_000_000));
+
+        if (STATUS_FAILED.equals(status)) {
+            log.error("上链发件箱记录投递失败，已放弃 - 业务: {}#{}, 尝试次数: {}",
+                    outbox.getBizType(), outbox.getBizId(), attempts, e);
+        } else {
+            log.warn("上链发件箱记录投递失败，{}ms后重试 - 业务: {}#{}, 尝试次数: {}, 原因: {}",
+                    delayMs, outbox.getBizType(), outbox.getBizId(), attempts, error);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,426 @@
+package com.blockchain.exam.p2p.service;
+
+import com.blockchain.exam.blockchain.util.HashUtil;
+import com.blockchain.exam.p2p.entity.P2PNode;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.client.RestTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * P2P内容寻址数据块服务
+ *
+ * 大体积的交易载荷（加密试卷内容）不再写入交易和区块，交易中只保留引用：
+ * chain-blob://{SHA-256}，以及字节数。数据块本身：
+ * - 以 SHA-256 为地址存放在本节点目录（{blob-dir}/{哈希前2位}/{哈希}），写入即不可变
+ * - 节点间按固定大小分块传输：先取清单（总大小、分块大小、各分块哈希），再逐块下载
+ * - 每个分块按清单校验，拼接完成后再校验整体哈希，与引用不一致的数据一律丢弃
+ *
+ * 收到引用了本地缺失数据块的交易或区块时，后台从来源节点/邻居节点拉取（按哈希去重）；
+ * 读取只访问本地，不因读请求向邻居节点拉取，避免任意哈希的读请求在集群内被放大。
+ *
+ * 在事务中新写入的数据块若事务回滚且没有其他写入方复用，随之删除；
+ * 数据块不可变，清单计算一次后缓存。
+ *
+ * @author Claude Code
+ * @since 2025-11-25
+ */
+@Slf4j
+@Service
+public class P2PBlobService {
+
+    /**
+     * 数据块引用前缀
+     */
+    public static final String REF_PREFIX = "chain-blob://";
+
+    /**
+     * 在交易/区块JSON中查找数据块引用
+     */
+    private static final Pattern REF_PATTERN = Pattern.compile(Pattern.quote(REF_PREFIX) + "([0-9a-f]{64})");
+
+    private static final Pattern HASH_PATTERN = Pattern.compile("[0-9a-f]{64}");
+
+    /**
+     * 清单缓存容量
+     */
+    private static final int MANIFEST_CACHE_SIZE = 1024;
+
+    @Autowired
+    private P2PNodeService p2pNodeService;
+
+    @Autowired
+    private RestTemplate restTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${blockchain.blob.dir:./chain-blobs/${p2p.node.id}}")
+    private String blobDir;
+
+    @Value("${blockchain.blob.chunk-size:262144}")
+    private int chunkSize;
+
+    /**
+     * 正在拉取的数据块，避免重复下载
+     */
+    private final Set<String> fetching = ConcurrentHashMap.newKeySet();
+
+    /**
+     * 由未提交事务新写入的数据块，事务回滚时删除；期间被其他写入方复用的会移出，不再删除
+     */
+    private final Set<String> uncommitted = ConcurrentHashMap.newKeySet();
+
+    /**
+     * 数据块清单缓存（数据块不可变，清单只需计算一次）
+     */
+    private final Cache<String, Map<String, Object>> manifestCache = CacheBuilder.newBuilder()
+            .maximumSize(MANIFEST_CACHE_SIZE)
+            .build();
+
+    /**
+     * 拉取线程
+     */
+    private final ExecutorService executor = Executors.newFixedThreadPool(2, r -> {
+        Thread thread = new Thread(r, "chain-blob-fetch");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @PostConstruct
+    public void init() {
+        try {
+            Files.createDirectories(Paths.get(blobDir));
+        } catch (IOException e) {
+            throw new IllegalStateException("创建数据块目录失败: " + blobDir, e);
+        }
+        log.info("数据块存储初始化完成 - 目录: {}, 分块大小: {} 字节", blobDir, chunkSize);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * 生成数据块引用
+     *
+     * @param hash 数据块哈希
+     * @return 引用
+     */
+    public static String toRef(String hash) {
+        return REF_PREFIX + hash;
+    }
+
+    /**
+     * 提取JSON文本中的全部数据块引用（交易数据、区块数据均可，嵌套转义不影响匹配）
+     *
+     * @param json JSON文本
+     * @return 数据块哈希（去重，保持出现顺序）
+     */
+    public static Set<String> extractRefs(String json) {
+        Set<String> hashes = new LinkedHashSet<>();
+        if (json == null || !json.contains(REF_PREFIX)) {
+            return hashes;
+        }
+        Matcher matcher = REF_PATTERN.matcher(json);
+        while (matcher.find()) {
+            hashes.add(matcher.group(1));
+        }
+        return hashes;
+    }
+
+    /**
+     * 保存数据块
+     * 在事务中调用且数据块由本次新写入时，事务回滚后删除该数据块
+     *
+     * @param content 内容
+     * @return 数据块哈希（SHA-256）
+     */
+    public String store(String content) {
+        byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+        String hash = HashUtil.bytesToHex(HashUtil.sha256Bytes(bytes));
+        Path target = resolve(hash);
+        if (Files.exists(target)) {
+            // 已有的数据块被本次复用，即使写入它的事务回滚也不能删除
+            uncommitted.remove(hash);
+            return hash;
+        }
+        try {
+            Files.createDirectories(target.getParent());
+            Path temp = Files.createTempFile(target.getParent(), hash, ".tmp");
+            try {
+                Files.write(temp, bytes);
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+            } catch (FileAlreadyExistsException e) {
+                // 并发写入了相同内容，内容寻址保证数据一致
+                uncommitted.remove(hash);
+                return hash;
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("保存数据块失败: " + hash, e);
+        }
+        registerRollbackCleanup(hash);
+        log.debug("数据块已保存 - 哈希: {}, 大小: {} 字节", hash, bytes.length);
+        return hash;
+    }
+
+    /**
+     * 当前事务回滚时删除本次新写入的数据块
+     */
+    private void registerRollbackCleanup(String hash) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        uncommitted.add(hash);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (!uncommitted.remove(hash) || status != STATUS_ROLLED_BACK) {
+                    return;
+                }
+                try {
+                    Files.deleteIfExists(resolve(hash));
+                    manifestCache.invalidate(hash);
+                    log.debug("事务回滚，已删除数据块 - 哈希: {}", hash);
+                } catch (IOException e) {
+                    log.warn("事务回滚后删除数据块失败 - 哈希: {}, 原因: {}", hash, e.getMessage());
+                }
+            }
+        });
+    }
+
+    /**
+     * 本地是否已有数据块
+     *
+     * @param hash 数据块哈希
+     * @return 是否存在
+     */
+    public boolean contains(String hash) {
+        return isValidHash(hash) && Files.exists(resolve(hash));
+    }
+
+    /**
+     * 读取本地数据块
+     * 本地缺失时不拉取：交易/区块引用的数据块由 replicateRefs 在后台同步
+     *
+     * @param hash 数据块哈希
+     * @return 内容（本地不存在时返回null）
+     */
+    public String load(String hash) {
+        if (!contains(hash)) {
+            return null;
+        }
+        try {
+            byte[] bytes = Files.readAllBytes(resolve(hash));
+            if (!hash.equals(HashUtil.bytesToHex(HashUtil.sha256Bytes(bytes)))) {
+                log.error("数据块校验失败，已删除 - 哈希: {}", hash);
+                Files.deleteIfExists(resolve(hash));
+                manifestCache.invalidate(hash);
+                return null;
+            }
+            return new String(bytes, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            log.error("读取数据块失败 - 哈希: {}", hash, e);
+            return null;
+        }
+    }
+
+    /**
+     * 获取数据块清单
+     *
+     * @param hash 数据块哈希
+     * @return 清单（hash、size、chunkSize、chunkHashes，只读），不存在时返回null
+     */
+    public Map<String, Object> getManifest(String hash) throws IOException {
+        if (!contains(hash)) {
+            return null;
+        }
+        Map<String, Object> cached = manifestCache.getIfPresent(hash);
+        if (cached != null) {
+            return cached;
+        }
+        Path path = resolve(hash);
+        List<String> chunkHashes = new ArrayList<>();
+        byte[] buffer = new byte[chunkSize];
+        try (InputStream in = Files.newInputStream(path)) {
+            int read;
+            while ((read = in.readNBytes(buffer, 0, chunkSize)) > 0) {
+                byte[] chunk = read == chunkSize ? buffer : Arrays.copyOf(buffer, read);
+                chunkHashes.add(HashUtil.bytesToHex(HashUtil.sha256Bytes(chunk)));
+            }
+        }
+        Map<String, Object> manifest = new HashMap<>();
+        manifest.put("hash", hash);
+        manifest.put("size", Files.size(path));
+        manifest.put("chunkSize", chunkSize);
+        manifest.put("chunkHashes", Collections.unmodifiableList(chunkHashes));
+        Map<String, Object> result = Collections.unmodifiableMap(manifest);
+        manifestCache.put(hash, result);
+        return result;
+    }
+
+    /**
+     * 读取数据块的一个分块
+     *
+     * @param hash  数据块哈希
+     * @param index 分块序号（从0开始）
+     * @return 分块内容，不存在时返回null
+     */
+    public byte[] readChunk(String hash, int index) throws IOException {
+        if (!contains(hash) || index < 0) {
+            return null;
+        }
+        Path path = resolve(hash);
+        long offset = (long) index * chunkSize;
+        if (offset >= Files.size(path)) {
+            return null;
+        }
+        try (InputStream in = Files.newInputStream(path)) {
+            in.skipNBytes(offset);
+            return in.readNBytes(chunkSize);
+        }
+    }
+
+    /**
+     * 确保交易/区块引用的数据块在本地可用，缺失的在后台拉取
+     *
+     * @param json         交易数据或区块数据
+     * @param sourceNodeId 优先拉取的节点（可为null）
+     */
+    public void replicateRefs(String json, String sourceNodeId) {
+        for (String hash : extractRefs(json)) {
+            if (contains(hash) || !fetching.add(hash)) {
+                continue;
+            }
+            try {
+                executor.execute(() -> {
+                    try {
+                        fetch(hash, sourceNodeId);
+                    } finally {
+                        fetching.remove(hash);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                fetching.remove(hash);
+            }
+        }
+    }
+
+    /**
+     * 从邻居节点拉取数据块（来源节点优先）
+     *
+     * @return 是否成功
+     */
+    private boolean fetch(String hash, String sourceNodeId) {
+        List<P2PNode> neighbors = new ArrayList<>(p2pNodeService.getNeighborNodes());
+        if (sourceNodeId != null) {
+            neighbors.sort((a, b) -> Boolean.compare(
+                    !sourceNodeId.equals(a.getNodeId()), !sourceNodeId.equals(b.getNodeId())));
+        }
+        for (P2PNode neighbor : neighbors) {
+            try {
+                if (fetchFrom(neighbor, hash)) {
+                    return true;
+                }
+            } catch (Exception e) {
+                log.warn("从节点 {} 拉取数据块失败 - 哈希: {}, 原因: {}", neighbor.getNodeId(), hash, e.getMessage());
+            }
+        }
+        log.warn("所有邻居节点均无法提供数据块 - 哈希: {}", hash);
+        return false;
+    }
+
+    private boolean fetchFrom(P2PNode neighbor, String hash) throws IOException {
+        String baseUrl = neighbor.getNodeUrl() + "/p2p/blob/" + hash;
+        ResponseEntity<String> response = restTemplate.getForEntity(baseUrl + "/manifest", String.class);
+        JsonNode manifest = objectMapper.readTree(response.getBody()).path("data");
+        if (!response.getStatusCode().is2xxSuccessful() || !manifest.has("chunkHashes")) {
+            return false;
+        }
+        long size = manifest.path("size").asLong();
+        JsonNode chunkHashes = manifest.path("chunkHashes");
+
+        Path target = resolve(hash);
+        Files.createDirectories(target.getParent());
+        Path temp = Files.createTempFile(target.getParent(), hash, ".part");
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            try (OutputStream out = new DigestOutputStream(Files.newOutputStream(temp), digest)) {
+                for (int i = 0; i < chunkHashes.size(); i++) {
+                    byte[] chunk = restTemplate.getForObject(baseUrl + "/chunk/" + i, byte[].class);
+                    if (chunk == null || !chunkHashes.get(i).asText().equals(
+                            HashUtil.bytesToHex(HashUtil.sha256Bytes(chunk)))) {
+                        throw new IOException("分块 " + i + " 校验失败");
+                    }
+                    out.write(chunk);
+                }
+            }
+            if (Files.size(temp) != size || !hash.equals(HashUtil.bytesToHex(digest.digest()))) {
+                throw new IOException("数据块整体校验失败");
+            }
+            try {
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+            } catch (FileAlreadyExistsException e) {
+                // 本地已并发写入相同内容
+                log.debug("数据块已存在，跳过 - 哈希: {}", hash);
+            }
+            // 其他节点已提交的数据块，本地事务回滚时不能删除
+            uncommitted.remove(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256算法不可用", e);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        log.info("数据块已从节点 {} 拉取 - 哈希: {}, 大小: {} 字节, 分块数: {}",
+                neighbor.getNodeId(), hash, size, chunkHashes.size());
+        return true;
+    }
+
+    private Path resolve(String hash) {
+        return Paths.get(blobDir, hash.substring(0, 2), hash);
+    }
+
+    private static boolean isValidHash(String hash) {
+        return hash != null && HASH_PATTERN.matcher(hash).matches();
+    }
+}
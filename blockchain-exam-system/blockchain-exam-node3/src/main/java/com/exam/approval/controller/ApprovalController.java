@@ -1,8 +1,11 @@
 package com.exam.approval.controller;
 
+import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.exam.approval.common.result.Result;
+import com.exam.approval.dto.CursorPage;
+import com.exam.approval.dto.ExamPaperSummary;
+import com.exam.approval.dto.PaperQuery;
 import com.exam.approval.entity.ApprovalRecord;
-import com.exam.approval.entity.ExamPaper;
 import com.exam.approval.entity.User;
 import com.exam.approval.service.ApprovalService;
 import com.exam.approval.service.UserService;
@@ -46,7 +49,7 @@ public class ApprovalController {
     @ApiOperation("获取待审批试卷")
     @GetMapping("/pending")
     @PreAuthorize("hasAnyRole('DEPT_ADMIN', 'COLLEGE_ADMIN')")
-    public Result<List<ExamPaper>> getPendingPapers() {
+    public Result<List<ExamPaperSummary>> getPendingPapers() {
         String userRole = SecurityUtil.getCurrentUserRole();
         Long userId = SecurityUtil.getCurrentUserId();
 
@@ -58,13 +61,50 @@ public class ApprovalController {
         User currentUser = userService.getUserById(userId);
         String userDepartment = currentUser != null ? currentUser.getDepartment() : null;
 
-        List<ExamPaper> papers = approvalService.getPendingPapers(userRole, userDepartment);
+        List<ExamPaperSummary> papers = approvalService.getPendingPapers(userRole, userDepartment);
 
         log.debug("查询待审批试卷: role={}, department={}, count={}", userRole, userDepartment, papers.size());
 
         return Result.success(papers);
     }
 
+    /**
+     * 分页获取待审批试卷
+     * 支持按创建人、创建时间范围过滤
+     */
+    @ApiOperation("分页获取待审批试卷")
+    @GetMapping("/pending/page")
+    @PreAuthorize("hasAnyRole('DEPT_ADMIN', 'COLLEGE_ADMIN')")
+    public Result<IPage<ExamPaperSummary>> pagePendingPapers(PaperQuery query) {
+        String userRole = SecurityUtil.getCurrentUserRole();
+        if (userRole == null) {
+            return Result.error("未获取到用户角色");
+        }
+
+        User currentUser = userService.getUserById(SecurityUtil.getCurrentUserId());
+        String userDepartment = currentUser != null ? currentUser.getDepartment() : null;
+
+        return Result.success(approvalService.pagePendingPapers(query, userRole, userDepartment));
+    }
+
+    /**
+     * 游标获取待审批试卷
+     */
+    @ApiOperation("游标获取待审批试卷")
+    @GetMapping("/pending/cursor")
+    @PreAuthorize("hasAnyRole('DEPT_ADMIN', 'COLLEGE_ADMIN')")
+    public Result<CursorPage<ExamPaperSummary>> scrollPendingPapers(PaperQuery query) {
+        String userRole = SecurityUtil.getCurrentUserRole();
+        if (userRole == null) {
+            return Result.error("未获取到用户角色");
+        }
+
+        User currentUser = userService.getUserById(SecurityUtil.getCurrentUserId());
+        String userDepartment = currentUser != null ? currentUser.getDepartment() : null;
+
+        return Result.success(approvalService.scrollPendingPapers(query, userRole, userDepartment));
+    }
+
     /**
      * 审批通过
      */
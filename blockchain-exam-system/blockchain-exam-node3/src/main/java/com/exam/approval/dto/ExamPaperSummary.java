@@ -0,0 +1,151 @@
+package com.exam.approval.dto;
+
+import com.exam.approval.entity.ExamPaper;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * 试卷列表摘要DTO
+ * 列表页只需要表头信息，不含试卷内容、密钥材料、签名和附件路径
+ * 内容与密钥仅通过详情和解密接口加载
+ *
+ * @author 网络信息安全大作业
+ * @date 2025-12-01
+ */
+@Data
+public class ExamPaperSummary {
+
+    /**
+     * 试卷ID
+     */
+    private Long id;
+
+    /**
+     * 试卷标题
+     */
+    private String title;
+
+    /**
+     * 科目
+     */
+    private String subject;
+
+    /**
+     * 年级
+     */
+    private String grade;
+
+    /**
+     * 课程名称（映射自subject）
+     */
+    private String courseName;
+
+    /**
+     * 考试类型（从title中提取）
+     */
+    private String examType;
+
+    /**
+     * 学期（映射自grade）
+     */
+    private String semester;
+
+    /**
+     * 院系
+     */
+    private String department;
+
+    /**
+     * 状态
+     */
+    private String status;
+
+    /**
+     * 附件原始文件名
+     */
+    private String fileName;
+
+    /**
+     * 试卷内容哈希
+     */
+    private String contentHash;
+
+    /**
+     * 区块链交易ID
+     */
+    private Long blockchainTxId;
+
+    /**
+     * 上链时间
+     */
+    private LocalDateTime chainTime;
+
+    /**
+     * 创建人ID
+     */
+    private Long creatorId;
+
+    /**
+     * 创建人姓名
+     */
+    private String creatorName;
+
+    /**
+     * 教师ID（别名，映射自creatorId）
+     */
+    private Long teacherId;
+
+    /**
+     * 教师姓名（别名，映射自creatorName）
+     */
+    private String teacherName;
+
+    /**
+     * 创建时间
+     */
+    private LocalDateTime createTime;
+
+    /**
+     * 更新时间
+     */
+    private LocalDateTime updateTime;
+
+    /**
+     * 由只查询了表头列的试卷实体构建摘要，并完成前端期望的字段映射
+     *
+     * @param paper 试卷实体
+     * @return 试卷摘要
+     */
+    public static ExamPaperSummary from(ExamPaper paper) {
+        ExamPaperSummary summary = new ExamPaperSummary();
+        summary.setId(paper.getId());
+        summary.setTitle(paper.getTitle());
+        summary.setSubject(paper.getSubject());
+        summary.setGrade(paper.getGrade());
+        summary.setDepartment(paper.getDepartment());
+        summary.setStatus(paper.getStatus());
+        summary.setFileName(paper.getFileName());
+        summary.setContentHash(paper.getContentHash());
+        summary.setBlockchainTxId(paper.getBlockchainTxId());
+        summary.setChainTime(paper.getChainTime());
+        summary.setCreatorId(paper.getCreatorId());
+        summary.setCreatorName(paper.getCreatorName());
+        summary.setCreateTime(paper.getCreateTime());
+        summary.setUpdateTime(paper.getUpdateTime());
+
+        // 字段映射：将持久化字段映射到前端期望的字段
+        summary.setCourseName(paper.getSubject());
+        // 从title中提取examType（title格式: "课程名称 考试类型"）
+        if (paper.getTitle() != null && paper.getTitle().contains(" ")) {
+            String[] parts = paper.getTitle().split(" ", 2);
+            if (parts.length > 1) {
+                summary.setExamType(parts[1]);
+            }
+        }
+        summary.setSemester(paper.getGrade());
+        summary.setTeacherName(paper.getCreatorName());
+        summary.setTeacherId(paper.getCreatorId());
+        return summary;
+    }
+}
@@ -13,12 +13,14 @@ import java.util.Map;
  * 试卷加密请求DTO
  * 接收前端发送的加密数据
  *
- * 加密方案：
- * - 小字段（courseName, examType, semester, department, filePath）使用RSA加密
+ * 加密方案（v2，version=2）：
+ * - 元数据（courseName, examType, semester, department, filePath）序列化为JSON后整体AES加密，放入 metadata
  * - 大字段（content）使用AES加密
- * - AES密钥使用RSA加密传输
+ * - AES密钥使用RSA加密传输，服务端每个请求只需一次RSA私钥运算
  * - 包含timestamp和nonce防重放
- * - 包含HMAC签名验证完整性
+ * - 包含HMAC签名验证完整性（覆盖 version、metadata 及其余字段）
+ *
+ * 旧版方案（version为空或1）：小字段各自RSA加密，仍然兼容
  *
  * @author 网络信息安全大作业
  * @date 2025-11-16
@@ -28,22 +30,32 @@ import java.util.Map;
 public class PaperEncryptedRequest {
 
     /**
-     * 加密的课程名称（RSA加密，Base64编码）
+     * 请求格式版本（为空或1为旧版，2为元数据AES加密）
+     */
+    private Integer version;
+
+    /**
+     * 加密的元数据JSON（v2，AES加密，Base64编码）
+     */
+    private String metadata;
+
+    /**
+     * 加密的课程名称（旧版，RSA加密，Base64编码）
      */
     private String courseName;
 
     /**
-     * 加密的考试类型（RSA加密，Base64编码）
+     * 加密的考试类型（旧版，RSA加密，Base64编码）
      */
     private String examType;
 
     /**
-     * 加密的学期（RSA加密，Base64编码）
+     * 加密的学期（旧版，RSA加密，Base64编码）
      */
     private String semester;
 
     /**
-     * 加密的院系（RSA加密，Base64编码）
+     * 加密的院系（旧版，RSA加密，Base64编码）
      */
     private String department;
 
@@ -53,7 +65,7 @@ public class PaperEncryptedRequest {
     private String content;
 
     /**
-     * 加密的文件路径（RSA加密，Base64编码，可选）
+     * 加密的文件路径（旧版，RSA加密，Base64编码，可选）
      */
     private String filePath;
 
@@ -94,6 +106,16 @@ public class PaperEncryptedRequest {
         try {
             // 使用LinkedHashMap保证字段顺序与前端一致
             Map<String, Object> signMap = new LinkedHashMap<>();
+            if (isV2()) {
+                signMap.put("version", version);
+                signMap.put("metadata", metadata != null ? metadata : "");
+                signMap.put("content", content != null ? content : "");
+                signMap.put("encryptedAesKey", encryptedAesKey != null ? encryptedAesKey : "");
+                signMap.put("timestamp", timestamp != null ? timestamp : 0);
+                signMap.put("nonce", nonce != null ? nonce : "");
+                return new ObjectMapper().writeValueAsString(signMap);
+            }
+
             signMap.put("courseName", courseName != null ? courseName : "");
             signMap.put("examType", examType != null ? examType : "");
             signMap.put("semester", semester != null ? semester : "");
@@ -116,4 +138,14 @@ public class PaperEncryptedRequest {
             throw new RuntimeException("生成签名数据失败", e);
         }
     }
+
+    /**
+     * 是否为v2格式（元数据AES加密）
+     *
+     * @return 是否为v2
+     */
+    @JsonIgnore
+    public boolean isV2() {
+        return version != null && version >= 2;
+    }
 }
@@ -0,0 +1,64 @@
+package com.exam.approval.dto;
+
+import lombok.Data;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.time.LocalDateTime;
+
+/**
+ * 试卷列表查询条件DTO
+ * 用于分页（页码）和游标（keyset）两种列表查询
+ *
+ * 过滤条件均可选，与 exam_paper 的组合索引对应：
+ * - (status, department, create_time)
+ * - (creator_id, status, create_time)
+ * 排序固定为 create_time DESC, id DESC
+ *
+ * @author 网络信息安全大作业
+ * @date 2025-12-01
+ */
+@Data
+public class PaperQuery {
+
+    /**
+     * 状态
+     */
+    private String status;
+
+    /**
+     * 院系
+     */
+    private String department;
+
+    /**
+     * 创建人ID
+     */
+    private Long creatorId;
+
+    /**
+     * 创建时间起（含）
+     */
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private LocalDateTime createTimeFrom;
+
+    /**
+     * 创建时间止（不含）
+     */
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private LocalDateTime createTimeTo;
+
+    /**
+     * 页码（从1开始，分页查询使用）
+     */
+    private long current = 1;
+
+    /**
+     * 每页条数
+     */
+    private long size = 20;
+
+    /**
+     * 游标（游标查询使用，首屏为空，后续传上一页返回的nextCursor）
+     */
+    private String cursor;
+}
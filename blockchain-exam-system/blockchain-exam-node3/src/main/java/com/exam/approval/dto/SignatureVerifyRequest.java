@@ -0,0 +1,34 @@
+package com.exam.approval.dto;
+
+import lombok.Data;
+
+/**
+ * 批量验证解密签名请求DTO
+ * paperId 与 startId + endId 二选一，记录数和ID跨度受 security.signature-verify 限制
+ *
+ * @author 网络信息安全大作业
+ * @date 2025-12-01
+ */
+@Data
+public class SignatureVerifyRequest {
+
+    /**
+     * 试卷ID：验证该试卷的全部解密记录
+     */
+    private Long paperId;
+
+    /**
+     * 起始记录ID（含）
+     */
+    private Long startId;
+
+    /**
+     * 结束记录ID（含）
+     */
+    private Long endId;
+
+    /**
+     * 是否只返回未通过的明细
+     */
+    private boolean onlyFailures;
+}
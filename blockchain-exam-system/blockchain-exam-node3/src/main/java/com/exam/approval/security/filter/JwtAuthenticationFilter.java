@@ -51,10 +51,10 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
             // 1. 从请求头中获取Token
             String token = extractToken(request);
 
-            // 2. 验证Token
-            if (StringUtils.hasText(token) && jwtUtil.validateToken(token)) {
-                // 3. 解析Token获取用户信息
-                Claims claims = jwtUtil.parseToken(token);
+            // 2. 验证Token并获取用户信息（一次验签，结果短暂缓存）
+            Claims claims = StringUtils.hasText(token) ? jwtUtil.verifyToken(token) : null;
+            if (claims != null) {
+                // 3. 读取用户信息
                 Long userId = claims.get("userId", Long.class);
                 String username = claims.getSubject();
                 String role = claims.get("role", String.class);
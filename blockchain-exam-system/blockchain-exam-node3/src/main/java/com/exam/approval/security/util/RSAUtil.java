@@ -1,7 +1,10 @@
 package com.exam.approval.security.util;
 
 import cn.hutool.core.codec.Base64;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.codec.digest.DigestUtils;
 
 import javax.crypto.Cipher;
 import java.security.*;
@@ -10,6 +13,7 @@ import java.security.spec.X509EncodedKeySpec;
 import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 /**
  * RSA-2048 加密和数字签名工具类
@@ -19,6 +23,10 @@ import java.util.Map;
  * - RSA-SHA256数字签名/验证
  * - 支持密钥对生成
  *
+ * 性能：
+ * - 已解析的公钥/私钥按指纹（密钥串SHA-256）缓存，避免重复Base64解码和KeyFactory解析
+ * - Cipher/Signature实例按线程复用，每次调用仅重新init
+ *
  * 用途：
  * - 加密会话密钥（前后端协商AES密钥）
  * - 审批操作数字签名（不可抵赖）
@@ -32,8 +40,35 @@ public class RSAUtil {
     private static final String ALGORITHM = "RSA";
     private static final String TRANSFORMATION = "RSA/ECB/OAEPWITHSHA-256ANDMGF1PADDING";
     private static final String SIGNATURE_ALGORITHM = "SHA256withRSA";
+    private static final String PKCS1_TRANSFORMATION = "RSA/ECB/PKCS1Padding";
     private static final int KEY_SIZE = 2048;
 
+    /**
+     * 公钥缓存（系统公钥 + 各用户公钥）
+     */
+    private static final Cache<String, PublicKey> PUBLIC_KEY_CACHE = CacheBuilder.newBuilder()
+            .maximumSize(1024)
+            .expireAfterAccess(30, TimeUnit.MINUTES)
+            .build();
+
+    /**
+     * 私钥缓存（主要是系统私钥；用户导入的私钥短时间后即淘汰，避免长期驻留内存）
+     */
+    private static final Cache<String, PrivateKey> PRIVATE_KEY_CACHE = CacheBuilder.newBuilder()
+            .maximumSize(64)
+            .expireAfterAccess(10, TimeUnit.MINUTES)
+            .build();
+
+    private static final ThreadLocal<Cipher> OAEP_CIPHER = ThreadLocal.withInitial(() -> newCipher(TRANSFORMATION));
+    private static final ThreadLocal<Cipher> PKCS1_CIPHER = ThreadLocal.withInitial(() -> newCipher(PKCS1_TRANSFORMATION));
+    private static final ThreadLocal<Signature> SIGNATURE = ThreadLocal.withInitial(() -> {
+        try {
+            return Signature.getInstance(SIGNATURE_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    });
+
     public static final String PUBLIC_KEY = "publicKey";
     public static final String PRIVATE_KEY = "privateKey";
 
@@ -71,13 +106,8 @@ public class RSAUtil {
      */
     public static String encryptByPublicKey(String plainText, String publicKeyStr) {
         try {
-            byte[] keyBytes = Base64.decode(publicKeyStr);
-            X509EncodedKeySpec keySpec = new X509EncodedKeySpec(keyBytes);
-            KeyFactory keyFactory = KeyFactory.getInstance(ALGORITHM);
-            PublicKey publicKey = keyFactory.generatePublic(keySpec);
-
-            Cipher cipher = Cipher.getInstance(TRANSFORMATION);
-            cipher.init(Cipher.ENCRYPT_MODE, publicKey);
+            Cipher cipher = OAEP_CIPHER.get();
+            cipher.init(Cipher.ENCRYPT_MODE, parsePublicKey(publicKeyStr));
             byte[] encryptedBytes = cipher.doFinal(plainText.getBytes(StandardCharsets.UTF_8));
 
             return Base64.encode(encryptedBytes);
@@ -96,13 +126,8 @@ public class RSAUtil {
      */
     public static String decryptByPrivateKey(String cipherText, String privateKeyStr) {
         try {
-            byte[] keyBytes = Base64.decode(privateKeyStr);
-            PKCS8EncodedKeySpec keySpec = new PKCS8EncodedKeySpec(keyBytes);
-            KeyFactory keyFactory = KeyFactory.getInstance(ALGORITHM);
-            PrivateKey privateKey = keyFactory.generatePrivate(keySpec);
-
-            Cipher cipher = Cipher.getInstance(TRANSFORMATION);
-            cipher.init(Cipher.DECRYPT_MODE, privateKey);
+            Cipher cipher = OAEP_CIPHER.get();
+            cipher.init(Cipher.DECRYPT_MODE, parsePrivateKey(privateKeyStr));
             byte[] decryptedBytes = cipher.doFinal(Base64.decode(cipherText));
 
             return new String(decryptedBytes, StandardCharsets.UTF_8);
@@ -122,14 +147,9 @@ public class RSAUtil {
      */
     public static String decryptByPrivateKeyPKCS1(String cipherText, String privateKeyStr) {
         try {
-            byte[] keyBytes = Base64.decode(privateKeyStr);
-            PKCS8EncodedKeySpec keySpec = new PKCS8EncodedKeySpec(keyBytes);
-            KeyFactory keyFactory = KeyFactory.getInstance(ALGORITHM);
-            PrivateKey privateKey = keyFactory.generatePrivate(keySpec);
-
             // 使用PKCS1 padding
-            Cipher cipher = Cipher.getInstance("RSA/ECB/PKCS1Padding");
-            cipher.init(Cipher.DECRYPT_MODE, privateKey);
+            Cipher cipher = PKCS1_CIPHER.get();
+            cipher.init(Cipher.DECRYPT_MODE, parsePrivateKey(privateKeyStr));
             byte[] decryptedBytes = cipher.doFinal(Base64.decode(cipherText));
 
             return new String(decryptedBytes, StandardCharsets.UTF_8);
@@ -149,13 +169,8 @@ public class RSAUtil {
      */
     public static String sign(String data, String privateKeyStr) {
         try {
-            byte[] keyBytes = Base64.decode(privateKeyStr);
-            PKCS8EncodedKeySpec keySpec = new PKCS8EncodedKeySpec(keyBytes);
-            KeyFactory keyFactory = KeyFactory.getInstance(ALGORITHM);
-            PrivateKey privateKey = keyFactory.generatePrivate(keySpec);
-
-            Signature signature = Signature.getInstance(SIGNATURE_ALGORITHM);
-            signature.initSign(privateKey);
+            Signature signature = SIGNATURE.get();
+            signature.initSign(parsePrivateKey(privateKeyStr));
             signature.update(data.getBytes(StandardCharsets.UTF_8));
             byte[] signBytes = signature.sign();
 
@@ -176,12 +191,25 @@ public class RSAUtil {
      */
     public static boolean verify(String data, String signStr, String publicKeyStr) {
         try {
-            byte[] keyBytes = Base64.decode(publicKeyStr);
-            X509EncodedKeySpec keySpec = new X509EncodedKeySpec(keyBytes);
-            KeyFactory keyFactory = KeyFactory.getInstance(ALGORITHM);
-            PublicKey publicKey = keyFactory.generatePublic(keySpec);
+            return verify(data, signStr, parsePublicKey(publicKeyStr));
+        } catch (Exception e) {
+            log.error("RSA签名验证失败", e);
+            return false;
+        }
+    }
 
-            Signature signature = Signature.getInstance(SIGNATURE_ALGORITHM);
+    /**
+     * 公钥验证签名（使用已解析的公钥）
+     * 批量验签时同一用户的公钥只需解析一次
+     *
+     * @param data      原始数据
+     * @param signStr   Base64编码的签名
+     * @param publicKey 已解析的公钥
+     * @return 验证结果
+     */
+    public static boolean verify(String data, String signStr, PublicKey publicKey) {
+        try {
+            Signature signature = SIGNATURE.get();
             signature.initVerify(publicKey);
             signature.update(data.getBytes(StandardCharsets.UTF_8));
 
@@ -192,6 +220,71 @@ public class RSAUtil {
         }
     }
 
+    /**
+     * 解析Base64编码的X.509公钥
+     *
+     * @param publicKeyStr Base64编码的公钥
+     * @return 公钥对象
+     */
+    public static PublicKey parsePublicKey(String publicKeyStr) {
+        try {
+            return PUBLIC_KEY_CACHE.get(fingerprint(publicKeyStr), () -> {
+                X509EncodedKeySpec keySpec = new X509EncodedKeySpec(Base64.decode(publicKeyStr));
+                return KeyFactory.getInstance(ALGORITHM).generatePublic(keySpec);
+            });
+        } catch (Exception e) {
+            log.error("RSA公钥解析失败", e);
+            throw new RuntimeException("RSA公钥解析失败", e);
+        }
+    }
+
+    /**
+     * 解析Base64编码的PKCS#8私钥
+     *
+     * @param privateKeyStr Base64编码的私钥
+     * @return 私钥对象
+     */
+    public static PrivateKey parsePrivateKey(String privateKeyStr) {
+        try {
+            return PRIVATE_KEY_CACHE.get(fingerprint(privateKeyStr), () -> {
+                PKCS8EncodedKeySpec keySpec = new PKCS8EncodedKeySpec(Base64.decode(privateKeyStr));
+                return KeyFactory.getInstance(ALGORITHM).generatePrivate(keySpec);
+            });
+        } catch (Exception e) {
+            log.error("RSA私钥解析失败", e);
+            throw new RuntimeException("RSA私钥解析失败", e);
+        }
+    }
+
+    /**
+     * 从缓存中移除密钥（用户公钥变更、用户缓存失效时由 UserService 调用）
+     *
+     * @param keyStr Base64编码的公钥或私钥
+     */
+    public static void evictKey(String keyStr) {
+        if (keyStr == null) {
+            return;
+        }
+        String fingerprint = fingerprint(keyStr);
+        PUBLIC_KEY_CACHE.invalidate(fingerprint);
+        PRIVATE_KEY_CACHE.invalidate(fingerprint);
+    }
+
+    /**
+     * 计算密钥指纹（缓存键），避免以完整密钥串作为键长期驻留
+     */
+    private static String fingerprint(String keyStr) {
+        return DigestUtils.sha256Hex(keyStr);
+    }
+
+    private static Cipher newCipher(String transformation) {
+        try {
+            return Cipher.getInstance(transformation);
+        } catch (Exception e) {
+            throw new IllegalStateException("初始化Cipher失败: " + transformation, e);
+        }
+    }
+
     /**
      * 生成审批签名数据
      * 将审批信息组合成待签名字符串
@@ -1,19 +1,46 @@
 package com.exam.approval.service;
 
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
+import com.baomidou.mybatisplus.core.metadata.IPage;
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.blockchain.exam.integration.BlockchainIntegrationService;
+import com.blockchain.exam.integration.ChainSubmittedEvent;
 import com.exam.approval.common.exception.BusinessException;
+import com.exam.approval.dto.CursorPage;
+import com.exam.approval.dto.ExamPaperSummary;
+import com.exam.approval.dto.PaperQuery;
 import com.exam.approval.entity.ApprovalWorkflow;
 import com.exam.approval.entity.ExamPaper;
+import com.exam.approval.interceptor.MybatisCryptoInterceptor;
 import com.exam.approval.mapper.ExamPaperMapper;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import javax.annotation.PostConstruct;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 /**
  * 试卷Service
@@ -24,9 +51,58 @@ import java.util.Map;
 @Slf4j
 @Service
 @RequiredArgsConstructor
-public class ExamPaperService extends ServiceImpl<ExamPaperMapper, ExamPaper> {
+public class ExamPaperService extends ServiceImpl<ExamPaperMapper, ExamPaper> implements MessageListener {
+
+    /**
+     * 分页查询每页最大条数
+     */
+    private static final long MAX_PAGE_SIZE = 100;
+
+    /**
+     * 数据库状态值 → 统计结果字段名
+     */
+    private static final Map<String, String> STATUS_KEYS = Map.of(
+            "draft", "draft",
+            "pending", "pending",
+            "dept_approved", "deptApproved",
+            "college_approved", "collegeApproved",
+            "rejected", "rejected");
+
+    /**
+     * 统计失效广播内容：只失效全局统计（没有具体创建人）
+     */
+    private static final String EVICT_GLOBAL = "*";
 
     private final ApprovalWorkflowService workflowService;
+    private final FileService fileService;
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final RedisMessageListenerContainer listenerContainer;
+
+    @Autowired(required = false)
+    private BlockchainIntegrationService blockchainService;
+
+    /**
+     * 统计结果缓存，键为 all 或 creator:{id}
+     */
+    private Cache<String, Map<String, Long>> statisticsCache;
+
+    @Value("${paper.statistics.cache-ttl-seconds:30}")
+    private long statisticsCacheTtlSeconds;
+
+    @Value("${paper.statistics.cache-max-size:10000}")
+    private long statisticsCacheMaxSize;
+
+    @Value("${paper.statistics.invalidation-channel:exam:paper-stats:evict}")
+    private String statisticsInvalidationChannel;
+
+    @PostConstruct
+    public void init() {
+        statisticsCache = CacheBuilder.newBuilder()
+                .maximumSize(statisticsCacheMaxSize)
+                .expireAfterWrite(statisticsCacheTtlSeconds, TimeUnit.SECONDS)
+                .build();
+        listenerContainer.addMessageListener(this, new ChannelTopic(statisticsInvalidationChannel));
+    }
 
     /**
      * 根据创建人ID查询试卷列表
@@ -48,16 +124,52 @@ public class ExamPaperService extends ServiceImpl<ExamPaperMapper, ExamPaper> {
      */
     @Transactional(rollbackFor = Exception.class)
     public Long createPaper(ExamPaper paper) {
+        return createPaper(paper, null);
+    }
+
+    /**
+     * 创建试卷，并在同一事务内登记上链（区块链存证）
+     * 上链由后台异步完成，完成后回填 blockchainTxId / chainTime
+     *
+     * @param paper    试卷对象（content 已完成多方加密）
+     * @param fileHash 附件明文SHA-256（无附件时为null）
+     * @return 试卷ID
+     */
+    @Transactional(rollbackFor = Exception.class)
+    public Long createPaper(ExamPaper paper, String fileHash) {
         // 设置默认状态为草稿
         paper.setStatus("draft");
 
-        // 保存试卷
+        // 保存试卷，并登记附件引用（保存时拦截器会就地加密 filePath，需提前取出）
+        String filePath = paper.getFilePath();
         this.save(paper);
+        fileService.retain(filePath);
+        evictStatistics(paper.getCreatorId());
         log.info("创建试卷成功，ID: {}, 创建人: {}", paper.getId(), paper.getCreatorName());
 
+        if (blockchainService != null && paper.getContentHash() != null) {
+            blockchainService.enqueueEncryptedPaper(paper.getId(), paper.getContent(), paper.getContentHash(),
+                    fileHash, paper.getCreatorId(), paper.getCreatorName(), paper.getTitle());
+        }
+
         return paper.getId();
     }
 
+    /**
+     * 试卷上链完成后回填交易ID（与交易池写入处于同一事务）
+     */
+    @EventListener
+    public void onChainSubmitted(ChainSubmittedEvent event) {
+        if (!ChainSubmittedEvent.BIZ_PAPER.equals(event.getBizType())) {
+            return;
+        }
+        this.update(new LambdaUpdateWrapper<ExamPaper>()
+                .set(ExamPaper::getBlockchainTxId, event.getTxId())
+                .set(ExamPaper::getChainTime, event.getChainTime())
+                .eq(ExamPaper::getId, event.getBizId()));
+        log.info("试卷已上链 - 试卷ID: {}, 交易ID: {}", event.getBizId(), event.getTxId());
+    }
+
     /**
      * 提交审批
      *
@@ -77,6 +189,7 @@ public class ExamPaperService extends ServiceImpl<ExamPaperMapper, ExamPaper> {
         // 更新试卷状态
         paper.setStatus("pending");
         this.updateById(paper);
+        evictStatistics(paper.getCreatorId());
 
         // 创建审批工作流
         ApprovalWorkflow workflow = new ApprovalWorkflow();
@@ -99,6 +212,7 @@ public class ExamPaperService extends ServiceImpl<ExamPaperMapper, ExamPaper> {
         if (paper != null) {
             paper.setStatus(status);
             this.updateById(paper);
+            evictStatistics(paper.getCreatorId());
             log.info("更新试卷状态，ID: {}, 状态: {}", paperId, status);
         }
     }
@@ -109,27 +223,10 @@ public class ExamPaperService extends ServiceImpl<ExamPaperMapper, ExamPaper> {
      * @param status 状态
      * @return 试卷列表
      */
-    public List<ExamPaper> getByStatus(String status) {
-        List<ExamPaper> papers = this.list(new LambdaQueryWrapper<ExamPaper>()
+    public List<ExamPaperSummary> getByStatus(String status) {
+        return listSummaries(summaryQuery()
                 .eq(ExamPaper::getStatus, status)
                 .orderByDesc(ExamPaper::getCreateTime));
-
-        // 字段映射：将持久化字段映射到前端期望的非持久化字段
-        papers.forEach(paper -> {
-            paper.setCourseName(paper.getSubject());
-            // 从title中提取examType
-            if (paper.getTitle() != null && paper.getTitle().contains(" ")) {
-                String[] parts = paper.getTitle().split(" ", 2);
-                if (parts.length > 1) {
-                    paper.setExamType(parts[1]);
-                }
-            }
-            paper.setSemester(paper.getGrade());
-            paper.setTeacherName(paper.getCreatorName());
-            paper.setTeacherId(paper.getCreatorId());
-        });
-
-        return papers;
     }
 
     /**
@@ -139,27 +236,11 @@ public class ExamPaperService extends ServiceImpl<ExamPaperMapper, ExamPaper> {
      * @param department 部门
      * @return 试卷列表
      */
-    public List<ExamPaper> getByStatusAndDepartment(String status, String department) {
-        List<ExamPaper> papers = this.list(new LambdaQueryWrapper<ExamPaper>()
+    public List<ExamPaperSummary> getByStatusAndDepartment(String status, String department) {
+        return listSummaries(summaryQuery()
                 .eq(ExamPaper::getStatus, status)
                 .eq(ExamPaper::getDepartment, department)
                 .orderByDesc(ExamPaper::getCreateTime));
-
-        // 字段映射：将持久化字段映射到前端期望的非持久化字段
-        papers.forEach(paper -> {
-            paper.setCourseName(paper.getSubject());
-            if (paper.getTitle() != null && paper.getTitle().contains(" ")) {
-                String[] parts = paper.getTitle().split(" ", 2);
-                if (parts.length > 1) {
-                    paper.setExamType(parts[1]);
-                }
-            }
-            paper.setSemester(paper.getGrade());
-            paper.setTeacherName(paper.getCreatorName());
-            paper.setTeacherId(paper.getCreatorId());
-        });
-
-        return papers;
     }
 
     /**
@@ -169,33 +250,18 @@ public class ExamPaperService extends ServiceImpl<ExamPaperMapper, ExamPaper> {
      * @param status    状态（可选）
      * @return 试卷列表
      */
-    public List<ExamPaper> getByTeacherId(Long teacherId, String status) {
-        LambdaQueryWrapper<ExamPaper> wrapper = new LambdaQueryWrapper<ExamPaper>()
+    public List<ExamPaperSummary> getByTeacherId(Long teacherId, String status) {
+        return listSummaries(teacherQuery(teacherId, status));
+    }
+
+    private LambdaQueryWrapper<ExamPaper> teacherQuery(Long teacherId, String status) {
+        LambdaQueryWrapper<ExamPaper> wrapper = summaryQuery()
                 .eq(ExamPaper::getCreatorId, teacherId);
 
         if (status != null && !status.isEmpty()) {
             wrapper.eq(ExamPaper::getStatus, status);
         }
-
-        List<ExamPaper> papers = this.list(wrapper.orderByDesc(ExamPaper::getCreateTime));
-
-        // 字段映射：将持久化字段映射到前端期望的非持久化字段
-        papers.forEach(paper -> {
-            paper.setCourseName(paper.getSubject());
-            // 从title中提取examType（title格式: "课程名称 考试类型"）
-            if (paper.getTitle() != null && paper.getTitle().contains(" ")) {
-                String[] parts = paper.getTitle().split(" ", 2);
-                if (parts.length > 1) {
-                    paper.setExamType(parts[1]);
-                }
-            }
-            paper.setSemester(paper.getGrade());
-            paper.setTeacherName(paper.getCreatorName());
-            paper.setTeacherId(paper.getCreatorId());
-            // department字段已是持久化字段，无需额外映射
-        });
-
-        return papers;
+        return wrapper.orderByDesc(ExamPaper::getCreateTime);
     }
 
     /**
@@ -205,8 +271,12 @@ public class ExamPaperService extends ServiceImpl<ExamPaperMapper, ExamPaper> {
      * @param department 院系（可选）
      * @return 试卷列表
      */
-    public List<ExamPaper> getAll(String status, String department) {
-        LambdaQueryWrapper<ExamPaper> wrapper = new LambdaQueryWrapper<>();
+    public List<ExamPaperSummary> getAll(String status, String department) {
+        return listSummaries(adminQuery(status, department));
+    }
+
+    private LambdaQueryWrapper<ExamPaper> adminQuery(String status, String department) {
+        LambdaQueryWrapper<ExamPaper> wrapper = summaryQuery();
 
         if (status != null && !status.isEmpty()) {
             wrapper.eq(ExamPaper::getStatus, status);
@@ -216,24 +286,121 @@ public class ExamPaperService extends ServiceImpl<ExamPaperMapper, ExamPaper> {
             wrapper.eq(ExamPaper::getDepartment, department);
         }
 
-        List<ExamPaper> papers = this.list(wrapper.orderByDesc(ExamPaper::getCreateTime));
+        return wrapper.orderByDesc(ExamPaper::getCreateTime);
+    }
 
-        // 字段映射：将持久化字段映射到前端期望的非持久化字段
-        papers.forEach(paper -> {
-            paper.setCourseName(paper.getSubject());
-            // 从title中提取examType
-            if (paper.getTitle() != null && paper.getTitle().contains(" ")) {
-                String[] parts = paper.getTitle().split(" ", 2);
-                if (parts.length > 1) {
-                    paper.setExamType(parts[1]);
-                }
-            }
-            paper.setSemester(paper.getGrade());
-            paper.setTeacherName(paper.getCreatorName());
-            paper.setTeacherId(paper.getCreatorId());
-        });
+    /**
+     * 列表查询：只选表头列，避免拉取content、密钥JSON和签名，也不触发附件路径解密
+     */
+    private static LambdaQueryWrapper<ExamPaper> summaryQuery() {
+        return new LambdaQueryWrapper<ExamPaper>()
+                .select(ExamPaper::getId, ExamPaper::getTitle, ExamPaper::getSubject, ExamPaper::getGrade,
+                        ExamPaper::getDepartment, ExamPaper::getStatus, ExamPaper::getFileName,
+                        ExamPaper::getContentHash, ExamPaper::getBlockchainTxId, ExamPaper::getChainTime,
+                        ExamPaper::getCreatorId, ExamPaper::getCreatorName,
+                        ExamPaper::getCreateTime, ExamPaper::getUpdateTime);
+    }
 
-        return papers;
+    private List<ExamPaperSummary> listSummaries(LambdaQueryWrapper<ExamPaper> wrapper) {
+        return this.list(wrapper).stream()
+                .map(ExamPaperSummary::from)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * 分页查询试卷摘要（页码分页，返回总数）
+     *
+     * @param query 查询条件
+     * @return 试卷摘要分页
+     */
+    public IPage<ExamPaperSummary> pagePapers(PaperQuery query) {
+        Page<ExamPaper> page = new Page<>(Math.max(query.getCurrent(), 1), pageSize(query));
+        return this.page(page, filterQuery(query)).convert(ExamPaperSummary::from);
+    }
+
+    /**
+     * 游标查询试卷摘要（keyset分页）
+     * 按 create_time DESC, id DESC 排序，以上一页最后一条记录为起点，不使用OFFSET也不统计总数
+     *
+     * @param query 查询条件（cursor为空表示第一页）
+     * @return 游标分页结果
+     */
+    public CursorPage<ExamPaperSummary> scrollPapers(PaperQuery query) {
+        long size = pageSize(query);
+        LambdaQueryWrapper<ExamPaper> wrapper = filterQuery(query);
+
+        if (query.getCursor() != null && !query.getCursor().isEmpty()) {
+            Object[] position = decodeCursor(query.getCursor());
+            LocalDateTime lastTime = (LocalDateTime) position[0];
+            Long lastId = (Long) position[1];
+            wrapper.and(w -> w.lt(ExamPaper::getCreateTime, lastTime)
+                    .or(x -> x.eq(ExamPaper::getCreateTime, lastTime).lt(ExamPaper::getId, lastId)));
+        }
+
+        // 多取一条用于判断是否还有下一页
+        List<ExamPaper> rows = this.list(wrapper.last("LIMIT " + (size + 1)));
+        boolean hasMore = rows.size() > size;
+        if (hasMore) {
+            rows = rows.subList(0, (int) size);
+        }
+
+        String nextCursor = null;
+        if (hasMore) {
+            ExamPaper last = rows.get(rows.size() - 1);
+            nextCursor = encodeCursor(last.getCreateTime(), last.getId());
+        }
+
+        List<ExamPaperSummary> records = rows.stream()
+                .map(ExamPaperSummary::from)
+                .collect(Collectors.toList());
+        return new CursorPage<>(records, nextCursor, hasMore);
+    }
+
+    /**
+     * 按查询条件构建摘要查询，过滤列顺序与组合索引一致
+     */
+    private LambdaQueryWrapper<ExamPaper> filterQuery(PaperQuery query) {
+        LambdaQueryWrapper<ExamPaper> wrapper = summaryQuery();
+
+        if (query.getCreatorId() != null) {
+            wrapper.eq(ExamPaper::getCreatorId, query.getCreatorId());
+        }
+        if (query.getStatus() != null && !query.getStatus().isEmpty()) {
+            wrapper.eq(ExamPaper::getStatus, query.getStatus());
+        }
+        if (query.getDepartment() != null && !query.getDepartment().isEmpty()) {
+            wrapper.eq(ExamPaper::getDepartment, query.getDepartment());
+        }
+        if (query.getCreateTimeFrom() != null) {
+            wrapper.ge(ExamPaper::getCreateTime, query.getCreateTimeFrom());
+        }
+        if (query.getCreateTimeTo() != null) {
+            wrapper.lt(ExamPaper::getCreateTime, query.getCreateTimeTo());
+        }
+
+        return wrapper.orderByDesc(ExamPaper::getCreateTime).orderByDesc(ExamPaper::getId);
+    }
+
+    private static long pageSize(PaperQuery query) {
+        return Math.min(Math.max(query.getSize(), 1), MAX_PAGE_SIZE);
+    }
+
+    /**
+     * 游标格式：Base64URL("createTime|id")，对前端不透明
+     */
+    private static String encodeCursor(LocalDateTime createTime, Long id) {
+        String raw = createTime + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Object[] decodeCursor(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int sep = raw.indexOf('|');
+            return new Object[]{LocalDateTime.parse(raw.substring(0, sep)), Long.valueOf(raw.substring(sep + 1))};
+        } catch (RuntimeException e) {
+            throw new BusinessException(400, "无效的分页游标");
+        }
     }
 
     /**
@@ -241,6 +408,7 @@ public class ExamPaperService extends ServiceImpl<ExamPaperMapper, ExamPaper> {
      *
      * @param paper 试卷对象
      */
+    @Transactional(rollbackFor = Exception.class)
     public void updatePaper(ExamPaper paper) {
         ExamPaper existingPaper = this.getById(paper.getId());
         if (existingPaper == null) {
@@ -253,9 +421,23 @@ public class ExamPaperService extends ServiceImpl<ExamPaperMapper, ExamPaper> {
         existingPaper.setGrade(paper.getGrade());
         existingPaper.setDepartment(paper.getDepartment());
         existingPaper.setContent(paper.getContent());
-        existingPaper.setFilePath(paper.getFilePath());
+
+        // 更换附件时调整引用计数：查询结果已由拦截器解密，直接与提交的明文路径比较
+        // 未提交附件路径视为不更换（按非空策略更新时 null 列不会写入，不能据此释放旧附件）
+        String oldFilePath = existingPaper.getFilePath();
+        String newFilePath = paper.getFilePath();
+        if (MybatisCryptoInterceptor.isEnvelope(newFilePath)) {
+            // 接口返回的都是明文路径，密文只可能来自伪造请求，不能原样写入绕过引用计数
+            throw new BusinessException(400, "附件路径无效");
+        }
+        boolean fileChanged = newFilePath != null && !newFilePath.equals(oldFilePath);
+        existingPaper.setFilePath(fileChanged ? newFilePath : oldFilePath);
 
         this.updateById(existingPaper);
+        if (fileChanged) {
+            fileService.retain(newFilePath);
+            fileService.release(oldFilePath);
+        }
         log.info("更新试卷成功，ID: {}", paper.getId());
     }
 
@@ -271,8 +453,10 @@ public class ExamPaperService extends ServiceImpl<ExamPaperMapper, ExamPaper> {
             throw new BusinessException("试卷不存在");
         }
 
-        // 删除试卷
+        // 删除试卷，并释放附件引用
         this.removeById(paperId);
+        fileService.release(paper.getFilePath());
+        evictStatistics(paper.getCreatorId());
 
         // 如果有工作流，也删除工作流
         ApprovalWorkflow workflow = workflowService.getByPaperId(paperId);
@@ -288,69 +472,97 @@ public class ExamPaperService extends ServiceImpl<ExamPaperMapper, ExamPaper> {
      * 教师：统计自己的试卷
      * 管理员：统计全局试卷
      *
+     * 一条 GROUP BY status 查询得到全部状态数量，结果按统计范围缓存；
+     * 创建、删除、状态变更在事务提交后失效对应缓存，并通过Redis频道广播给其他节点（Redis不可用时TTL兜底）
+     *
      * @param role 用户角色
      * @param userId 用户ID
      * @return 统计数据
      */
     public Map<String, Long> getStatistics(String role, Long userId) {
+        // 是否是教师（教师只统计自己的试卷）
+        Long creatorId = "teacher".equals(role) ? userId : null;
+        Map<String, Long> cached = statisticsCache.getIfPresent(statisticsKey(creatorId));
+        if (cached != null) {
+            return new HashMap<>(cached);
+        }
+
         Map<String, Long> statistics = new HashMap<>();
+        statistics.put("total", 0L);
+        STATUS_KEYS.values().forEach(key -> statistics.put(key, 0L));
+
+        for (Map<String, Object> row : baseMapper.countGroupByStatus(creatorId)) {
+            long count = ((Number) row.get("cnt")).longValue();
+            statistics.merge("total", count, Long::sum);
+            String key = STATUS_KEYS.get((String) row.get("status"));
+            if (key != null) {
+                statistics.put(key, count);
+            }
+        }
 
-        // 是否是教师（教师只统计自己的试卷）
-        boolean isTeacher = "teacher".equals(role);
+        statisticsCache.put(statisticsKey(creatorId), statistics);
+        return new HashMap<>(statistics);
+    }
 
-        // 总数
-        LambdaQueryWrapper<ExamPaper> totalWrapper = new LambdaQueryWrapper<>();
-        if (isTeacher) {
-            totalWrapper.eq(ExamPaper::getCreatorId, userId);
+    /**
+     * 接收其他节点的统计失效广播
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        Object target = redisTemplate.getValueSerializer().deserialize(message.getBody());
+        if (target == null) {
+            return;
         }
-        long total = this.count(totalWrapper);
-        statistics.put("total", total);
-
-        // 草稿
-        LambdaQueryWrapper<ExamPaper> draftWrapper = new LambdaQueryWrapper<ExamPaper>()
-                .eq(ExamPaper::getStatus, "draft");
-        if (isTeacher) {
-            draftWrapper.eq(ExamPaper::getCreatorId, userId);
+        if (EVICT_GLOBAL.equals(target.toString())) {
+            doEvictStatistics(null);
+            return;
         }
-        long draft = this.count(draftWrapper);
-        statistics.put("draft", draft);
-
-        // 待系审批
-        LambdaQueryWrapper<ExamPaper> pendingWrapper = new LambdaQueryWrapper<ExamPaper>()
-                .eq(ExamPaper::getStatus, "pending");
-        if (isTeacher) {
-            pendingWrapper.eq(ExamPaper::getCreatorId, userId);
+        try {
+            doEvictStatistics(Long.valueOf(target.toString()));
+        } catch (NumberFormatException e) {
+            log.warn("忽略无效的统计缓存失效消息: {}", target);
         }
-        long pending = this.count(pendingWrapper);
-        statistics.put("pending", pending);
-
-        // 系已审批
-        LambdaQueryWrapper<ExamPaper> deptApprovedWrapper = new LambdaQueryWrapper<ExamPaper>()
-                .eq(ExamPaper::getStatus, "dept_approved");
-        if (isTeacher) {
-            deptApprovedWrapper.eq(ExamPaper::getCreatorId, userId);
+    }
+
+    /**
+     * 失效统计缓存（全局 + 指定创建人），并广播给其他节点
+     * 处于事务中时在提交后失效：提交前失效的话，并发查询会把未提交前的旧统计重新写回缓存
+     *
+     * @param creatorId 创建人ID
+     */
+    private void evictStatistics(Long creatorId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    doEvictStatistics(creatorId);
+                    publishStatisticsEviction(creatorId);
+                }
+            });
+        } else {
+            doEvictStatistics(creatorId);
+            publishStatisticsEviction(creatorId);
         }
-        long deptApproved = this.count(deptApprovedWrapper);
-        statistics.put("deptApproved", deptApproved);
-
-        // 院已审批
-        LambdaQueryWrapper<ExamPaper> collegeApprovedWrapper = new LambdaQueryWrapper<ExamPaper>()
-                .eq(ExamPaper::getStatus, "college_approved");
-        if (isTeacher) {
-            collegeApprovedWrapper.eq(ExamPaper::getCreatorId, userId);
+    }
+
+    private void publishStatisticsEviction(Long creatorId) {
+        String target = creatorId == null ? EVICT_GLOBAL : String.valueOf(creatorId);
+        try {
+            redisTemplate.convertAndSend(statisticsInvalidationChannel, target);
+        } catch (Exception e) {
+            // Redis不可用时其他节点只能等待TTL过期
+            log.warn("广播试卷统计缓存失效失败 - target: {}, 原因: {}", target, e.getMessage());
         }
-        long collegeApproved = this.count(collegeApprovedWrapper);
-        statistics.put("collegeApproved", collegeApproved);
-
-        // 已驳回
-        LambdaQueryWrapper<ExamPaper> rejectedWrapper = new LambdaQueryWrapper<ExamPaper>()
-                .eq(ExamPaper::getStatus, "rejected");
-        if (isTeacher) {
-            rejectedWrapper.eq(ExamPaper::getCreatorId, userId);
+    }
+
+    private void doEvictStatistics(Long creatorId) {
+        statisticsCache.invalidate(statisticsKey(null));
+        if (creatorId != null) {
+            statisticsCache.invalidate(statisticsKey(creatorId));
         }
-        long rejected = this.count(rejectedWrapper);
-        statistics.put("rejected", rejected);
+    }
 
-        return statistics;
+    private static String statisticsKey(Long creatorId) {
+        return creatorId == null ? "all" : "creator:" + creatorId;
     }
 }
@@ -4,9 +4,20 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import javax.annotation.PreDestroy;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Nonce服务 - 防重放攻击
@@ -14,8 +25,11 @@ import java.util.concurrent.TimeUnit;
  * 用于登录请求的防重放攻击：
  * 1. 客户端每次请求生成唯一nonce（随机字符串）
  * 2. 服务端验证nonce是否已使用过
- * 3. 使用Redis存储已使用的nonce，设置TTL为时间窗口
- * 4. 过期后自动删除，节省存储空间
+ * 3. 两级存储已使用的nonce：
+ *    - 本地：内存集合按时间分桶，原子判重，超出时间窗口的桶整体淘汰
+ *    - Redis：SET NX PX 跨节点共享，只为发现"在其他节点用过"的nonce
+ * 4. Redis检查有等待预算（security.nonce.redis-timeout），超时或异常时以本地结果为准，
+ *    Redis写入在后台继续完成；Redis抖动不会拖慢或中断登录
  *
  * @author 网络信息安全大作业
  * @date 2025-11-16
@@ -34,15 +48,49 @@ public class NonceService {
     @Value("${security.replay-time-window:300000}")
     private long timeWindow;
 
+    /**
+     * 等待Redis跨节点检查的最长时间（毫秒）
+     */
+    @Value("${security.nonce.redis-timeout:50}")
+    private long redisTimeout;
+
+    /**
+     * 本地nonce上限，超过后新nonce必须等到Redis确认（防止内存被刷爆）
+     */
+    @Value("${security.nonce.local-max-entries:200000}")
+    private int localMaxEntries;
+
     /**
      * Nonce的Redis Key前缀
      */
     private static final String NONCE_PREFIX = "nonce:";
 
+    /**
+     * 本地分桶数量（时间窗口被均分为若干桶，淘汰粒度 = 窗口 / 桶数）
+     */
+    private static final int BUCKET_COUNT = 10;
+
+    /**
+     * 本地已使用nonce → 所在时间桶
+     */
+    private final Map<String, Long> localNonces = new ConcurrentHashMap<>();
+
+    /**
+     * 时间桶 → 该时间段内记录的nonce（用于整桶淘汰）
+     */
+    private final Map<Long, Set<String>> buckets = new ConcurrentHashMap<>();
+
+    /**
+     * Redis检查专用线程池（有界队列，满了直接按超时处理，不阻塞请求线程）
+     * 核心线程数等于最大线程数：有界队列只有在满了以后才会新建超出核心数的线程，
+     * 否则池子永远停在核心线程数；空闲线程按 keepAlive 回收
+     */
+    private final ThreadPoolExecutor redisExecutor = newRedisExecutor();
+
     /**
      * 验证并记录nonce
      * 如果nonce已存在（已被使用），返回false
-     * 如果nonce不存在（首次使用），记录到Redis并返回true
+     * 如果nonce不存在（首次使用），记录并返回true
      *
      * @param nonce 客户端生成的随机字符串
      * @return true-验证通过（首次使用），false-验证失败（重放攻击）
@@ -53,29 +101,104 @@ public class NonceService {
             return false;
         }
 
-        String key = NONCE_PREFIX + nonce;
+        // 1. 本地原子判重：同节点重放直接拦截，不访问Redis
+        long bucket = currentBucket();
+        if (localNonces.putIfAbsent(nonce, bucket) != null) {
+            log.warn("检测到重放攻击，nonce已被使用: {}", nonce);
+            return false;
+        }
+        buckets.computeIfAbsent(bucket, b -> ConcurrentHashMap.newKeySet()).add(nonce);
+        boolean localFull = localNonces.size() > localMaxEntries;
+
+        // 2. 跨节点检查：在预算内等待Redis结果
+        CompletableFuture<Boolean> redisResult;
+        try {
+            redisResult = CompletableFuture.supplyAsync(() -> redisTemplate.opsForValue()
+                    .setIfAbsent(NONCE_PREFIX + nonce, System.currentTimeMillis(), timeWindow, TimeUnit.MILLISECONDS),
+                    redisExecutor);
+        } catch (Exception e) {
+            // 线程池已满：Redis明显已经跟不上
+            log.warn("Nonce跨节点检查排队已满，仅使用本地校验: {}", nonce);
+            return !localFull;
+        }
 
         try {
-            // 使用setIfAbsent实现原子性检查和设置
-            // 如果key不存在，设置成功返回true
-            // 如果key已存在，设置失败返回false
-            Boolean success = redisTemplate.opsForValue()
-                    .setIfAbsent(key, System.currentTimeMillis(), timeWindow, TimeUnit.MILLISECONDS);
-
-            if (Boolean.TRUE.equals(success)) {
-                log.debug("Nonce验证通过: {}", nonce);
-                return true;
-            } else {
-                log.warn("检测到重放攻击，nonce已被使用: {}", nonce);
+            Boolean success = redisResult.get(redisTimeout, TimeUnit.MILLISECONDS);
+            if (Boolean.FALSE.equals(success)) {
+                log.warn("检测到跨节点重放攻击，nonce已被使用: {}", nonce);
                 return false;
             }
+            log.debug("Nonce验证通过: {}", nonce);
+            return true;
+        } catch (TimeoutException e) {
+            // 超时：以本地结果为准，Redis写入在后台继续，迟到的重放结果只记录告警
+            redisResult.whenComplete((success, ex) -> {
+                if (Boolean.FALSE.equals(success)) {
+                    log.warn("Redis迟到结果显示nonce已在其他节点使用（请求已放行）: {}", nonce);
+                }
+            });
+            log.warn("Nonce跨节点检查超时({}ms)，仅使用本地校验: {}", redisTimeout, nonce);
+            return !localFull;
         } catch (Exception e) {
-            // Redis异常时，为了安全起见，拒绝请求
-            log.error("Nonce验证异常，拒绝请求: {}", nonce, e);
-            return false;
+            // Redis异常：本地校验仍然有效，不把Redis故障放大为登录故障
+            log.error("Nonce跨节点检查异常，仅使用本地校验: {}", nonce, e);
+            return !localFull;
         }
     }
 
+    /**
+     * 淘汰超出时间窗口的本地时间桶
+     */
+    @Scheduled(fixedDelay = 5000)
+    public void evictExpiredBuckets() {
+        // 多保留一个桶，保证每个nonce至少在本地保存完整的时间窗口
+        long oldestLive = currentBucket() - BUCKET_COUNT;
+        buckets.keySet().removeIf(bucket -> {
+            if (bucket >= oldestLive) {
+                return false;
+            }
+            for (String nonce : buckets.get(bucket)) {
+                localNonces.remove(nonce, bucket);
+            }
+            return true;
+        });
+    }
+
+    /**
+     * 当前本地记录的nonce数量（监控用）
+     *
+     * @return nonce数量
+     */
+    public int getLocalNonceCount() {
+        return localNonces.size();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        redisExecutor.shutdown();
+    }
+
+    private long currentBucket() {
+        return System.currentTimeMillis() / Math.max(1, timeWindow / BUCKET_COUNT);
+    }
+
+    private static ThreadPoolExecutor newRedisExecutor() {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                8, 8, 60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(1024), daemonThreads(),
+                new ThreadPoolExecutor.AbortPolicy());
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    private static ThreadFactory daemonThreads() {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, "nonce-redis-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
     /**
      * 验证时间戳是否在允许的时间窗口内
      * 防止使用过期的请求进行攻击
@@ -125,6 +248,7 @@ public class NonceService {
      */
     public void clearNonce(String nonce) {
         String key = NONCE_PREFIX + nonce;
+        localNonces.remove(nonce);
         redisTemplate.delete(key);
         log.debug("已清除nonce: {}", nonce);
     }
@@ -4,18 +4,86 @@ import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import com.exam.approval.entity.User;
 import com.exam.approval.mapper.UserMapper;
+import com.exam.approval.security.util.RSAUtil;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.stereotype.Service;
 
+import javax.annotation.PostConstruct;
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
 /**
  * 用户Service
  *
+ * 用户与用户公钥分别做读穿透缓存（试卷密钥接收方另见 RecipientIndex）：
+ * - 用户信息/公钥变更时显式失效，并通过Redis频道广播给其他节点
+ * - 节点外的直接改库（如 GenerateUserKeys 工具）可调用 /auth/user-cache/evict，或等待TTL过期
+ *
  * @author 网络信息安全大作业
  * @date 2025-11-05
  */
 @Slf4j
 @Service
-public class UserService extends ServiceImpl<UserMapper, User> {
+@RequiredArgsConstructor
+public class UserService extends ServiceImpl<UserMapper, User> implements MessageListener {
+
+    /**
+     * 广播内容：失效全部缓存
+     */
+    private static final String EVICT_ALL = "*";
+
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final RedisMessageListenerContainer listenerContainer;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Value("${cache.user.max-size:5000}")
+    private long cacheMaxSize;
+
+    @Value("${cache.user.ttl-seconds:300}")
+    private long cacheTtlSeconds;
+
+    @Value("${cache.user.invalidation-channel:exam:user-cache:evict}")
+    private String invalidationChannel;
+
+    /**
+     * 用户缓存：userId → User
+     */
+    private Cache<Long, User> userCache;
+
+    /**
+     * 公钥缓存：userId → RSA公钥（Base64），只查询公钥列
+     */
+    private Cache<Long, String> publicKeyCache;
+
+    @PostConstruct
+    public void init() {
+        userCache = CacheBuilder.newBuilder()
+                .maximumSize(cacheMaxSize)
+                .expireAfterWrite(cacheTtlSeconds, TimeUnit.SECONDS)
+                .recordStats()
+                .build();
+        publicKeyCache = CacheBuilder.newBuilder()
+                .maximumSize(cacheMaxSize)
+                .expireAfterWrite(cacheTtlSeconds, TimeUnit.SECONDS)
+                .recordStats()
+                .build();
+        listenerContainer.addMessageListener(this, new ChannelTopic(invalidationChannel));
+        log.info("用户缓存初始化完成 - 容量: {}, TTL: {}秒, 失效频道: {}",
+                cacheMaxSize, cacheTtlSeconds, invalidationChannel);
+    }
 
     /**
      * 根据用户名查询用户
@@ -36,7 +104,143 @@ public class UserService extends ServiceImpl<UserMapper, User> {
      * @return 用户对象
      */
     public User getUserById(Long userId) {
-        return this.getById(userId);
+        if (userId == null) {
+            return null;
+        }
+        User user = userCache.getIfPresent(userId);
+        if (user == null) {
+            user = this.getById(userId);
+            if (user != null) {
+                userCache.put(userId, user);
+            }
+        }
+        return user;
+    }
+
+    /**
+     * 根据ID查询用户RSA公钥
+     *
+     * @param userId 用户ID
+     * @return RSA公钥（Base64编码），用户不存在或未生成密钥时返回null
+     */
+    public String getPublicKey(Long userId) {
+        if (userId == null) {
+            return null;
+        }
+        String publicKey = publicKeyCache.getIfPresent(userId);
+        if (publicKey == null) {
+            User user = this.getOne(new LambdaQueryWrapper<User>()
+                    .select(User::getId, User::getRsaPublicKey)
+                    .eq(User::getId, userId));
+            publicKey = user != null ? user.getRsaPublicKey() : null;
+            if (publicKey != null && !publicKey.isEmpty()) {
+                publicKeyCache.put(userId, publicKey);
+            }
+        }
+        return publicKey;
+    }
+
+    @Override
+    public boolean updateById(User entity) {
+        boolean updated = super.updateById(entity);
+        evictUser(entity.getId());
+        return updated;
+    }
+
+    @Override
+    public boolean removeById(Serializable id) {
+        boolean removed = super.removeById(id);
+        evictUser(id instanceof Number ? ((Number) id).longValue() : null);
+        return removed;
+    }
+
+    /**
+     * 失效指定用户的缓存（用户信息或公钥变更后调用），并广播给其他节点
+     *
+     * @param userId 用户ID
+     */
+    public void evictUser(Long userId) {
+        if (userId == null) {
+            return;
+        }
+        evictLocal(String.valueOf(userId));
+        publishEviction(String.valueOf(userId));
+    }
+
+    /**
+     * 失效全部用户缓存，并广播给其他节点
+     */
+    public void evictAll() {
+        evictLocal(EVICT_ALL);
+        publishEviction(EVICT_ALL);
+    }
+
+    /**
+     * 接收其他节点的失效广播
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        Object target = redisTemplate.getValueSerializer().deserialize(message.getBody());
+        if (target != null) {
+            evictLocal(target.toString());
+        }
+    }
+
+    /**
+     * 用户缓存运行指标（命中率、淘汰数等）
+     *
+     * @return 指标数据
+     */
+    public Map<String, Object> getCacheStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("user", toStats(userCache));
+        stats.put("publicKey", toStats(publicKeyCache));
+        return stats;
+    }
+
+    private void evictLocal(String target) {
+        if (EVICT_ALL.equals(target)) {
+            userCache.invalidateAll();
+            publicKeyCache.invalidateAll();
+            eventPublisher.publishEvent(new UserChangedEvent(null));
+            log.info("用户缓存已全部失效");
+            return;
+        }
+        try {
+            Long userId = Long.valueOf(target);
+            // 公钥可能已轮换，旧公钥的解析结果不再需要
+            User cachedUser = userCache.getIfPresent(userId);
+            RSAUtil.evictKey(publicKeyCache.getIfPresent(userId));
+            if (cachedUser != null) {
+                RSAUtil.evictKey(cachedUser.getRsaPublicKey());
+            }
+            userCache.invalidate(userId);
+            publicKeyCache.invalidate(userId);
+            eventPublisher.publishEvent(new UserChangedEvent(userId));
+            log.debug("用户缓存已失效 - userId: {}", userId);
+        } catch (NumberFormatException e) {
+            log.warn("忽略无效的用户缓存失效消息: {}", target);
+        }
+    }
+
+    private void publishEviction(String target) {
+        try {
+            redisTemplate.convertAndSend(invalidationChannel, target);
+        } catch (Exception e) {
+            // Redis不可用时其他节点只能等待TTL过期
+            log.warn("广播用户缓存失效失败 - target: {}, 原因: {}", target, e.getMessage());
+        }
+    }
+
+    private static Map<String, Object> toStats(Cache<?, ?> cache) {
+        CacheStats cacheStats = cache.stats();
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("size", cache.size());
+        stats.put("hitCount", cacheStats.hitCount());
+        stats.put("missCount", cacheStats.missCount());
+        stats.put("hitRate", cacheStats.hitRate());
+        stats.put("evictionCount", cacheStats.evictionCount());
+        return stats;
     }
 
     /**
@@ -77,4 +281,23 @@ public class UserService extends ServiceImpl<UserMapper, User> {
                 .eq(User::getRole, role)
                 .eq(User::getDeleted, 0));
     }
+
+    /**
+     * 用户信息或公钥变更事件（本节点修改或收到其他节点的失效广播时发布）
+     */
+    public static final class UserChangedEvent {
+
+        /**
+         * 变更的用户ID（null 表示全部）
+         */
+        private final Long userId;
+
+        public UserChangedEvent(Long userId) {
+            this.userId = userId;
+        }
+
+        public Long getUserId() {
+            return userId;
+        }
+    }
 }
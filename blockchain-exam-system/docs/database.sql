@@ -48,13 +48,16 @@ CREATE TABLE `exam_paper` (
   `status` VARCHAR(20) NOT NULL DEFAULT 'draft' COMMENT '状态：draft-草稿, pending-待审批, dept_approved-系已审批, college_approved-院已审批, rejected-已驳回',
   `creator_id` BIGINT(20) NOT NULL COMMENT '创建人ID',
   `creator_name` VARCHAR(100) NOT NULL COMMENT '创建人姓名',
+  `department` VARCHAR(100) DEFAULT NULL COMMENT '院系',
   `node_id` VARCHAR(20) DEFAULT NULL COMMENT '创建节点ID',
   `deleted` TINYINT(1) NOT NULL DEFAULT 0 COMMENT '逻辑删除：0-未删除, 1-已删除',
   `create_time` DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
   `update_time` DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
   PRIMARY KEY (`id`),
-  KEY `idx_creator` (`creator_id`),
-  KEY `idx_status` (`status`),
+  KEY `idx_creator_time` (`creator_id`, `create_time`),
+  KEY `idx_creator_status_time` (`creator_id`, `status`, `create_time`),
+  KEY `idx_status_dept_time` (`status`, `department`, `create_time`),
+  KEY `idx_status_time` (`status`, `create_time`),
   KEY `idx_node` (`node_id`),
   KEY `idx_create_time` (`create_time`)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='试卷表';
@@ -112,6 +115,7 @@ CREATE TABLE `node1_blockchain` (
   `merkle_root` VARCHAR(64) DEFAULT NULL COMMENT 'Merkle树根哈希',
   `difficulty` INT(11) NOT NULL DEFAULT 4 COMMENT '挖矿难度',
   `miner_address` VARCHAR(50) NOT NULL COMMENT '矿工节点ID',
+  `hash_version` INT(11) DEFAULT NULL COMMENT '区块哈希版本（NULL为版本1）',
   `create_time` DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
   PRIMARY KEY (`id`),
   UNIQUE KEY `uk_block_index` (`block_index`),
@@ -134,6 +138,7 @@ CREATE TABLE `node2_blockchain` (
   `merkle_root` VARCHAR(64) DEFAULT NULL COMMENT 'Merkle树根哈希',
   `difficulty` INT(11) NOT NULL DEFAULT 4 COMMENT '挖矿难度',
   `miner_address` VARCHAR(50) NOT NULL COMMENT '矿工节点ID',
+  `hash_version` INT(11) DEFAULT NULL COMMENT '区块哈希版本（NULL为版本1）',
   `create_time` DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
   PRIMARY KEY (`id`),
   UNIQUE KEY `uk_block_index` (`block_index`),
@@ -156,6 +161,7 @@ CREATE TABLE `node3_blockchain` (
   `merkle_root` VARCHAR(64) DEFAULT NULL COMMENT 'Merkle树根哈希',
   `difficulty` INT(11) NOT NULL DEFAULT 4 COMMENT '挖矿难度',
   `miner_address` VARCHAR(50) NOT NULL COMMENT '矿工节点ID',
+  `hash_version` INT(11) DEFAULT NULL COMMENT '区块哈希版本（NULL为版本1）',
   `create_time` DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
   PRIMARY KEY (`id`),
   UNIQUE KEY `uk_block_index` (`block_index`),
@@ -171,6 +177,8 @@ CREATE TABLE `node1_block_pool` (
   `id` BIGINT(20) NOT NULL AUTO_INCREMENT COMMENT '交易ID',
   `transaction_type` VARCHAR(50) NOT NULL COMMENT '交易类型：APPROVAL_RECORD, PAPER_HASH, USER_AUTH, PAPER_CONTENT',
   `transaction_data` TEXT NOT NULL COMMENT '交易数据（JSON格式）',
+  `paper_id` BIGINT(20) DEFAULT NULL COMMENT '关联试卷ID（由交易数据派生，0为未关联）',
+  `payload_hash` CHAR(64) DEFAULT NULL COMMENT '交易数据SHA-256（去重）',
   `creator_node` VARCHAR(50) NOT NULL COMMENT '创建节点ID',
   `status` VARCHAR(20) NOT NULL DEFAULT 'PENDING' COMMENT '状态：PENDING-待打包, MINED-已打包, INVALID-无效',
   `block_index` BIGINT(20) DEFAULT NULL COMMENT '所在区块高度',
@@ -178,7 +186,9 @@ CREATE TABLE `node1_block_pool` (
   `update_time` DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
   PRIMARY KEY (`id`),
   KEY `idx_status` (`status`),
-  KEY `idx_create_time` (`create_time`)
+  KEY `idx_create_time` (`create_time`),
+  KEY `idx_paper` (`paper_id`, `create_time`),
+  KEY `idx_payload_hash` (`payload_hash`)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='节点1交易池表';
 
 -- ========================================
@@ -188,6 +198,8 @@ CREATE TABLE `node2_block_pool` (
   `id` BIGINT(20) NOT NULL AUTO_INCREMENT COMMENT '交易ID',
   `transaction_type` VARCHAR(50) NOT NULL COMMENT '交易类型：APPROVAL_RECORD, PAPER_HASH, USER_AUTH, PAPER_CONTENT',
   `transaction_data` TEXT NOT NULL COMMENT '交易数据（JSON格式）',
+  `paper_id` BIGINT(20) DEFAULT NULL COMMENT '关联试卷ID（由交易数据派生，0为未关联）',
+  `payload_hash` CHAR(64) DEFAULT NULL COMMENT '交易数据SHA-256（去重）',
   `creator_node` VARCHAR(50) NOT NULL COMMENT '创建节点ID',
   `status` VARCHAR(20) NOT NULL DEFAULT 'PENDING' COMMENT '状态：PENDING-待打包, MINED-已打包, INVALID-无效',
   `block_index` BIGINT(20) DEFAULT NULL COMMENT '所在区块高度',
@@ -195,7 +207,9 @@ CREATE TABLE `node2_block_pool` (
   `update_time` DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
   PRIMARY KEY (`id`),
   KEY `idx_status` (`status`),
-  KEY `idx_create_time` (`create_time`)
+  KEY `idx_create_time` (`create_time`),
+  KEY `idx_paper` (`paper_id`, `create_time`),
+  KEY `idx_payload_hash` (`payload_hash`)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='节点2交易池表';
 
 -- ========================================
@@ -205,6 +219,8 @@ CREATE TABLE `node3_block_pool` (
   `id` BIGINT(20) NOT NULL AUTO_INCREMENT COMMENT '交易ID',
   `transaction_type` VARCHAR(50) NOT NULL COMMENT '交易类型：APPROVAL_RECORD, PAPER_HASH, USER_AUTH, PAPER_CONTENT',
   `transaction_data` TEXT NOT NULL COMMENT '交易数据（JSON格式）',
+  `paper_id` BIGINT(20) DEFAULT NULL COMMENT '关联试卷ID（由交易数据派生，0为未关联）',
+  `payload_hash` CHAR(64) DEFAULT NULL COMMENT '交易数据SHA-256（去重）',
   `creator_node` VARCHAR(50) NOT NULL COMMENT '创建节点ID',
   `status` VARCHAR(20) NOT NULL DEFAULT 'PENDING' COMMENT '状态：PENDING-待打包, MINED-已打包, INVALID-无效',
   `block_index` BIGINT(20) DEFAULT NULL COMMENT '所在区块高度',
@@ -212,7 +228,9 @@ CREATE TABLE `node3_block_pool` (
   `update_time` DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
   PRIMARY KEY (`id`),
   KEY `idx_status` (`status`),
-  KEY `idx_create_time` (`create_time`)
+  KEY `idx_create_time` (`create_time`),
+  KEY `idx_paper` (`paper_id`, `create_time`),
+  KEY `idx_payload_hash` (`payload_hash`)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='节点3交易池表';
 
 -- ========================================
@@ -272,6 +290,45 @@ CREATE TABLE `audit_log` (
   KEY `idx_create_time` (`create_time`)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='审计日志表';
 
+-- ========================================
+-- 14. 文件内容寻址存储表（共享表）
+-- ========================================
+CREATE TABLE `file_blob` (
+  `id` BIGINT(20) NOT NULL AUTO_INCREMENT COMMENT '主键ID',
+  `content_hash` CHAR(64) NOT NULL COMMENT '明文SHA-256（十六进制）',
+  `file_path` VARCHAR(500) NOT NULL COMMENT '加密文件相对路径',
+  `plain_size` BIGINT(20) NOT NULL DEFAULT 0 COMMENT '明文字节数',
+  `ref_count` INT(11) NOT NULL DEFAULT 0 COMMENT '引用该文件的试卷数',
+  `create_time` DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+  `update_time` DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
+  PRIMARY KEY (`id`),
+  UNIQUE KEY `uk_file_path` (`file_path`),
+  KEY `idx_content_hash` (`content_hash`),
+  KEY `idx_ref_update` (`ref_count`, `update_time`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='文件内容寻址存储表（去重+引用计数）';
+
+-- ========================================
+-- 15. 上链发件箱表（共享表，按 node_id 区分投递节点）
+-- ========================================
+CREATE TABLE `chain_outbox` (
+  `id` BIGINT(20) NOT NULL AUTO_INCREMENT COMMENT '主键ID',
+  `node_id` VARCHAR(50) NOT NULL COMMENT '负责投递的节点ID',
+  `biz_type` VARCHAR(20) NOT NULL COMMENT '业务类型：PAPER/APPROVAL/DECRYPT',
+  `biz_id` BIGINT(20) NOT NULL COMMENT '业务记录ID',
+  `transaction_type` VARCHAR(50) NOT NULL COMMENT '交易类型',
+  `payload` LONGTEXT NOT NULL COMMENT '交易数据（JSON）',
+  `status` VARCHAR(20) NOT NULL DEFAULT 'PENDING' COMMENT '状态：PENDING/SENT/FAILED',
+  `attempts` INT(11) NOT NULL DEFAULT 0 COMMENT '已尝试次数',
+  `tx_id` BIGINT(20) DEFAULT NULL COMMENT '交易池中的交易ID',
+  `last_error` VARCHAR(500) DEFAULT NULL COMMENT '最近一次失败原因',
+  `next_attempt_time` DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '下次可投递时间',
+  `create_time` DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+  `update_time` DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
+  PRIMARY KEY (`id`),
+  KEY `idx_node_status_next` (`node_id`, `status`, `next_attempt_time`),
+  KEY `idx_biz` (`biz_type`, `biz_id`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='上链发件箱表（业务事务内写入，后台异步上链）';
+
 -- ========================================
 -- 初始化数据
 -- ========================================
@@ -0,0 +1,44 @@
+-- ========================================
+-- 区块哈希版本 迁移脚本
+-- 配合 BlockHasher 规范化二进制哈希编码
+-- ========================================
+--
+-- 使用说明：
+-- 1. 新增 hash_version 列，历史区块保持 NULL，按版本1（字符串拼接）验证，无需重新挖矿
+-- 2. 新区块按 blockchain.hash-version（默认2）计算哈希并记录版本
+-- 3. 链上哈希版本只能升级：版本2区块之后不再接受版本1区块
+-- 4. 各节点需先升级代码再出块；滚动升级期间可将 blockchain.hash-version 设为1，
+--    全部节点升级完成后再改为2
+--
+-- 执行方式：
+-- mysql -u root -p blockchain_exam_system < migration_block_hash_version.sql
+--
+-- ========================================
+
+USE blockchain_exam_system;
+
+-- MySQL 不支持 ADD COLUMN IF NOT EXISTS，先查 information_schema 再动态执行，脚本可重复执行
+
+SET @sql = (SELECT IF(EXISTS(SELECT 1 FROM information_schema.COLUMNS
+        WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'node1_blockchain' AND COLUMN_NAME = 'hash_version'),
+    'SELECT 1',
+    'ALTER TABLE node1_blockchain ADD COLUMN hash_version INT(11) DEFAULT NULL COMMENT ''区块哈希版本（NULL为版本1）'' AFTER miner_address'));
+PREPARE stmt FROM @sql;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @sql = (SELECT IF(EXISTS(SELECT 1 FROM information_schema.COLUMNS
+        WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'node2_blockchain' AND COLUMN_NAME = 'hash_version'),
+    'SELECT 1',
+    'ALTER TABLE node2_blockchain ADD COLUMN hash_version INT(11) DEFAULT NULL COMMENT ''区块哈希版本（NULL为版本1）'' AFTER miner_address'));
+PREPARE stmt FROM @sql;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @sql = (SELECT IF(EXISTS(SELECT 1 FROM information_schema.COLUMNS
+        WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'node3_blockchain' AND COLUMN_NAME = 'hash_version'),
+    'SELECT 1',
+    'ALTER TABLE node3_blockchain ADD COLUMN hash_version INT(11) DEFAULT NULL COMMENT ''区块哈希版本（NULL为版本1）'' AFTER miner_address'));
+PREPARE stmt FROM @sql;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
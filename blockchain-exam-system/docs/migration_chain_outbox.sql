@@ -0,0 +1,43 @@
+-- ========================================
+-- 上链发件箱 迁移脚本
+-- 配合试卷创建、审批、解密审计的异步上链
+-- ========================================
+--
+-- 使用说明：
+-- 1. 业务事务内只写入 chain_outbox，请求耗时仅为本地提交
+-- 2. 各节点后台任务按 node_id 取出到期记录，写入本节点交易池、广播，并回填
+--    exam_paper / paper_decrypt_record 的 blockchain_tx_id、chain_time
+-- 3. 投递失败按指数退避重试，超过 chain.outbox.max-attempts 标记为 FAILED，
+--    排查后可手动改回 PENDING 重新投递
+-- 4. 不保证按写入顺序上链：失败记录退避期间，其后的记录照常投递
+--
+-- 执行方式：
+-- mysql -u root -p blockchain_exam_system < migration_chain_outbox.sql
+--
+-- ========================================
+
+USE blockchain_exam_system;
+
+CREATE TABLE IF NOT EXISTS `chain_outbox` (
+  `id` BIGINT(20) NOT NULL AUTO_INCREMENT COMMENT '主键ID',
+  `node_id` VARCHAR(50) NOT NULL COMMENT '负责投递的节点ID',
+  `biz_type` VARCHAR(20) NOT NULL COMMENT '业务类型：PAPER/APPROVAL/DECRYPT',
+  `biz_id` BIGINT(20) NOT NULL COMMENT '业务记录ID',
+  `transaction_type` VARCHAR(50) NOT NULL COMMENT '交易类型',
+  `payload` LONGTEXT NOT NULL COMMENT '交易数据（JSON）',
+  `status` VARCHAR(20) NOT NULL DEFAULT 'PENDING' COMMENT '状态：PENDING/SENT/FAILED',
+  `attempts` INT(11) NOT NULL DEFAULT 0 COMMENT '已尝试次数',
+  `tx_id` BIGINT(20) DEFAULT NULL COMMENT '交易池中的交易ID',
+  `last_error` VARCHAR(500) DEFAULT NULL COMMENT '最近一次失败原因',
+  `next_attempt_time` DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '下次可投递时间',
+  `create_time` DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+  `update_time` DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
+  PRIMARY KEY (`id`),
+  KEY `idx_node_status_next` (`node_id`, `status`, `next_attempt_time`),
+  KEY `idx_biz` (`biz_type`, `biz_id`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='上链发件箱表（业务事务内写入，后台异步上链）';
+
+SELECT '✓ chain_outbox 表创建完成' AS status;
+
+-- 查看投递积压与失败记录
+SELECT node_id, status, COUNT(*) FROM chain_outbox GROUP BY node_id, status;
@@ -0,0 +1,105 @@
+-- ========================================
+-- 试卷列表分页查询 组合索引迁移脚本
+-- 配合 /exam-paper/*/page、/exam-paper/*/cursor、/approval/pending/* 接口
+-- ========================================
+--
+-- 使用说明：
+-- 1. 列表查询固定按 create_time DESC, id DESC 排序
+-- 2. 等值过滤列在前、create_time 在后，InnoDB 二级索引叶子节点隐含主键 id，
+--    因此排序和游标条件 (create_time, id) < (?, ?) 都能直接走索引，无需 filesort
+-- 3. 原单列索引 idx_creator、idx_status 是新组合索引的前缀，一并删除
+--
+-- 查询与索引对应关系：
+--   教师 我的试卷        creator_id = ?                         → idx_creator_time
+--   教师 我的试卷(按状态) creator_id = ? AND status = ?          → idx_creator_status_time
+--   系管理员 待审批队列   status = 'pending' AND department = ?  → idx_status_dept_time
+--   院管理员 待审批队列   status = 'dept_approved'               → idx_status_time
+--   管理员 全部试卷       [status = ?] [AND department = ?]      → idx_status_dept_time / idx_status_time
+--   创建时间范围          create_time >= ? AND create_time < ?   → 上述索引的最后一列
+--
+-- 执行方式：
+-- mysql -u root -p blockchain_exam_system < migration_paper_query_index.sql
+--
+-- ========================================
+
+USE blockchain_exam_system;
+
+-- MySQL 不支持 ADD COLUMN IF NOT EXISTS / DROP INDEX IF EXISTS，
+-- 以下均先查 information_schema 再动态执行，脚本可重复执行
+
+-- 1. 确保院系字段存在（早期库表结构中缺失）
+SET @sql = (SELECT IF(EXISTS(SELECT 1 FROM information_schema.COLUMNS
+        WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'exam_paper' AND COLUMN_NAME = 'department'),
+    'SELECT 1',
+    'ALTER TABLE exam_paper ADD COLUMN department VARCHAR(100) DEFAULT NULL COMMENT ''院系'' AFTER creator_name'));
+PREPARE stmt FROM @sql;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+-- 2. 删除被组合索引覆盖的单列索引
+SET @sql = (SELECT IF(EXISTS(SELECT 1 FROM information_schema.STATISTICS
+        WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'exam_paper' AND INDEX_NAME = 'idx_creator'),
+    'ALTER TABLE exam_paper DROP INDEX idx_creator',
+    'SELECT 1'));
+PREPARE stmt FROM @sql;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @sql = (SELECT IF(EXISTS(SELECT 1 FROM information_schema.STATISTICS
+        WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'exam_paper' AND INDEX_NAME = 'idx_status'),
+    'ALTER TABLE exam_paper DROP INDEX idx_status',
+    'SELECT 1'));
+PREPARE stmt FROM @sql;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+-- 3. 创建组合索引
+SET @sql = (SELECT IF(EXISTS(SELECT 1 FROM information_schema.STATISTICS
+        WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'exam_paper' AND INDEX_NAME = 'idx_creator_status_time'),
+    'SELECT 1',
+    'ALTER TABLE exam_paper ADD INDEX idx_creator_status_time (creator_id, status, create_time)'));
+PREPARE stmt FROM @sql;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+-- 只按 creator_id 过滤时 idx_creator_status_time 的 status 列打断了 create_time 有序性，需单独索引
+SET @sql = (SELECT IF(EXISTS(SELECT 1 FROM information_schema.STATISTICS
+        WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'exam_paper' AND INDEX_NAME = 'idx_creator_time'),
+    'SELECT 1',
+    'ALTER TABLE exam_paper ADD INDEX idx_creator_time (creator_id, create_time)'));
+PREPARE stmt FROM @sql;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @sql = (SELECT IF(EXISTS(SELECT 1 FROM information_schema.STATISTICS
+        WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'exam_paper' AND INDEX_NAME = 'idx_status_dept_time'),
+    'SELECT 1',
+    'ALTER TABLE exam_paper ADD INDEX idx_status_dept_time (status, department, create_time)'));
+PREPARE stmt FROM @sql;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @sql = (SELECT IF(EXISTS(SELECT 1 FROM information_schema.STATISTICS
+        WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'exam_paper' AND INDEX_NAME = 'idx_status_time'),
+    'SELECT 1',
+    'ALTER TABLE exam_paper ADD INDEX idx_status_time (status, create_time)'));
+PREPARE stmt FROM @sql;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SELECT '✓ exam_paper 组合索引创建完成' AS status;
+
+-- 4. 验证执行计划（key 列应为对应组合索引，Extra 不应出现 Using filesort）
+EXPLAIN SELECT id, title, status, create_time FROM exam_paper
+WHERE deleted = 0 AND status = 'pending' AND department = '计算机系'
+ORDER BY create_time DESC, id DESC LIMIT 21;
+
+EXPLAIN SELECT id, title, status, create_time FROM exam_paper
+WHERE deleted = 0 AND creator_id = 1
+ORDER BY create_time DESC, id DESC LIMIT 21;
+
+EXPLAIN SELECT id, title, status, create_time FROM exam_paper
+WHERE deleted = 0 AND creator_id = 1 AND status = 'draft'
+ORDER BY create_time DESC, id DESC LIMIT 21;
+
+SHOW INDEX FROM exam_paper;
@@ -0,0 +1,119 @@
+-- ========================================
+-- 交易池派生列 迁移脚本
+-- 配合交易数据压缩存储（PayloadCodec）后的按试卷查询
+-- ========================================
+--
+-- 使用说明：
+-- 1. transaction_data 入库时可能已压缩，无法再用 LIKE 按试卷匹配；
+--    新增 paper_id 列（由交易数据派生，未关联试卷为0）并建立索引，按试卷查询走该索引
+-- 2. 新增 payload_hash 列（解码后交易数据的SHA-256）并建立索引，P2P接收交易时按其去重，
+--    与各节点的压缩配置（阈值、级别）无关
+-- 3. 新交易入库时自动填充；历史交易由节点启动后的回填任务（TransactionKeyBackfillService）分批补齐
+-- 4. 需先执行本脚本再升级代码
+--
+-- 执行方式：
+-- mysql -u root -p blockchain_exam_system < migration_transaction_keys.sql
+--
+-- ========================================
+
+USE blockchain_exam_system;
+
+-- MySQL 不支持 ADD COLUMN IF NOT EXISTS，先查 information_schema 再动态执行，脚本可重复执行
+
+SET @sql = (SELECT IF(EXISTS(SELECT 1 FROM information_schema.COLUMNS
+        WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'node1_block_pool' AND COLUMN_NAME = 'paper_id'),
+    'SELECT 1',
+    'ALTER TABLE node1_block_pool ADD COLUMN paper_id BIGINT(20) DEFAULT NULL COMMENT ''关联试卷ID（由交易数据派生，0为未关联）'' AFTER transaction_data'));
+PREPARE stmt FROM @sql;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @sql = (SELECT IF(EXISTS(SELECT 1 FROM information_schema.STATISTICS
+        WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'node1_block_pool' AND INDEX_NAME = 'idx_paper'),
+    'SELECT 1',
+    'ALTER TABLE node1_block_pool ADD INDEX idx_paper (paper_id, create_time)'));
+PREPARE stmt FROM @sql;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @sql = (SELECT IF(EXISTS(SELECT 1 FROM information_schema.COLUMNS
+        WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'node2_block_pool' AND COLUMN_NAME = 'paper_id'),
+    'SELECT 1',
+    'ALTER TABLE node2_block_pool ADD COLUMN paper_id BIGINT(20) DEFAULT NULL COMMENT ''关联试卷ID（由交易数据派生，0为未关联）'' AFTER transaction_data'));
+PREPARE stmt FROM @sql;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @sql = (SELECT IF(EXISTS(SELECT 1 FROM information_schema.STATISTICS
+        WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'node2_block_pool' AND INDEX_NAME = 'idx_paper'),
+    'SELECT 1',
+    'ALTER TABLE node2_block_pool ADD INDEX idx_paper (paper_id, create_time)'));
+PREPARE stmt FROM @sql;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @sql = (SELECT IF(EXISTS(SELECT 1 FROM information_schema.COLUMNS
+        WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'node3_block_pool' AND COLUMN_NAME = 'paper_id'),
+    'SELECT 1',
+    'ALTER TABLE node3_block_pool ADD COLUMN paper_id BIGINT(20) DEFAULT NULL COMMENT ''关联试卷ID（由交易数据派生，0为未关联）'' AFTER transaction_data'));
+PREPARE stmt FROM @sql;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @sql = (SELECT IF(EXISTS(SELECT 1 FROM information_schema.STATISTICS
+        WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'node3_block_pool' AND INDEX_NAME = 'idx_paper'),
+    'SELECT 1',
+    'ALTER TABLE node3_block_pool ADD INDEX idx_paper (paper_id, create_time)'));
+PREPARE stmt FROM @sql;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @sql = (SELECT IF(EXISTS(SELECT 1 FROM information_schema.COLUMNS
+        WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'node1_block_pool' AND COLUMN_NAME = 'payload_hash'),
+    'SELECT 1',
+    'ALTER TABLE node1_block_pool ADD COLUMN payload_hash CHAR(64) DEFAULT NULL COMMENT ''交易数据SHA-256（去重）'' AFTER paper_id'));
+PREPARE stmt FROM @sql;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @sql = (SELECT IF(EXISTS(SELECT 1 FROM information_schema.STATISTICS
+        WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'node1_block_pool' AND INDEX_NAME = 'idx_payload_hash'),
+    'SELECT 1',
+    'ALTER TABLE node1_block_pool ADD INDEX idx_payload_hash (payload_hash)'));
+PREPARE stmt FROM @sql;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @sql = (SELECT IF(EXISTS(SELECT 1 FROM information_schema.COLUMNS
+        WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'node2_block_pool' AND COLUMN_NAME = 'payload_hash'),
+    'SELECT 1',
+    'ALTER TABLE node2_block_pool ADD COLUMN payload_hash CHAR(64) DEFAULT NULL COMMENT ''交易数据SHA-256（去重）'' AFTER paper_id'));
+PREPARE stmt FROM @sql;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @sql = (SELECT IF(EXISTS(SELECT 1 FROM information_schema.STATISTICS
+        WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'node2_block_pool' AND INDEX_NAME = 'idx_payload_hash'),
+    'SELECT 1',
+    'ALTER TABLE node2_block_pool ADD INDEX idx_payload_hash (payload_hash)'));
+PREPARE stmt FROM @sql;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @sql = (SELECT IF(EXISTS(SELECT 1 FROM information_schema.COLUMNS
+        WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'node3_block_pool' AND COLUMN_NAME = 'payload_hash'),
+    'SELECT 1',
+    'ALTER TABLE node3_block_pool ADD COLUMN payload_hash CHAR(64) DEFAULT NULL COMMENT ''交易数据SHA-256（去重）'' AFTER paper_id'));
+PREPARE stmt FROM @sql;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @sql = (SELECT IF(EXISTS(SELECT 1 FROM information_schema.STATISTICS
+        WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'node3_block_pool' AND INDEX_NAME = 'idx_payload_hash'),
+    'SELECT 1',
+    'ALTER TABLE node3_block_pool ADD INDEX idx_payload_hash (payload_hash)'));
+PREPARE stmt FROM @sql;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SELECT '✓ 交易池 paper_id、payload_hash 列及索引创建完成' AS status;